@@ -0,0 +1,16 @@
+package com.espe.compras.clients;
+
+import com.espe.compras.dto.MovimientoStockDTO;
+import com.espe.compras.dto.ResultadoMovimientoDTO;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
+
+@FeignClient(name = "inventario", url = "${compras.inventario.url:localhost:8083}")
+public interface InventarioClientRest {
+
+    @PostMapping("/api/inventario/movimientos/lote")
+    List<ResultadoMovimientoDTO> aplicarMovimientos(@RequestBody List<MovimientoStockDTO> movimientos);
+}
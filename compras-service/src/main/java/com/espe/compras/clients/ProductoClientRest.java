@@ -0,0 +1,16 @@
+package com.espe.compras.clients;
+
+import com.espe.compras.dto.ProductoDTO;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.Collection;
+import java.util.List;
+
+@FeignClient(name = "producto", url = "${compras.producto.url:localhost:8081}")
+public interface ProductoClientRest {
+
+    @GetMapping("/api/productos/lote")
+    List<ProductoDTO> findAllByIds(@RequestParam("ids") Collection<Long> ids);
+}
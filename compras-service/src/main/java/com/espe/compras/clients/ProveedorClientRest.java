@@ -0,0 +1,20 @@
+package com.espe.compras.clients;
+
+import com.espe.compras.dto.ProveedorDTO;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.Collection;
+import java.util.List;
+
+@FeignClient(name = "proveedor", url = "${compras.proveedor.url:localhost:8082}")
+public interface ProveedorClientRest {
+
+    @GetMapping("/api/proveedores/{id}")
+    ProveedorDTO findById(@PathVariable("id") Long id);
+
+    @GetMapping("/api/proveedores/lote")
+    List<ProveedorDTO> findAllByIds(@RequestParam("ids") Collection<Long> ids);
+}
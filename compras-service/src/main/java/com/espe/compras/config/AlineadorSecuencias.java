@@ -0,0 +1,39 @@
+package com.espe.compras.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Las tablas se crearon originalmente con ids AUTO_INCREMENT. Al pasar a
+// secuencias con asignación por bloques (necesarias para el batching de
+// inserts) se adelanta cada secuencia por encima del id máximo existente.
+@Component
+public class AlineadorSecuencias implements InitializingBean {
+
+    // Debe coincidir con el allocationSize de los @SequenceGenerator
+    private static final int TAMANO_ASIGNACION = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public AlineadorSecuencias(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        // La dependencia con EntityManagerFactory garantiza que el esquema ya fue actualizado
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        alinear("ordenes_compra_seq", "ordenes_compra");
+        alinear("detalles_orden_seq", "detalles_orden");
+    }
+
+    private void alinear(String secuencia, String tabla) {
+        jdbcTemplate.update(
+            "UPDATE " + secuencia + " SET next_val = GREATEST(next_val, " +
+            "(SELECT COALESCE(MAX(id), 0) FROM " + tabla + ") + ?)",
+            TAMANO_ASIGNACION + 1
+        );
+    }
+}
@@ -0,0 +1,103 @@
+package com.espe.compras.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+// Las tablas de archivo se crean con ddl-auto y aquí se convierten en tablas
+// particionadas por mes de emisión (RANGE COLUMNS). También se publican las vistas
+// que unen órdenes activas y archivadas para los reportes que abarcan ambas.
+// Las sentencias DDL de MySQL confirman la transacción en curso, por eso las
+// particiones se crean siempre fuera de la transacción que mueve las filas.
+@Component
+public class EsquemaArchivo implements InitializingBean {
+
+    private static final String[] TABLAS_PARTICIONADAS = {"ordenes_compra_historico", "detalles_orden_historico"};
+    private static final String PARTICION_FINAL = "p_max";
+
+    private static final String COLUMNAS_ORDEN = "id, proveedor_id, bodega_id, numero_factura, fecha_emision, " +
+        "fecha_entrega, subtotal, iva, total, estado, observaciones, fecha_creacion, fecha_actualizacion";
+    private static final String COLUMNAS_DETALLE = "id, orden_compra_id, producto_id, nombre_producto, cantidad, " +
+        "precio_unitario, descuento, subtotal";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public EsquemaArchivo(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        // La dependencia con EntityManagerFactory garantiza que el esquema ya fue actualizado
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        for (String tabla : TABLAS_PARTICIONADAS) {
+            if (particiones(tabla).isEmpty()) {
+                jdbcTemplate.execute("ALTER TABLE " + tabla + " PARTITION BY RANGE COLUMNS(fecha_emision) " +
+                    "(PARTITION " + PARTICION_FINAL + " VALUES LESS THAN (MAXVALUE))");
+            }
+        }
+        jdbcTemplate.execute("CREATE OR REPLACE VIEW ordenes_compra_todas AS " +
+            "SELECT " + COLUMNAS_ORDEN + " FROM ordenes_compra UNION ALL " +
+            "SELECT " + COLUMNAS_ORDEN + " FROM ordenes_compra_historico");
+        jdbcTemplate.execute("CREATE OR REPLACE VIEW detalles_orden_todos AS " +
+            "SELECT " + COLUMNAS_DETALLE + " FROM detalles_orden UNION ALL " +
+            "SELECT " + COLUMNAS_DETALLE + " FROM detalles_orden_historico");
+    }
+
+    // Garantiza una partición por cada mes del rango; las particiones se mantienen contiguas
+    public synchronized void asegurarParticiones(YearMonth desde, YearMonth hasta) {
+        for (String tabla : TABLAS_PARTICIONADAS) {
+            List<YearMonth> meses = new ArrayList<>();
+            for (String nombre : particiones(tabla)) {
+                if (!PARTICION_FINAL.equals(nombre)) {
+                    meses.add(YearMonth.of(Integer.parseInt(nombre.substring(1, 5)), Integer.parseInt(nombre.substring(5, 7))));
+                }
+            }
+
+            if (meses.isEmpty()) {
+                reorganizar(tabla, PARTICION_FINAL, desde, hasta, true);
+                continue;
+            }
+            YearMonth primero = meses.get(0);
+            YearMonth ultimo = meses.get(meses.size() - 1);
+            if (desde.isBefore(primero)) {
+                // La primera partición contiene todo lo anterior a su límite: se divide hacia atrás
+                reorganizar(tabla, nombre(primero), desde, primero, false);
+            }
+            if (hasta.isAfter(ultimo)) {
+                reorganizar(tabla, PARTICION_FINAL, ultimo.plusMonths(1), hasta, true);
+            }
+        }
+    }
+
+    // Métodos auxiliares
+
+    private List<String> particiones(String tabla) {
+        return jdbcTemplate.queryForList(
+            "SELECT PARTITION_NAME FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() " +
+            "AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL ORDER BY PARTITION_ORDINAL_POSITION",
+            String.class, tabla);
+    }
+
+    private void reorganizar(String tabla, String particion, YearMonth desde, YearMonth hasta, boolean conFinal) {
+        StringJoiner nuevas = new StringJoiner(", ");
+        for (YearMonth mes = desde; !mes.isAfter(hasta); mes = mes.plusMonths(1)) {
+            nuevas.add("PARTITION " + nombre(mes) + " VALUES LESS THAN ('" + mes.plusMonths(1).atDay(1) + " 00:00:00')");
+        }
+        if (conFinal) {
+            nuevas.add("PARTITION " + PARTICION_FINAL + " VALUES LESS THAN (MAXVALUE)");
+        }
+        jdbcTemplate.execute("ALTER TABLE " + tabla + " REORGANIZE PARTITION " + particion + " INTO (" + nuevas + ")");
+    }
+
+    private static String nombre(YearMonth mes) {
+        return String.format("p%04d%02d", mes.getYear(), mes.getMonthValue());
+    }
+}
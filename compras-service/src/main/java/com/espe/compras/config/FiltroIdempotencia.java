@@ -0,0 +1,49 @@
+package com.espe.compras.config;
+
+import com.espe.compras.exceptions.ErrorResponse;
+import com.espe.comun.idempotencia.FiltroIdempotenciaBase;
+import com.espe.comun.idempotencia.RespuestaIdempotenteRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Reproduce la respuesta almacenada cuando una solicitud de creación de orden se
+// reintenta con la misma cabecera Idempotency-Key, sin volver a ejecutarla
+@Component
+public class FiltroIdempotencia extends FiltroIdempotenciaBase {
+
+    private static final String RUTA_CREAR_ORDEN = "/api/ordenes-compra";
+
+    @Autowired
+    public FiltroIdempotencia(RespuestaIdempotenteRepository respuestaIdempotenteRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${spring.application.name}") String nombreServicio,
+                              @Value("${compras.idempotencia.retencion-horas:24}") long retencionHoras,
+                              @Value("${compras.idempotencia.cache.tamano-maximo:10000}") int tamanoMaximo,
+                              @Value("${compras.idempotencia.arrendamiento-segundos:60}") long arrendamientoSegundos) {
+        super(respuestaIdempotenteRepository, objectMapper, nombreServicio, Duration.ofHours(retencionHoras), tamanoMaximo,
+            Duration.ofSeconds(arrendamientoSegundos));
+    }
+
+    @Override
+    protected boolean aplicaA(HttpServletRequest request, String ruta) {
+        return "POST".equals(request.getMethod()) && RUTA_CREAR_ORDEN.equals(ruta);
+    }
+
+    @Override
+    protected Object cuerpoError(HttpStatus estado, String mensaje) {
+        return new ErrorResponse(estado.value(), mensaje, null);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${compras.idempotencia.purga-ms:3600000}")
+    public void purgarVencidas() {
+        super.purgarVencidas();
+    }
+}
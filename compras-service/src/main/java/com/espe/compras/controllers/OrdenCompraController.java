@@ -1,30 +1,74 @@
 package com.espe.compras.controllers;
 
+import com.espe.compras.dto.CambioEstadoLote;
+import com.espe.compras.dto.EstadisticaProductoDTO;
+import com.espe.compras.dto.FormatoExportacion;
+import com.espe.compras.dto.GastoProveedorDTO;
+import com.espe.compras.dto.Granularidad;
+import com.espe.compras.dto.OrdenCompraResumen;
+import com.espe.compras.dto.PuntoSerieTemporal;
+import com.espe.compras.dto.ResultadoCambioEstadoLote;
+import com.espe.compras.dto.ResultadoLote;
+import com.espe.compras.dto.ResumenOrdenes;
+import com.espe.compras.dto.VistaOrden;
 import com.espe.compras.models.OrdenCompra;
 import com.espe.compras.models.DetalleOrden;
 import com.espe.compras.models.EstadoOrden;
+import com.espe.compras.models.HistorialEstadoOrden;
+import com.espe.compras.services.EventosOrdenService;
+import com.espe.compras.services.ExportacionOrdenesService;
+import com.espe.compras.services.GastoProveedorService;
 import com.espe.compras.services.OrdenCompraService;
+import com.espe.compras.services.ResumenService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/ordenes-compra")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = "X-Next-After")
 public class OrdenCompraController {
 
+    private static final String CABECERA_SIGUIENTE_CURSOR = "X-Next-After";
+
+    private static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+
     private final OrdenCompraService ordenCompraService;
+    private final ResumenService resumenService;
+    private final GastoProveedorService gastoProveedorService;
+    private final EventosOrdenService eventosOrdenService;
+    private final ExportacionOrdenesService exportacionOrdenesService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public OrdenCompraController(OrdenCompraService ordenCompraService) {
+    public OrdenCompraController(OrdenCompraService ordenCompraService, ResumenService resumenService,
+                                 GastoProveedorService gastoProveedorService, EventosOrdenService eventosOrdenService,
+                                 ExportacionOrdenesService exportacionOrdenesService, ObjectMapper objectMapper) {
         this.ordenCompraService = ordenCompraService;
+        this.resumenService = resumenService;
+        this.gastoProveedorService = gastoProveedorService;
+        this.eventosOrdenService = eventosOrdenService;
+        this.exportacionOrdenesService = exportacionOrdenesService;
+        this.objectMapper = objectMapper;
     }
 
     // ==================== ENDPOINTS CRUD BÁSICOS ====================
@@ -35,6 +79,24 @@ public class OrdenCompraController {
         return new ResponseEntity<>(nuevaOrden, HttpStatus.CREATED);
     }
 
+    @PostMapping(value = "/lote", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ResultadoLote> crearOrdenesEnLote(@RequestBody List<OrdenCompra> ordenes) {
+        ResultadoLote resultado = ordenCompraService.crearOrdenesEnLote(ordenes);
+        return ResponseEntity.ok(resultado);
+    }
+
+    @PostMapping(value = "/lote", consumes = MEDIA_TYPE_NDJSON)
+    public ResponseEntity<ResultadoLote> crearOrdenesEnLoteNdjson(InputStream cuerpo) throws IOException {
+        List<OrdenCompra> ordenes = new ArrayList<>();
+        try (MappingIterator<OrdenCompra> iterador = objectMapper.readerFor(OrdenCompra.class).readValues(cuerpo)) {
+            while (iterador.hasNextValue()) {
+                ordenes.add(iterador.nextValue());
+            }
+        }
+        ResultadoLote resultado = ordenCompraService.crearOrdenesEnLote(ordenes);
+        return ResponseEntity.ok(resultado);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<OrdenCompra> obtenerOrdenCompraPorId(@PathVariable Long id) {
         OrdenCompra orden = ordenCompraService.obtenerOrdenCompraPorId(id);
@@ -42,9 +104,15 @@ public class OrdenCompraController {
     }
 
     @GetMapping
-    public ResponseEntity<List<OrdenCompra>> obtenerTodasLasOrdenes() {
-        List<OrdenCompra> ordenes = ordenCompraService.obtenerTodasLasOrdenes();
-        return ResponseEntity.ok(ordenes);
+    public ResponseEntity<List<?>> obtenerTodasLasOrdenes(
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "" + OrdenCompraService.LIMITE_POR_DEFECTO) int limit,
+            @RequestParam(defaultValue = "completa") String vista) {
+        if (VistaOrden.desde(vista) == VistaOrden.RESUMEN) {
+            return pagina(ordenCompraService.resumirTodasLasOrdenes(after, limit), limit, OrdenCompraResumen::id);
+        }
+        List<OrdenCompra> ordenes = ordenCompraService.obtenerTodasLasOrdenes(after, limit);
+        return pagina(ordenes, limit, OrdenCompra::getId);
     }
 
     @PutMapping("/{id}")
@@ -64,32 +132,79 @@ public class OrdenCompraController {
     // ==================== ENDPOINTS DE BÚSQUEDA ====================
 
     @GetMapping("/estado/{estado}")
-    public ResponseEntity<List<OrdenCompra>> buscarOrdenesPorEstado(@PathVariable EstadoOrden estado) {
-        List<OrdenCompra> ordenes = ordenCompraService.buscarOrdenesPorEstado(estado);
-        return ResponseEntity.ok(ordenes);
+    public ResponseEntity<List<?>> buscarOrdenesPorEstado(
+            @PathVariable EstadoOrden estado,
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "" + OrdenCompraService.LIMITE_POR_DEFECTO) int limit,
+            @RequestParam(defaultValue = "completa") String vista) {
+        if (VistaOrden.desde(vista) == VistaOrden.RESUMEN) {
+            return pagina(ordenCompraService.resumirOrdenesPorEstado(estado, after, limit), limit, OrdenCompraResumen::id);
+        }
+        List<OrdenCompra> ordenes = ordenCompraService.buscarOrdenesPorEstado(estado, after, limit);
+        return pagina(ordenes, limit, OrdenCompra::getId);
     }
 
     @GetMapping("/proveedor/{proveedorId}")
-    public ResponseEntity<List<OrdenCompra>> buscarOrdenesPorProveedor(@PathVariable Long proveedorId) {
-        List<OrdenCompra> ordenes = ordenCompraService.buscarOrdenesPorProveedor(proveedorId);
-        return ResponseEntity.ok(ordenes);
+    public ResponseEntity<List<?>> buscarOrdenesPorProveedor(
+            @PathVariable Long proveedorId,
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "" + OrdenCompraService.LIMITE_POR_DEFECTO) int limit,
+            @RequestParam(defaultValue = "completa") String vista) {
+        if (VistaOrden.desde(vista) == VistaOrden.RESUMEN) {
+            return pagina(ordenCompraService.resumirOrdenesPorProveedor(proveedorId, after, limit),
+                limit, OrdenCompraResumen::id);
+        }
+        List<OrdenCompra> ordenes = ordenCompraService.buscarOrdenesPorProveedor(proveedorId, after, limit);
+        return pagina(ordenes, limit, OrdenCompra::getId);
     }
 
     @GetMapping("/rango-fechas")
-    public ResponseEntity<List<OrdenCompra>> buscarOrdenesPorRangoFechas(
+    public ResponseEntity<List<?>> buscarOrdenesPorRangoFechas(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaInicio,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaFin) {
-        List<OrdenCompra> ordenes = ordenCompraService.buscarOrdenesPorRangoFechas(fechaInicio, fechaFin);
-        return ResponseEntity.ok(ordenes);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaFin,
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "" + OrdenCompraService.LIMITE_POR_DEFECTO) int limit,
+            @RequestParam(defaultValue = "completa") String vista) {
+        if (VistaOrden.desde(vista) == VistaOrden.RESUMEN) {
+            return pagina(ordenCompraService.resumirOrdenesPorRangoFechas(fechaInicio, fechaFin, after, limit),
+                limit, OrdenCompraResumen::id);
+        }
+        List<OrdenCompra> ordenes = ordenCompraService.buscarOrdenesPorRangoFechas(fechaInicio, fechaFin, after, limit);
+        return pagina(ordenes, limit, OrdenCompra::getId);
     }
 
     @GetMapping("/factura")
-    public ResponseEntity<List<OrdenCompra>> buscarOrdenesPorNumeroFactura(
-            @RequestParam String numeroFactura) {
-        List<OrdenCompra> ordenes = ordenCompraService.buscarOrdenesPorNumeroFactura(numeroFactura);
+    public ResponseEntity<List<?>> buscarOrdenesPorNumeroFactura(
+            @RequestParam String numeroFactura,
+            @RequestParam(defaultValue = "" + OrdenCompraService.LIMITE_POR_DEFECTO) int limit,
+            @RequestParam(defaultValue = "completa") String vista) {
+        // Resultados ordenados por relevancia, sin cursor de paginación
+        if (VistaOrden.desde(vista) == VistaOrden.RESUMEN) {
+            return ResponseEntity.ok(ordenCompraService.resumirOrdenesPorNumeroFactura(numeroFactura, limit));
+        }
+        List<OrdenCompra> ordenes = ordenCompraService.buscarOrdenesPorNumeroFactura(numeroFactura, limit);
         return ResponseEntity.ok(ordenes);
     }
 
+    // Exportación de un rango de fechas escrita a medida que se lee de la base de datos
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportarOrdenes(
+            @RequestParam(defaultValue = "csv") String formato,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaFin,
+            @RequestParam(defaultValue = "false") boolean incluirDetalles) {
+        FormatoExportacion formatoExportacion = FormatoExportacion.desde(formato);
+        StreamingResponseBody cuerpo = salida -> exportacionOrdenesService.exportar(
+            fechaInicio, fechaFin, formatoExportacion, incluirDetalles, salida);
+        return ResponseEntity.ok()
+            .contentType(formatoExportacion.getTipoContenido())
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("ordenes-compra." + formatoExportacion.getExtension())
+                .build()
+                .toString())
+            .body(cuerpo);
+    }
+
     // ==================== ENDPOINTS DE GESTIÓN DE ESTADOS ====================
 
     @PutMapping("/{id}/estado")
@@ -100,28 +215,69 @@ public class OrdenCompraController {
         return ResponseEntity.ok(ordenActualizada);
     }
 
+    @GetMapping("/{id}/historial")
+    public ResponseEntity<List<HistorialEstadoOrden>> obtenerHistorialEstados(@PathVariable Long id) {
+        List<HistorialEstadoOrden> historial = ordenCompraService.obtenerHistorialEstados(id);
+        return ResponseEntity.ok(historial);
+    }
+
+    @PutMapping("/estado/lote")
+    public ResponseEntity<ResultadoCambioEstadoLote> cambiarEstadoOrdenes(
+            @Valid @RequestBody CambioEstadoLote cambio) {
+        ResultadoCambioEstadoLote resultado = ordenCompraService.cambiarEstadoOrdenes(cambio.ids(), cambio.nuevoEstado());
+        return ResponseEntity.ok(resultado);
+    }
+
     @GetMapping("/pendientes")
-    public ResponseEntity<List<OrdenCompra>> obtenerOrdenesPendientes() {
-        List<OrdenCompra> ordenes = ordenCompraService.obtenerOrdenesPendientes();
-        return ResponseEntity.ok(ordenes);
+    public ResponseEntity<List<?>> obtenerOrdenesPendientes(
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "" + OrdenCompraService.LIMITE_POR_DEFECTO) int limit,
+            @RequestParam(defaultValue = "completa") String vista) {
+        if (VistaOrden.desde(vista) == VistaOrden.RESUMEN) {
+            return pagina(ordenCompraService.resumirOrdenesPorEstado(EstadoOrden.PENDIENTE, after, limit),
+                limit, OrdenCompraResumen::id);
+        }
+        List<OrdenCompra> ordenes = ordenCompraService.obtenerOrdenesPendientes(after, limit);
+        return pagina(ordenes, limit, OrdenCompra::getId);
     }
 
     @GetMapping("/en-proceso")
-    public ResponseEntity<List<OrdenCompra>> obtenerOrdenesEnProceso() {
-        List<OrdenCompra> ordenes = ordenCompraService.obtenerOrdenesEnProceso();
-        return ResponseEntity.ok(ordenes);
+    public ResponseEntity<List<?>> obtenerOrdenesEnProceso(
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "" + OrdenCompraService.LIMITE_POR_DEFECTO) int limit,
+            @RequestParam(defaultValue = "completa") String vista) {
+        if (VistaOrden.desde(vista) == VistaOrden.RESUMEN) {
+            return pagina(ordenCompraService.resumirOrdenesPorEstado(EstadoOrden.EN_PROCESO, after, limit),
+                limit, OrdenCompraResumen::id);
+        }
+        List<OrdenCompra> ordenes = ordenCompraService.obtenerOrdenesEnProceso(after, limit);
+        return pagina(ordenes, limit, OrdenCompra::getId);
     }
 
     @GetMapping("/completadas")
-    public ResponseEntity<List<OrdenCompra>> obtenerOrdenesCompletadas() {
-        List<OrdenCompra> ordenes = ordenCompraService.obtenerOrdenesCompletadas();
-        return ResponseEntity.ok(ordenes);
+    public ResponseEntity<List<?>> obtenerOrdenesCompletadas(
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "" + OrdenCompraService.LIMITE_POR_DEFECTO) int limit,
+            @RequestParam(defaultValue = "completa") String vista) {
+        if (VistaOrden.desde(vista) == VistaOrden.RESUMEN) {
+            return pagina(ordenCompraService.resumirOrdenesPorEstado(EstadoOrden.COMPLETADA, after, limit),
+                limit, OrdenCompraResumen::id);
+        }
+        List<OrdenCompra> ordenes = ordenCompraService.obtenerOrdenesCompletadas(after, limit);
+        return pagina(ordenes, limit, OrdenCompra::getId);
     }
 
     @GetMapping("/canceladas")
-    public ResponseEntity<List<OrdenCompra>> obtenerOrdenesCanceladas() {
-        List<OrdenCompra> ordenes = ordenCompraService.obtenerOrdenesCanceladas();
-        return ResponseEntity.ok(ordenes);
+    public ResponseEntity<List<?>> obtenerOrdenesCanceladas(
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "" + OrdenCompraService.LIMITE_POR_DEFECTO) int limit,
+            @RequestParam(defaultValue = "completa") String vista) {
+        if (VistaOrden.desde(vista) == VistaOrden.RESUMEN) {
+            return pagina(ordenCompraService.resumirOrdenesPorEstado(EstadoOrden.CANCELADA, after, limit),
+                limit, OrdenCompraResumen::id);
+        }
+        List<OrdenCompra> ordenes = ordenCompraService.obtenerOrdenesCanceladas(after, limit);
+        return pagina(ordenes, limit, OrdenCompra::getId);
     }
 
     // ==================== ENDPOINTS DE DETALLES ====================
@@ -151,6 +307,14 @@ public class OrdenCompraController {
         return ResponseEntity.noContent().build();
     }
 
+    @PutMapping("/{id}/detalles")
+    public ResponseEntity<OrdenCompra> reemplazarDetallesOrden(
+            @PathVariable Long id,
+            @RequestBody List<DetalleOrden> detalles) {
+        OrdenCompra ordenActualizada = ordenCompraService.reemplazarDetallesOrden(id, detalles);
+        return ResponseEntity.ok(ordenActualizada);
+    }
+
     // ==================== ENDPOINTS DE ESTADÍSTICAS ====================
 
     @GetMapping("/estadisticas/contar-por-estado")
@@ -165,6 +329,41 @@ public class OrdenCompraController {
         return ResponseEntity.ok(total);
     }
 
+    @GetMapping("/estadisticas/proveedores/top")
+    public ResponseEntity<List<GastoProveedorDTO>> obtenerTopProveedores(
+            @RequestParam(defaultValue = "" + GastoProveedorService.TOP_POR_DEFECTO) int n,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        List<GastoProveedorDTO> top = gastoProveedorService.obtenerTopProveedores(n, desde, hasta);
+        return ResponseEntity.ok(top);
+    }
+
+    @GetMapping("/estadisticas/proveedores")
+    public ResponseEntity<List<GastoProveedorDTO>> obtenerGastoProveedores(
+            @RequestParam List<Long> ids,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        List<GastoProveedorDTO> gastos = gastoProveedorService.obtenerGastoProveedores(ids, desde, hasta);
+        return ResponseEntity.ok(gastos);
+    }
+
+    // Cantidad comprada y gasto por producto: los indicados en ids o, sin ids, todos paginados por cursor
+    @GetMapping("/estadisticas/productos")
+    public ResponseEntity<List<?>> obtenerEstadisticasProductos(
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaFin,
+            @RequestParam(required = false) EstadoOrden estado,
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "" + OrdenCompraService.LIMITE_POR_DEFECTO) int limit) {
+        if (ids != null) {
+            return ResponseEntity.ok(ordenCompraService.obtenerEstadisticasProductos(ids, fechaInicio, fechaFin, estado));
+        }
+        List<EstadisticaProductoDTO> estadisticas =
+            ordenCompraService.obtenerEstadisticasProductos(after, limit, fechaInicio, fechaFin, estado);
+        return pagina(estadisticas, limit, EstadisticaProductoDTO::productoId);
+    }
+
     @GetMapping("/estadisticas/total-por-rango-fechas")
     public ResponseEntity<BigDecimal> obtenerTotalComprasPorRangoFechas(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaInicio,
@@ -173,6 +372,15 @@ public class OrdenCompraController {
         return ResponseEntity.ok(total);
     }
 
+    @GetMapping("/estadisticas/serie-temporal")
+    public ResponseEntity<List<PuntoSerieTemporal>> obtenerSerieTemporal(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaFin,
+            @RequestParam(defaultValue = "DIA") Granularidad granularidad) {
+        List<PuntoSerieTemporal> serie = ordenCompraService.obtenerSerieTemporal(fechaInicio, fechaFin, granularidad);
+        return ResponseEntity.ok(serie);
+    }
+
     // ==================== ENDPOINTS DE VALIDACIÓN ====================
 
     @GetMapping("/validar/numero-factura")
@@ -192,17 +400,28 @@ public class OrdenCompraController {
     // ==================== ENDPOINTS ADICIONALES ====================
 
     @GetMapping("/resumen")
-    public ResponseEntity<Object> obtenerResumenOrdenes() {
-        var resumen = new Object() {
-            public final Long pendientes = ordenCompraService.contarOrdenesPorEstado(EstadoOrden.PENDIENTE);
-            public final Long enProceso = ordenCompraService.contarOrdenesPorEstado(EstadoOrden.EN_PROCESO);
-            public final Long completadas = ordenCompraService.contarOrdenesPorEstado(EstadoOrden.COMPLETADA);
-            public final Long canceladas = ordenCompraService.contarOrdenesPorEstado(EstadoOrden.CANCELADA);
-            public final BigDecimal totalMes = ordenCompraService.obtenerTotalComprasPorRangoFechas(
-                LocalDateTime.now().withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0),
-                LocalDateTime.now()
-            );
-        };
-        return ResponseEntity.ok(resumen);
+    public ResponseEntity<ResumenOrdenes> obtenerResumenOrdenes() {
+        return ResponseEntity.ok(resumenService.obtenerResumen());
+    }
+
+    // Cambios de órdenes en tiempo real (SSE); el navegador reenvía Last-Event-ID al reconectar
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter suscribirCambios(
+            @RequestHeader(value = "Last-Event-ID", required = false) Long ultimoEventoId) {
+        return eventosOrdenService.suscribir(ultimoEventoId);
+    }
+
+    // ==================== MÉTODOS AUXILIARES ====================
+
+    // Si la página está llena se expone el cursor de la siguiente en la cabecera X-Next-After
+    private <T> ResponseEntity<List<?>> pagina(List<T> ordenes, int limit, Function<T, Long> id) {
+        int limiteEfectivo = Math.max(1, Math.min(limit, OrdenCompraService.LIMITE_MAXIMO));
+        if (ordenes.size() < limiteEfectivo) {
+            return ResponseEntity.ok(ordenes);
+        }
+        Long siguiente = id.apply(ordenes.get(ordenes.size() - 1));
+        return ResponseEntity.ok()
+            .header(CABECERA_SIGUIENTE_CURSOR, String.valueOf(siguiente))
+            .body(ordenes);
     }
 }
@@ -0,0 +1,15 @@
+package com.espe.compras.dto;
+
+import com.espe.compras.models.EstadoOrden;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+public record CambioEstadoLote(
+    @NotEmpty(message = "La lista de órdenes es obligatoria")
+    List<@NotNull Long> ids,
+    @NotNull(message = "El nuevo estado es obligatorio")
+    EstadoOrden nuevoEstado
+) {
+}
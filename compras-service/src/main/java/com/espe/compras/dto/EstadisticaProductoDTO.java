@@ -0,0 +1,26 @@
+package com.espe.compras.dto;
+
+import java.math.BigDecimal;
+
+// Cantidad comprada y gasto acumulado de un producto
+public record EstadisticaProductoDTO(
+        Long productoId,
+        Long cantidad,
+        BigDecimal monto,
+        Long lineas
+) {
+    public EstadisticaProductoDTO {
+        cantidad = cantidad != null ? cantidad : 0L;
+        monto = monto != null ? monto : BigDecimal.ZERO;
+        lineas = lineas != null ? lineas : 0L;
+    }
+
+    public static EstadisticaProductoDTO vacia(Long productoId) {
+        return new EstadisticaProductoDTO(productoId, 0L, BigDecimal.ZERO, 0L);
+    }
+
+    // Combina las cifras del mismo producto obtenidas de otra fuente (p. ej. el archivo)
+    public EstadisticaProductoDTO sumar(EstadisticaProductoDTO otra) {
+        return new EstadisticaProductoDTO(productoId, cantidad + otra.cantidad, monto.add(otra.monto), lineas + otra.lineas);
+    }
+}
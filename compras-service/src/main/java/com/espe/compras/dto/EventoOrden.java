@@ -0,0 +1,22 @@
+package com.espe.compras.dto;
+
+import com.espe.compras.models.EstadoOrden;
+
+import java.time.LocalDateTime;
+
+// Cambio de una orden de compra publicado en /api/ordenes-compra/stream
+public record EventoOrden(
+    long id,
+    Tipo tipo,
+    Long ordenId,
+    EstadoOrden estadoAnterior,
+    EstadoOrden estado,
+    LocalDateTime fecha
+) {
+    public enum Tipo {
+        CREADA,
+        ACTUALIZADA,
+        ESTADO_CAMBIADO,
+        ELIMINADA
+    }
+}
@@ -0,0 +1,35 @@
+package com.espe.compras.dto;
+
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+// Formato de /api/ordenes-compra/export: ?formato=csv|ndjson
+public enum FormatoExportacion {
+    CSV(new MediaType("text", "csv"), "csv"),
+    NDJSON(new MediaType("application", "x-ndjson"), "ndjson");
+
+    private final MediaType tipoContenido;
+    private final String extension;
+
+    FormatoExportacion(MediaType tipoContenido, String extension) {
+        this.tipoContenido = tipoContenido;
+        this.extension = extension;
+    }
+
+    public MediaType getTipoContenido() {
+        return tipoContenido;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static FormatoExportacion desde(String valor) {
+        try {
+            return valueOf(valor.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Formato de exportación no válido: " + valor + " (use csv o ndjson)");
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.espe.compras.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Gasto acumulado de un proveedor en un rango de meses
+public record GastoProveedorDTO(
+        Long proveedorId,
+        Long cantidadOrdenes,
+        BigDecimal total,
+        LocalDateTime fechaUltimaOrden
+) {
+    public GastoProveedorDTO {
+        cantidadOrdenes = cantidadOrdenes != null ? cantidadOrdenes : 0L;
+        total = total != null ? total : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,7 @@
+package com.espe.compras.dto;
+
+public enum Granularidad {
+    DIA,
+    SEMANA,
+    MES
+}
@@ -0,0 +1,9 @@
+package com.espe.compras.dto;
+
+public record MovimientoStockDTO(
+    String claveIdempotencia,
+    Long productoId,
+    Long bodegaId,
+    Integer cantidad
+) {
+}
@@ -0,0 +1,17 @@
+package com.espe.compras.dto;
+
+import com.espe.compras.models.EstadoOrden;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Proyección de los listados en vista resumen: sólo las columnas que muestran las pantallas de listado
+public record OrdenCompraResumen(
+    Long id,
+    String numeroFactura,
+    Long proveedorId,
+    LocalDateTime fechaEmision,
+    EstadoOrden estado,
+    BigDecimal total
+) {
+}
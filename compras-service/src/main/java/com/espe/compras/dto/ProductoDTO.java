@@ -0,0 +1,12 @@
+package com.espe.compras.dto;
+
+import java.math.BigDecimal;
+
+public record ProductoDTO(
+    Long id,
+    String nombre,
+    String sku,
+    BigDecimal precio,
+    String estado
+) {
+}
@@ -0,0 +1,9 @@
+package com.espe.compras.dto;
+
+public record ProveedorDTO(
+    Long id,
+    String nombre,
+    String nitRuc,
+    String estado
+) {
+}
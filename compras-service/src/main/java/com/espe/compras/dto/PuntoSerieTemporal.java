@@ -0,0 +1,11 @@
+package com.espe.compras.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record PuntoSerieTemporal(
+    LocalDate periodo,
+    Long cantidadOrdenes,
+    BigDecimal total
+) {
+}
@@ -0,0 +1,14 @@
+package com.espe.compras.dto;
+
+import com.espe.compras.models.EstadoOrden;
+
+import java.util.List;
+
+public record ResultadoCambioEstadoLote(
+    EstadoOrden nuevoEstado,
+    List<Long> actualizadas,
+    List<Rechazo> rechazadas
+) {
+    public record Rechazo(Long id, String motivo) {
+    }
+}
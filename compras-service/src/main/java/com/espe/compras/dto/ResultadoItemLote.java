@@ -0,0 +1,17 @@
+package com.espe.compras.dto;
+
+public record ResultadoItemLote(
+    int indice,
+    String numeroFactura,
+    Long id,
+    boolean creada,
+    String error
+) {
+    public static ResultadoItemLote creada(int indice, String numeroFactura, Long id) {
+        return new ResultadoItemLote(indice, numeroFactura, id, true, null);
+    }
+
+    public static ResultadoItemLote rechazada(int indice, String numeroFactura, String error) {
+        return new ResultadoItemLote(indice, numeroFactura, null, false, error);
+    }
+}
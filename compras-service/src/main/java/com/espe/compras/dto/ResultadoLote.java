@@ -0,0 +1,13 @@
+package com.espe.compras.dto;
+
+import java.util.List;
+
+public record ResultadoLote(
+    int recibidas,
+    int creadas,
+    int rechazadas,
+    long duracionMs,
+    double ordenesPorSegundo,
+    List<ResultadoItemLote> resultados
+) {
+}
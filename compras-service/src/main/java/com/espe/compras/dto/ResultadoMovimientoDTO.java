@@ -0,0 +1,14 @@
+package com.espe.compras.dto;
+
+public record ResultadoMovimientoDTO(
+    String claveIdempotencia,
+    Long productoId,
+    Long bodegaId,
+    String estado,
+    Integer cantidadResultante,
+    String mensaje
+) {
+    public boolean rechazado() {
+        return "RECHAZADO".equals(estado);
+    }
+}
@@ -0,0 +1,14 @@
+package com.espe.compras.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record ResumenOrdenes(
+    Long pendientes,
+    Long enProceso,
+    Long completadas,
+    Long canceladas,
+    BigDecimal totalMes,
+    LocalDateTime actualizado
+) {
+}
@@ -0,0 +1,13 @@
+package com.espe.compras.dto;
+
+import java.math.BigDecimal;
+
+public record TotalesPeriodo(
+    Long cantidadOrdenes,
+    BigDecimal total
+) {
+    public TotalesPeriodo {
+        cantidadOrdenes = cantidadOrdenes != null ? cantidadOrdenes : 0L;
+        total = total != null ? total : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,17 @@
+package com.espe.compras.dto;
+
+import java.util.Locale;
+
+// Vista de los listados de órdenes: ?vista=resumen|completa
+public enum VistaOrden {
+    RESUMEN,
+    COMPLETA;
+
+    public static VistaOrden desde(String valor) {
+        try {
+            return valueOf(valor.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Vista no válida: " + valor + " (use resumen o completa)");
+        }
+    }
+}
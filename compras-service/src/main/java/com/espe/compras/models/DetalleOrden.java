@@ -1,16 +1,20 @@
 package com.espe.compras.models;
 
+import com.espe.compras.utils.Dinero;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "detalles_orden")
+@Table(name = "detalles_orden", indexes = {
+    @Index(name = "idx_detalles_orden_producto", columnList = "producto_id")
+})
 public class DetalleOrden {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "detalles_orden_seq")
+    @SequenceGenerator(name = "detalles_orden_seq", sequenceName = "detalles_orden_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -46,6 +50,16 @@ public class DetalleOrden {
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal subtotal;
     
+    // Valores de trabajo en centavos; las columnas DECIMAL se actualizan a partir de ellos
+    @Transient
+    private Dinero montoPrecio = Dinero.CERO;
+    
+    @Transient
+    private long descuentoCentesimas;
+    
+    @Transient
+    private Dinero montoSubtotal = Dinero.CERO;
+    
     // Constructores
     public DetalleOrden() {
         this.cantidad = 1;
@@ -102,6 +116,7 @@ public class DetalleOrden {
 
     public void setPrecioUnitario(BigDecimal precioUnitario) {
         this.precioUnitario = precioUnitario;
+        this.montoPrecio = precioUnitario != null ? Dinero.de(precioUnitario) : null;
         calcularSubtotal();
     }
 
@@ -111,6 +126,7 @@ public class DetalleOrden {
 
     public void setDescuento(BigDecimal descuento) {
         this.descuento = descuento != null ? descuento : BigDecimal.ZERO;
+        this.descuentoCentesimas = Dinero.centesimas(this.descuento);
         calcularSubtotal();
     }
 
@@ -120,31 +136,36 @@ public class DetalleOrden {
 
     public void setSubtotal(BigDecimal subtotal) {
         this.subtotal = subtotal;
+        this.montoSubtotal = Dinero.de(subtotal);
     }
     
     // Métodos de utilidad
     private void calcularSubtotal() {
-        if (precioUnitario != null && cantidad != null) {
-            BigDecimal cantidadBigDecimal = BigDecimal.valueOf(cantidad);
-            BigDecimal subtotalSinDescuento = precioUnitario.multiply(cantidadBigDecimal);
-            
-            if (descuento != null && descuento.compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal montoDescuento = subtotalSinDescuento.multiply(descuento.divide(BigDecimal.valueOf(100)));
-                this.subtotal = subtotalSinDescuento.subtract(montoDescuento);
-            } else {
-                this.subtotal = subtotalSinDescuento;
-            }
+        Dinero anterior = montoSubtotal;
+        recalcularSubtotal();
+        
+        // Trasladar a la orden sólo la variación de esta línea
+        if (ordenCompra != null && !anterior.equals(montoSubtotal)) {
+            ordenCompra.aplicarDiferencia(montoSubtotal.menos(anterior));
         }
     }
     
-    @PrePersist
-    @PreUpdate
-    private void actualizarCampos() {
-        calcularSubtotal();
-        
-        // Actualizar totales de la orden
-        if (ordenCompra != null) {
-            ordenCompra.actualizarTotales();
+    Dinero recalcularSubtotal() {
+        if (montoPrecio != null && cantidad != null) {
+            Dinero nuevo = montoPrecio.por(cantidad).descontar(descuentoCentesimas);
+            if (!nuevo.equals(montoSubtotal) || subtotal == null) {
+                this.montoSubtotal = nuevo;
+                this.subtotal = nuevo.aBigDecimal();
+            }
         }
+        return montoSubtotal;
+    }
+    
+    // Hibernate asigna las columnas directamente: reconstruir los valores en centavos
+    @PostLoad
+    private void cargarMontos() {
+        this.montoPrecio = precioUnitario != null ? Dinero.de(precioUnitario) : null;
+        this.descuentoCentesimas = descuento != null ? Dinero.centesimas(descuento) : 0;
+        this.montoSubtotal = Dinero.de(subtotal);
     }
 }
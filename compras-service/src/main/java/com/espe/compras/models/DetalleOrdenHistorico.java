@@ -0,0 +1,100 @@
+package com.espe.compras.models;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Línea de una orden archivada; lleva la fecha de emisión de su orden como clave de partición
+@Entity
+@Immutable
+@IdClass(DetalleOrdenHistorico.Clave.class)
+@Table(name = "detalles_orden_historico", indexes = {
+    @Index(name = "idx_detalles_historico_orden", columnList = "orden_compra_id"),
+    @Index(name = "idx_detalles_historico_producto", columnList = "producto_id")
+})
+public class DetalleOrdenHistorico {
+
+    @Id
+    private Long id;
+
+    @Id
+    @Column(name = "fecha_emision", nullable = false)
+    private LocalDateTime fechaEmision;
+
+    @Column(name = "orden_compra_id", nullable = false)
+    private Long ordenCompraId;
+
+    @Column(name = "producto_id", nullable = false)
+    private Long productoId;
+
+    @Column(name = "nombre_producto", nullable = false, length = 200)
+    private String nombreProducto;
+
+    @Column(nullable = false)
+    private Integer cantidad;
+
+    @Column(name = "precio_unitario", nullable = false, precision = 10, scale = 2)
+    private BigDecimal precioUnitario;
+
+    @Column(precision = 5, scale = 2)
+    private BigDecimal descuento;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal subtotal;
+
+    // Constructores
+    protected DetalleOrdenHistorico() {
+    }
+
+    DetalleOrden aDetalleOrden(OrdenCompra orden) {
+        DetalleOrden detalle = new DetalleOrden();
+        detalle.setId(id);
+        detalle.setProductoId(productoId);
+        detalle.setNombreProducto(nombreProducto);
+        detalle.setCantidad(cantidad);
+        detalle.setPrecioUnitario(precioUnitario);
+        detalle.setDescuento(descuento);
+        detalle.setSubtotal(subtotal);
+        detalle.setOrdenCompra(orden);
+        return detalle;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getOrdenCompraId() {
+        return ordenCompraId;
+    }
+
+    public static class Clave implements Serializable {
+
+        private Long id;
+        private LocalDateTime fechaEmision;
+
+        public Clave() {
+        }
+
+        public Clave(Long id, LocalDateTime fechaEmision) {
+            this.id = id;
+            this.fechaEmision = fechaEmision;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Clave otra)) return false;
+            return Objects.equals(id, otra.id) && Objects.equals(fechaEmision, otra.fechaEmision);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, fechaEmision);
+        }
+    }
+}
@@ -1,8 +1,41 @@
 package com.espe.compras.models;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum EstadoOrden {
     PENDIENTE,
     EN_PROCESO,
     COMPLETADA,
-    CANCELADA
+    CANCELADA;
+
+    // Tabla de transiciones permitidas y su inversa (predecesores), precalculadas
+    private static final Map<EstadoOrden, Set<EstadoOrden>> TRANSICIONES = new EnumMap<>(EstadoOrden.class);
+    private static final Map<EstadoOrden, Set<EstadoOrden>> PREDECESORES = new EnumMap<>(EstadoOrden.class);
+
+    static {
+        TRANSICIONES.put(PENDIENTE, EnumSet.of(EN_PROCESO, CANCELADA));
+        TRANSICIONES.put(EN_PROCESO, EnumSet.of(COMPLETADA, CANCELADA));
+        TRANSICIONES.put(COMPLETADA, EnumSet.noneOf(EstadoOrden.class)); // Estado final
+        TRANSICIONES.put(CANCELADA, EnumSet.noneOf(EstadoOrden.class));  // Estado final
+
+        for (EstadoOrden estado : values()) {
+            PREDECESORES.put(estado, EnumSet.noneOf(EstadoOrden.class));
+        }
+        TRANSICIONES.forEach((origen, destinos) ->
+            destinos.forEach(destino -> PREDECESORES.get(destino).add(origen)));
+        TRANSICIONES.replaceAll((estado, destinos) -> Collections.unmodifiableSet(destinos));
+        PREDECESORES.replaceAll((estado, origenes) -> Collections.unmodifiableSet(origenes));
+    }
+
+    public boolean puedeCambiarA(EstadoOrden nuevoEstado) {
+        return nuevoEstado != null && TRANSICIONES.get(this).contains(nuevoEstado);
+    }
+
+    public Set<EstadoOrden> predecesores() {
+        return PREDECESORES.get(this);
+    }
 }
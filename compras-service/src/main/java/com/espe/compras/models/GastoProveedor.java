@@ -0,0 +1,90 @@
+package com.espe.compras.models;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Proyección del gasto mensual por proveedor; se mantiene con upserts nativos en la
+// misma transacción que escribe las órdenes, por eso la entidad es de sólo lectura
+@Entity
+@Immutable
+@IdClass(GastoProveedor.Clave.class)
+@Table(name = "gasto_proveedor", indexes = {
+    @Index(name = "idx_gasto_proveedor_mes", columnList = "mes")
+})
+public class GastoProveedor {
+
+    @Id
+    @Column(name = "proveedor_id", nullable = false)
+    private Long proveedorId;
+
+    // Primer día del mes de emisión
+    @Id
+    @Column(nullable = false)
+    private LocalDate mes;
+
+    @Column(name = "cantidad_ordenes", nullable = false)
+    private Long cantidadOrdenes;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal total;
+
+    @Column(name = "fecha_ultima_orden")
+    private LocalDateTime fechaUltimaOrden;
+
+    // Constructores
+    protected GastoProveedor() {
+    }
+
+    // Getters
+    public Long getProveedorId() {
+        return proveedorId;
+    }
+
+    public LocalDate getMes() {
+        return mes;
+    }
+
+    public Long getCantidadOrdenes() {
+        return cantidadOrdenes;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public LocalDateTime getFechaUltimaOrden() {
+        return fechaUltimaOrden;
+    }
+
+    public static class Clave implements Serializable {
+
+        private Long proveedorId;
+        private LocalDate mes;
+
+        public Clave() {
+        }
+
+        public Clave(Long proveedorId, LocalDate mes) {
+            this.proveedorId = proveedorId;
+            this.mes = mes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Clave otra)) return false;
+            return Objects.equals(proveedorId, otra.proveedorId) && Objects.equals(mes, otra.mes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(proveedorId, mes);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.espe.compras.models;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Immutable
+@Table(name = "orden_estado_historial", indexes = {
+    @Index(name = "idx_historial_orden_fecha", columnList = "orden_compra_id, fecha_cambio")
+})
+public class HistorialEstadoOrden {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orden_estado_historial_seq")
+    @SequenceGenerator(name = "orden_estado_historial_seq", sequenceName = "orden_estado_historial_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "orden_compra_id", nullable = false, updatable = false)
+    private Long ordenCompraId;
+
+    // Nulo para el registro de creación de la orden
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado_anterior", updatable = false)
+    private EstadoOrden estadoAnterior;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado_nuevo", nullable = false, updatable = false)
+    private EstadoOrden estadoNuevo;
+
+    @Column(name = "fecha_cambio", nullable = false, updatable = false)
+    private LocalDateTime fechaCambio;
+
+    // Constructores
+    protected HistorialEstadoOrden() {
+    }
+
+    public HistorialEstadoOrden(Long ordenCompraId, EstadoOrden estadoAnterior, EstadoOrden estadoNuevo,
+                                LocalDateTime fechaCambio) {
+        this.ordenCompraId = ordenCompraId;
+        this.estadoAnterior = estadoAnterior;
+        this.estadoNuevo = estadoNuevo;
+        this.fechaCambio = fechaCambio;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getOrdenCompraId() {
+        return ordenCompraId;
+    }
+
+    public EstadoOrden getEstadoAnterior() {
+        return estadoAnterior;
+    }
+
+    public EstadoOrden getEstadoNuevo() {
+        return estadoNuevo;
+    }
+
+    public LocalDateTime getFechaCambio() {
+        return fechaCambio;
+    }
+}
@@ -1,5 +1,7 @@
 package com.espe.compras.models;
 
+import com.espe.compras.utils.Dinero;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
@@ -9,17 +11,24 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "ordenes_compra")
+@Table(name = "ordenes_compra", indexes = {
+    @Index(name = "idx_ordenes_compra_fecha_emision", columnList = "fecha_emision")
+})
 public class OrdenCompra {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ordenes_compra_seq")
+    @SequenceGenerator(name = "ordenes_compra_seq", sequenceName = "ordenes_compra_seq", allocationSize = 50)
     private Long id;
     
     @NotNull(message = "El ID del proveedor es obligatorio")
     @Column(name = "proveedor_id", nullable = false)
     private Long proveedorId;
     
+    // Bodega que recibe la mercadería al completar la orden (opcional)
+    @Column(name = "bodega_id")
+    private Long bodegaId;
+    
     @NotBlank(message = "El número de factura es obligatorio")
     @Size(max = 50, message = "El número de factura no puede exceder los 50 caracteres")
     @Column(name = "numero_factura", nullable = false, unique = true)
@@ -60,10 +69,20 @@ public class OrdenCompra {
     @Column(name = "fecha_actualizacion")
     private LocalDateTime fechaActualizacion;
     
+    // Las órdenes guardadas antes de incluir el descuento en el subtotal quedan en false hasta
+    // que se recalculan completas; mientras tanto no se les aplican diferencias por línea
+    @JsonIgnore
+    @Column(name = "totales_con_descuento", nullable = false, columnDefinition = "boolean not null default false")
+    private boolean totalesConDescuento = true;
+    
     @OneToMany(mappedBy = "ordenCompra", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonManagedReference
     private List<DetalleOrden> detalles = new ArrayList<>();
     
+    // Subtotal de trabajo en centavos; subtotal, iva y total se publican a partir de él
+    @Transient
+    private Dinero montoSubtotal = Dinero.CERO;
+    
     // Constructores
     public OrdenCompra() {
         this.fechaCreacion = LocalDateTime.now();
@@ -90,6 +109,14 @@ public class OrdenCompra {
         this.proveedorId = proveedorId;
     }
 
+    public Long getBodegaId() {
+        return bodegaId;
+    }
+
+    public void setBodegaId(Long bodegaId) {
+        this.bodegaId = bodegaId;
+    }
+
     public String getNumeroFactura() {
         return numeroFactura;
     }
@@ -120,6 +147,7 @@ public class OrdenCompra {
 
     public void setSubtotal(BigDecimal subtotal) {
         this.subtotal = subtotal;
+        this.montoSubtotal = Dinero.de(subtotal);
     }
 
     public BigDecimal getIva() {
@@ -178,25 +206,51 @@ public class OrdenCompra {
         this.detalles = detalles;
     }
     
+    public boolean isTotalesConDescuento() {
+        return totalesConDescuento;
+    }
+    
     // Métodos de utilidad
     public void agregarDetalle(DetalleOrden detalle) {
         detalles.add(detalle);
         detalle.setOrdenCompra(this);
-        actualizarTotales();
+        aplicarDiferencia(detalle.recalcularSubtotal());
     }
     
     public void eliminarDetalle(DetalleOrden detalle) {
-        detalles.remove(detalle);
+        if (detalles.remove(detalle)) {
+            aplicarDiferencia(Dinero.CERO.menos(detalle.recalcularSubtotal()));
+        }
         detalle.setOrdenCompra(null);
-        actualizarTotales();
     }
     
-    public void actualizarTotales() {
-        this.subtotal = detalles.stream()
-            .map(detalle -> detalle.getPrecioUnitario().multiply(BigDecimal.valueOf(detalle.getCantidad())))
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        this.total = subtotal.add(iva);
+    // Ajusta el subtotal con la variación del subtotal de una sola línea; el IVA y el total
+    // se publican después con aplicarIva
+    void aplicarDiferencia(Dinero diferencia) {
+        if (diferencia.centavos() != 0) {
+            this.montoSubtotal = montoSubtotal.mas(diferencia);
+            this.subtotal = montoSubtotal.aBigDecimal();
+        }
+    }
+    
+    // Recalcula los totales recorriendo todas las líneas (al crear o reemplazar las líneas,
+    // o la primera vez que se edita una orden anterior al subtotal con descuento)
+    public void actualizarTotales(long tasaIvaPartesPorMillon) {
+        Dinero suma = Dinero.CERO;
+        for (DetalleOrden detalle : detalles) {
+            suma = suma.mas(detalle.recalcularSubtotal());
+        }
+        this.montoSubtotal = suma;
+        this.totalesConDescuento = true;
+        aplicarIva(tasaIvaPartesPorMillon);
+    }
+    
+    // Publica subtotal, IVA y total a partir del subtotal en centavos
+    public void aplicarIva(long tasaIvaPartesPorMillon) {
+        Dinero montoIva = montoSubtotal.aplicarTasa(tasaIvaPartesPorMillon);
+        this.subtotal = montoSubtotal.aBigDecimal();
+        this.iva = montoIva.aBigDecimal();
+        this.total = montoSubtotal.mas(montoIva).aBigDecimal();
     }
     
     @PrePersist
@@ -208,6 +262,11 @@ public class OrdenCompra {
     @PreUpdate
     protected void onUpdate() {
         this.fechaActualizacion = LocalDateTime.now();
-        actualizarTotales();
+    }
+    
+    // Hibernate asigna las columnas directamente: reconstruir el subtotal en centavos
+    @PostLoad
+    protected void onLoad() {
+        this.montoSubtotal = Dinero.de(subtotal);
     }
 }
@@ -0,0 +1,143 @@
+package com.espe.compras.models;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+// Orden en estado terminal trasladada al archivo. La tabla está particionada por mes
+// de emisión (ver EsquemaArchivo), por eso la fecha forma parte de la clave primaria.
+@Entity
+@Immutable
+@IdClass(OrdenCompraHistorica.Clave.class)
+@Table(name = "ordenes_compra_historico", indexes = {
+    @Index(name = "idx_historico_orden_id", columnList = "id"),
+    @Index(name = "idx_historico_estado_id", columnList = "estado, id"),
+    @Index(name = "idx_historico_proveedor_id", columnList = "proveedor_id, id"),
+    @Index(name = "idx_historico_numero_factura", columnList = "numero_factura")
+})
+public class OrdenCompraHistorica {
+
+    @Id
+    private Long id;
+
+    @Id
+    @Column(name = "fecha_emision", nullable = false)
+    private LocalDateTime fechaEmision;
+
+    @Column(name = "proveedor_id", nullable = false)
+    private Long proveedorId;
+
+    @Column(name = "bodega_id")
+    private Long bodegaId;
+
+    @Column(name = "numero_factura", nullable = false, length = 50)
+    private String numeroFactura;
+
+    @Column(name = "fecha_entrega")
+    private LocalDateTime fechaEntrega;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal subtotal;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal iva;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal total;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoOrden estado;
+
+    @Column(length = 500)
+    private String observaciones;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime fechaActualizacion;
+
+    // Constructores
+    protected OrdenCompraHistorica() {
+    }
+
+    // Copia de sólo lectura con la forma de una orden activa, para las respuestas de la API
+    public OrdenCompra aOrdenCompra(List<DetalleOrdenHistorico> detalles) {
+        OrdenCompra orden = new OrdenCompra();
+        orden.setId(id);
+        orden.setProveedorId(proveedorId);
+        orden.setBodegaId(bodegaId);
+        orden.setNumeroFactura(numeroFactura);
+        orden.setFechaEmision(fechaEmision);
+        orden.setFechaEntrega(fechaEntrega);
+        orden.setEstado(estado);
+        orden.setObservaciones(observaciones);
+        orden.setFechaCreacion(fechaCreacion);
+        orden.setFechaActualizacion(fechaActualizacion);
+        for (DetalleOrdenHistorico detalle : detalles) {
+            orden.getDetalles().add(detalle.aDetalleOrden(orden));
+        }
+        // Se conservan los importes registrados aunque la tasa de IVA haya cambiado
+        orden.setSubtotal(subtotal);
+        orden.setIva(iva);
+        orden.setTotal(total);
+        return orden;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDateTime getFechaEmision() {
+        return fechaEmision;
+    }
+
+    public Long getProveedorId() {
+        return proveedorId;
+    }
+
+    public String getNumeroFactura() {
+        return numeroFactura;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public EstadoOrden getEstado() {
+        return estado;
+    }
+
+    public static class Clave implements Serializable {
+
+        private Long id;
+        private LocalDateTime fechaEmision;
+
+        public Clave() {
+        }
+
+        public Clave(Long id, LocalDateTime fechaEmision) {
+            this.id = id;
+            this.fechaEmision = fechaEmision;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Clave otra)) return false;
+            return Objects.equals(id, otra.id) && Objects.equals(fechaEmision, otra.fechaEmision);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, fechaEmision);
+        }
+    }
+}
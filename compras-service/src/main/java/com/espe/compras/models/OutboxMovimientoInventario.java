@@ -0,0 +1,161 @@
+package com.espe.compras.models;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Movimiento de stock pendiente de enviar a inventario-service (patrón outbox)
+@Entity
+@Table(name = "outbox_movimientos_inventario", indexes = {
+    @Index(name = "idx_outbox_estado_proximo_intento", columnList = "estado, proximo_intento")
+})
+public class OutboxMovimientoInventario {
+
+    public enum Estado {
+        PENDIENTE,
+        ENVIADO,
+        RECHAZADO
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_movimientos_inventario_seq")
+    @SequenceGenerator(name = "outbox_movimientos_inventario_seq",
+                       sequenceName = "outbox_movimientos_inventario_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "clave_idempotencia", nullable = false, unique = true, length = 100)
+    private String claveIdempotencia;
+
+    @Column(name = "orden_compra_id", nullable = false)
+    private Long ordenCompraId;
+
+    @Column(name = "detalle_orden_id", nullable = false)
+    private Long detalleOrdenId;
+
+    @Column(name = "producto_id", nullable = false)
+    private Long productoId;
+
+    @Column(name = "bodega_id", nullable = false)
+    private Long bodegaId;
+
+    @Column(nullable = false)
+    private Integer cantidad;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Estado estado = Estado.PENDIENTE;
+
+    @Column(nullable = false)
+    private Integer intentos = 0;
+
+    @Column(name = "proximo_intento", nullable = false)
+    private LocalDateTime proximoIntento;
+
+    @Column(name = "ultimo_error", length = 500)
+    private String ultimoError;
+
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_envio")
+    private LocalDateTime fechaEnvio;
+
+    // Constructores
+    protected OutboxMovimientoInventario() {
+    }
+
+    public OutboxMovimientoInventario(Long ordenCompraId, Long detalleOrdenId, Long productoId,
+                                      Long bodegaId, Integer cantidad) {
+        this.claveIdempotencia = "orden-" + ordenCompraId + "-detalle-" + detalleOrdenId;
+        this.ordenCompraId = ordenCompraId;
+        this.detalleOrdenId = detalleOrdenId;
+        this.productoId = productoId;
+        this.bodegaId = bodegaId;
+        this.cantidad = cantidad;
+        this.fechaCreacion = LocalDateTime.now();
+        this.proximoIntento = this.fechaCreacion;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public String getClaveIdempotencia() {
+        return claveIdempotencia;
+    }
+
+    public Long getOrdenCompraId() {
+        return ordenCompraId;
+    }
+
+    public Long getDetalleOrdenId() {
+        return detalleOrdenId;
+    }
+
+    public Long getProductoId() {
+        return productoId;
+    }
+
+    public Long getBodegaId() {
+        return bodegaId;
+    }
+
+    public Integer getCantidad() {
+        return cantidad;
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    public Integer getIntentos() {
+        return intentos;
+    }
+
+    public LocalDateTime getProximoIntento() {
+        return proximoIntento;
+    }
+
+    public String getUltimoError() {
+        return ultimoError;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public LocalDateTime getFechaEnvio() {
+        return fechaEnvio;
+    }
+
+    // Métodos de utilidad
+    public void marcarEnviado() {
+        this.estado = Estado.ENVIADO;
+        this.fechaEnvio = LocalDateTime.now();
+        this.ultimoError = null;
+    }
+
+    public void marcarRechazado(String motivo) {
+        this.estado = Estado.RECHAZADO;
+        this.ultimoError = recortar(motivo);
+    }
+
+    // Reserva el movimiento para un despachador mientras la llamada a inventario está en curso
+    public void arrendarHasta(LocalDateTime vencimiento) {
+        this.proximoIntento = vencimiento;
+    }
+
+    public void programarReintento(String error, LocalDateTime proximoIntento, int maxIntentos) {
+        this.intentos++;
+        this.ultimoError = recortar(error);
+        this.proximoIntento = proximoIntento;
+        if (this.intentos >= maxIntentos) {
+            this.estado = Estado.RECHAZADO;
+        }
+    }
+
+    private static String recortar(String texto) {
+        return texto != null && texto.length() > 500 ? texto.substring(0, 500) : texto;
+    }
+}
@@ -0,0 +1,48 @@
+package com.espe.compras.repositories;
+
+import com.espe.compras.dto.EstadisticaProductoDTO;
+import com.espe.compras.models.DetalleOrdenHistorico;
+import com.espe.compras.models.EstadoOrden;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DetalleOrdenHistoricoRepository
+        extends JpaRepository<DetalleOrdenHistorico, DetalleOrdenHistorico.Clave> {
+
+    // Cargar las líneas de una página de órdenes archivadas en una sola consulta
+    List<DetalleOrdenHistorico> findByOrdenCompraIdInOrderByIdAsc(Collection<Long> ordenCompraIds);
+
+    // Estadísticas por producto sobre las líneas archivadas (equivalentes a las de DetalleOrdenRepository)
+    @Query("SELECT new com.espe.compras.dto.EstadisticaProductoDTO(d.productoId, SUM(d.cantidad), SUM(d.subtotal), COUNT(d)) " +
+           "FROM DetalleOrdenHistorico d JOIN OrdenCompraHistorica o ON o.id = d.ordenCompraId AND o.fechaEmision = d.fechaEmision " +
+           "WHERE d.productoId > :after " +
+           "AND (:fechaInicio IS NULL OR d.fechaEmision >= :fechaInicio) AND (:fechaFin IS NULL OR d.fechaEmision <= :fechaFin) " +
+           "AND (:estado IS NULL OR o.estado = :estado) " +
+           "GROUP BY d.productoId ORDER BY d.productoId")
+    List<EstadisticaProductoDTO> sumarPorProducto(
+            @Param("after") Long after,
+            @Param("fechaInicio") LocalDateTime fechaInicio,
+            @Param("fechaFin") LocalDateTime fechaFin,
+            @Param("estado") EstadoOrden estado,
+            Limit limit);
+
+    @Query("SELECT new com.espe.compras.dto.EstadisticaProductoDTO(d.productoId, SUM(d.cantidad), SUM(d.subtotal), COUNT(d)) " +
+           "FROM DetalleOrdenHistorico d JOIN OrdenCompraHistorica o ON o.id = d.ordenCompraId AND o.fechaEmision = d.fechaEmision " +
+           "WHERE d.productoId IN :productoIds " +
+           "AND (:fechaInicio IS NULL OR d.fechaEmision >= :fechaInicio) AND (:fechaFin IS NULL OR d.fechaEmision <= :fechaFin) " +
+           "AND (:estado IS NULL OR o.estado = :estado) " +
+           "GROUP BY d.productoId")
+    List<EstadisticaProductoDTO> sumarPorProductoIdIn(
+            @Param("productoIds") Collection<Long> productoIds,
+            @Param("fechaInicio") LocalDateTime fechaInicio,
+            @Param("fechaFin") LocalDateTime fechaFin,
+            @Param("estado") EstadoOrden estado);
+}
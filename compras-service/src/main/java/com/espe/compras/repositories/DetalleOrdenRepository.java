@@ -1,13 +1,18 @@
 package com.espe.compras.repositories;
 
+import com.espe.compras.dto.EstadisticaProductoDTO;
 import com.espe.compras.models.DetalleOrden;
+import com.espe.compras.models.EstadoOrden;
 import com.espe.compras.models.OrdenCompra;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -19,13 +24,44 @@ public interface DetalleOrdenRepository extends JpaRepository<DetalleOrden, Long
     // Buscar detalles por producto
     List<DetalleOrden> findByProductoId(Long productoId);
     
-    // Obtener el total de ventas por producto
-    @Query("SELECT SUM(d.cantidad) FROM DetalleOrden d WHERE d.productoId = :productoId")
-    Integer sumCantidadByProductoId(@Param("productoId") Long productoId);
+    // Cantidad comprada y gasto por producto en un solo GROUP BY, paginado por cursor sobre productoId
+    // (filtros opcionales por fecha de emisión y estado de la orden)
+    @Query("SELECT new com.espe.compras.dto.EstadisticaProductoDTO(d.productoId, SUM(d.cantidad), SUM(d.subtotal), COUNT(d)) " +
+           "FROM DetalleOrden d JOIN d.ordenCompra o WHERE d.productoId > :after " +
+           "AND (:fechaInicio IS NULL OR o.fechaEmision >= :fechaInicio) AND (:fechaFin IS NULL OR o.fechaEmision <= :fechaFin) " +
+           "AND (:estado IS NULL OR o.estado = :estado) " +
+           "GROUP BY d.productoId ORDER BY d.productoId")
+    List<EstadisticaProductoDTO> sumarPorProducto(
+            @Param("after") Long after,
+            @Param("fechaInicio") LocalDateTime fechaInicio,
+            @Param("fechaFin") LocalDateTime fechaFin,
+            @Param("estado") EstadoOrden estado,
+            Limit limit);
     
-    // Obtener el monto total de ventas por producto
-    @Query("SELECT SUM(d.subtotal) FROM DetalleOrden d WHERE d.productoId = :productoId")
-    BigDecimal sumSubtotalByProductoId(@Param("productoId") Long productoId);
+    // Lo mismo para un conjunto de productos
+    @Query("SELECT new com.espe.compras.dto.EstadisticaProductoDTO(d.productoId, SUM(d.cantidad), SUM(d.subtotal), COUNT(d)) " +
+           "FROM DetalleOrden d JOIN d.ordenCompra o WHERE d.productoId IN :productoIds " +
+           "AND (:fechaInicio IS NULL OR o.fechaEmision >= :fechaInicio) AND (:fechaFin IS NULL OR o.fechaEmision <= :fechaFin) " +
+           "AND (:estado IS NULL OR o.estado = :estado) " +
+           "GROUP BY d.productoId")
+    List<EstadisticaProductoDTO> sumarPorProductoIdIn(
+            @Param("productoIds") Collection<Long> productoIds,
+            @Param("fechaInicio") LocalDateTime fechaInicio,
+            @Param("fechaFin") LocalDateTime fechaFin,
+            @Param("estado") EstadoOrden estado);
+    
+    // Cargar las líneas de un bloque de órdenes en una sola consulta
+    List<DetalleOrden> findByOrdenCompraIdInOrderByIdAsc(Collection<Long> ordenCompraIds);
+    
+    // Líneas a recibir en inventario para un conjunto de órdenes: [ordenId, detalleId, productoId, cantidad, bodegaId]
+    @Query("SELECT d.ordenCompra.id, d.id, d.productoId, d.cantidad, d.ordenCompra.bodegaId " +
+           "FROM DetalleOrden d WHERE d.ordenCompra.id IN :ordenIds")
+    List<Object[]> findLineasRecepcionByOrdenIdIn(@Param("ordenIds") Collection<Long> ordenIds);
+    
+    // Eliminar las líneas de un bloque de órdenes ya copiadas al archivo
+    @Modifying
+    @Query("DELETE FROM DetalleOrden d WHERE d.ordenCompra.id IN :ordenIds")
+    int deleteByOrdenCompraIdIn(@Param("ordenIds") Collection<Long> ordenIds);
     
     // Verificar si un producto está siendo usado en alguna orden
     boolean existsByProductoId(Long productoId);
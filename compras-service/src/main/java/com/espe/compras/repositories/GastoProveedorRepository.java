@@ -0,0 +1,74 @@
+package com.espe.compras.repositories;
+
+import com.espe.compras.dto.GastoProveedorDTO;
+import com.espe.compras.models.GastoProveedor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface GastoProveedorRepository extends JpaRepository<GastoProveedor, GastoProveedor.Clave> {
+
+    // Acumular una variación en el mes del proveedor, creando la fila si no existe
+    @Modifying
+    @Query(value = "INSERT INTO gasto_proveedor (proveedor_id, mes, cantidad_ordenes, total, fecha_ultima_orden) " +
+                   "VALUES (:proveedorId, :mes, :cantidad, :total, :fechaOrden) " +
+                   "ON DUPLICATE KEY UPDATE cantidad_ordenes = cantidad_ordenes + VALUES(cantidad_ordenes), " +
+                   "total = total + VALUES(total), " +
+                   "fecha_ultima_orden = GREATEST(COALESCE(fecha_ultima_orden, VALUES(fecha_ultima_orden)), " +
+                   "COALESCE(VALUES(fecha_ultima_orden), fecha_ultima_orden))", nativeQuery = true)
+    void acumular(
+            @Param("proveedorId") Long proveedorId,
+            @Param("mes") LocalDate mes,
+            @Param("cantidad") long cantidad,
+            @Param("total") BigDecimal total,
+            @Param("fechaOrden") LocalDateTime fechaOrden
+    );
+
+    // Reconstruir la proyección completa a partir de las órdenes activas y archivadas. Si una
+    // creación concurrente ya insertó la fila del mes, se reemplaza por el valor recalculado (que
+    // incluye esa orden) en lugar de sumarse a ella; las órdenes confirmadas después se acumulan encima
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO gasto_proveedor (proveedor_id, mes, cantidad_ordenes, total, fecha_ultima_orden) " +
+                   "SELECT proveedor_id, DATE(fecha_emision) - INTERVAL (DAYOFMONTH(fecha_emision) - 1) DAY AS mes, " +
+                   "COUNT(*), SUM(total), MAX(fecha_emision) FROM ordenes_compra_todas GROUP BY proveedor_id, mes " +
+                   "ON DUPLICATE KEY UPDATE cantidad_ordenes = VALUES(cantidad_ordenes), total = VALUES(total), " +
+                   "fecha_ultima_orden = VALUES(fecha_ultima_orden)",
+           nativeQuery = true)
+    int poblarDesdeOrdenes();
+
+    // Proveedores con mayor gasto en un rango de meses
+    @Query("SELECT new com.espe.compras.dto.GastoProveedorDTO(g.proveedorId, SUM(g.cantidadOrdenes), SUM(g.total), " +
+           "MAX(g.fechaUltimaOrden)) FROM GastoProveedor g WHERE g.mes BETWEEN :desde AND :hasta " +
+           "GROUP BY g.proveedorId ORDER BY SUM(g.total) DESC, g.proveedorId")
+    List<GastoProveedorDTO> findTopByMesBetween(
+            @Param("desde") LocalDate desde,
+            @Param("hasta") LocalDate hasta,
+            Limit limit
+    );
+
+    // Gasto de un conjunto de proveedores en un rango de meses
+    @Query("SELECT new com.espe.compras.dto.GastoProveedorDTO(g.proveedorId, SUM(g.cantidadOrdenes), SUM(g.total), " +
+           "MAX(g.fechaUltimaOrden)) FROM GastoProveedor g " +
+           "WHERE g.proveedorId IN :ids AND g.mes BETWEEN :desde AND :hasta GROUP BY g.proveedorId")
+    List<GastoProveedorDTO> findByProveedorIdInAndMesBetween(
+            @Param("ids") Collection<Long> ids,
+            @Param("desde") LocalDate desde,
+            @Param("hasta") LocalDate hasta
+    );
+
+    // Total histórico de compras de un proveedor
+    @Query("SELECT SUM(g.total) FROM GastoProveedor g WHERE g.proveedorId = :proveedorId")
+    BigDecimal sumTotalByProveedorId(@Param("proveedorId") Long proveedorId);
+}
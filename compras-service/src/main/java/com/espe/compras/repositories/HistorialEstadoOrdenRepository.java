@@ -0,0 +1,22 @@
+package com.espe.compras.repositories;
+
+import com.espe.compras.models.HistorialEstadoOrden;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface HistorialEstadoOrdenRepository extends JpaRepository<HistorialEstadoOrden, Long> {
+
+    // Historial de estados de una orden en orden cronológico
+    List<HistorialEstadoOrden> findByOrdenCompraIdOrderByFechaCambioAscIdAsc(Long ordenCompraId);
+
+    // Borrar el historial de una orden eliminada; nativa porque la entidad es inmutable
+    @Modifying
+    @Query(value = "DELETE FROM orden_estado_historial WHERE orden_compra_id = :ordenCompraId", nativeQuery = true)
+    int deleteByOrdenCompraId(@Param("ordenCompraId") Long ordenCompraId);
+}
@@ -0,0 +1,145 @@
+package com.espe.compras.repositories;
+
+import com.espe.compras.models.EstadoOrden;
+import com.espe.compras.models.OrdenCompraHistorica;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+public interface OrdenCompraHistoricaRepository
+        extends JpaRepository<OrdenCompraHistorica, OrdenCompraHistorica.Clave> {
+
+    // Buscar una orden archivada por id (la clave primaria incluye la fecha de emisión)
+    Optional<OrdenCompraHistorica> findFirstById(Long id);
+
+    List<OrdenCompraHistorica> findByIdIn(Collection<Long> ids);
+
+    // Orden archivada con la fecha de emisión más reciente (límite del enrutamiento por fechas)
+    Optional<OrdenCompraHistorica> findFirstByOrderByFechaEmisionDesc();
+
+    // Listados paginados por cursor (id > after), equivalentes a los de OrdenCompraRepository
+    List<OrdenCompraHistorica> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+    List<OrdenCompraHistorica> findByEstadoAndIdGreaterThanOrderByIdAsc(EstadoOrden estado, Long after, Limit limit);
+
+    List<OrdenCompraHistorica> findByProveedorIdAndIdGreaterThanOrderByIdAsc(Long proveedorId, Long after, Limit limit);
+
+    List<OrdenCompraHistorica> findByFechaEmisionBetweenAndIdGreaterThanOrderByIdAsc(
+            LocalDateTime fechaInicio, LocalDateTime fechaFin, Long after, Limit limit);
+
+    List<OrdenCompraHistorica> findByNumeroFacturaContainingIgnoreCaseAndIdGreaterThanOrderByIdAsc(
+            String numeroFactura, Long after, Limit limit);
+
+    // Proyecciones dinámicas de los listados (p. ej. OrdenCompraResumen): un solo SELECT de las columnas del tipo
+    <T> List<T> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit, Class<T> tipo);
+
+    <T> List<T> findByEstadoAndIdGreaterThanOrderByIdAsc(EstadoOrden estado, Long after, Limit limit, Class<T> tipo);
+
+    <T> List<T> findByProveedorIdAndIdGreaterThanOrderByIdAsc(Long proveedorId, Long after, Limit limit, Class<T> tipo);
+
+    <T> List<T> findByFechaEmisionBetweenAndIdGreaterThanOrderByIdAsc(
+            LocalDateTime fechaInicio, LocalDateTime fechaFin, Long after, Limit limit, Class<T> tipo);
+
+    <T> List<T> findByNumeroFacturaContainingIgnoreCaseAndIdGreaterThanOrderByIdAsc(
+            String numeroFactura, Long after, Limit limit, Class<T> tipo);
+
+    <T> List<T> findByIdIn(Collection<Long> ids, Class<T> tipo);
+
+    // Recorrido de sólo avance para exportaciones (ver OrdenCompraRepository)
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE,
+                           value = "" + OrdenCompraRepository.FETCH_SIZE_EXPORTACION))
+    Stream<OrdenCompraHistorica> streamByFechaEmisionBetweenOrderByIdAsc(LocalDateTime fechaInicio, LocalDateTime fechaFin);
+
+    // Unicidad de números de factura sobre las órdenes archivadas
+    boolean existsByNumeroFactura(String numeroFactura);
+
+    @Query("SELECT o.numeroFactura FROM OrdenCompraHistorica o WHERE o.numeroFactura IN :numeros")
+    List<String> findNumerosFacturaExistentes(@Param("numeros") Collection<String> numeros);
+
+    // Recorrer los números de factura archivados paginados por cursor: [id, numeroFactura]
+    @Query("SELECT o.id, o.numeroFactura FROM OrdenCompraHistorica o WHERE o.id > :after ORDER BY o.id")
+    List<Object[]> findNumerosFacturaByIdGreaterThan(@Param("after") Long after, Limit limit);
+
+    Long countByEstado(EstadoOrden estado);
+
+    // Contar órdenes archivadas por estado: [estado, cantidad]
+    @Query("SELECT o.estado, COUNT(o) FROM OrdenCompraHistorica o GROUP BY o.estado")
+    List<Object[]> countGroupByEstado();
+
+    // Copiar un bloque de órdenes activas al archivo
+    @Modifying
+    @Query(value = "INSERT INTO ordenes_compra_historico (id, proveedor_id, bodega_id, numero_factura, fecha_emision, " +
+                   "fecha_entrega, subtotal, iva, total, estado, observaciones, fecha_creacion, fecha_actualizacion) " +
+                   "SELECT id, proveedor_id, bodega_id, numero_factura, fecha_emision, fecha_entrega, subtotal, iva, " +
+                   "total, estado, observaciones, fecha_creacion, fecha_actualizacion FROM ordenes_compra " +
+                   "WHERE id IN (:ids)", nativeQuery = true)
+    int copiarOrdenes(@Param("ids") Collection<Long> ids);
+
+    // Copiar las líneas de un bloque de órdenes activas al archivo
+    @Modifying
+    @Query(value = "INSERT INTO detalles_orden_historico (id, fecha_emision, orden_compra_id, producto_id, " +
+                   "nombre_producto, cantidad, precio_unitario, descuento, subtotal) " +
+                   "SELECT d.id, o.fecha_emision, d.orden_compra_id, d.producto_id, d.nombre_producto, d.cantidad, " +
+                   "d.precio_unitario, d.descuento, d.subtotal FROM detalles_orden d " +
+                   "JOIN ordenes_compra o ON o.id = d.orden_compra_id WHERE d.orden_compra_id IN (:ids)",
+           nativeQuery = true)
+    int copiarDetalles(@Param("ids") Collection<Long> ids);
+
+    // Conteo por estado de órdenes activas y archivadas y total emitido en el rango, leídos en
+    // una sola sentencia para que salgan de la misma instantánea: [estado, cantidad, total del rango]
+    @Query(value = "SELECT estado, COUNT(*), " +
+                   "COALESCE(SUM(CASE WHEN fecha_emision BETWEEN :fechaInicio AND :fechaFin THEN total END), 0) " +
+                   "FROM ordenes_compra_todas GROUP BY estado", nativeQuery = true)
+    List<Object[]> resumirUnificadoPorEstado(
+            @Param("fechaInicio") LocalDateTime fechaInicio,
+            @Param("fechaFin") LocalDateTime fechaFin
+    );
+
+    // Reportes sobre la vista unificada (órdenes activas y archivadas): [cantidad, total]
+    @Query(value = "SELECT COUNT(*), SUM(total) FROM ordenes_compra_todas " +
+                   "WHERE fecha_emision BETWEEN :fechaInicio AND :fechaFin", nativeQuery = true)
+    List<Object[]> sumTotalesUnificadoByFechaEmisionBetween(
+            @Param("fechaInicio") LocalDateTime fechaInicio,
+            @Param("fechaFin") LocalDateTime fechaFin
+    );
+
+    // Serie temporal unificada agrupada por día: [periodo, cantidad, total]
+    @Query(value = "SELECT DATE(fecha_emision) AS periodo, COUNT(*), SUM(total) FROM ordenes_compra_todas " +
+                   "WHERE fecha_emision BETWEEN :fechaInicio AND :fechaFin " +
+                   "GROUP BY periodo ORDER BY periodo", nativeQuery = true)
+    List<Object[]> sumTotalesUnificadoPorDia(
+            @Param("fechaInicio") LocalDateTime fechaInicio,
+            @Param("fechaFin") LocalDateTime fechaFin
+    );
+
+    // Serie temporal unificada agrupada por semana (iniciando en lunes): [periodo, cantidad, total]
+    @Query(value = "SELECT DATE(fecha_emision) - INTERVAL WEEKDAY(fecha_emision) DAY AS periodo, COUNT(*), SUM(total) " +
+                   "FROM ordenes_compra_todas WHERE fecha_emision BETWEEN :fechaInicio AND :fechaFin " +
+                   "GROUP BY periodo ORDER BY periodo", nativeQuery = true)
+    List<Object[]> sumTotalesUnificadoPorSemana(
+            @Param("fechaInicio") LocalDateTime fechaInicio,
+            @Param("fechaFin") LocalDateTime fechaFin
+    );
+
+    // Serie temporal unificada agrupada por mes: [periodo, cantidad, total]
+    @Query(value = "SELECT DATE(fecha_emision) - INTERVAL (DAYOFMONTH(fecha_emision) - 1) DAY AS periodo, COUNT(*), SUM(total) " +
+                   "FROM ordenes_compra_todas WHERE fecha_emision BETWEEN :fechaInicio AND :fechaFin " +
+                   "GROUP BY periodo ORDER BY periodo", nativeQuery = true)
+    List<Object[]> sumTotalesUnificadoPorMes(
+            @Param("fechaInicio") LocalDateTime fechaInicio,
+            @Param("fechaFin") LocalDateTime fechaFin
+    );
+}
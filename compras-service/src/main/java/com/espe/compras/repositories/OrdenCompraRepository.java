@@ -1,39 +1,165 @@
 package com.espe.compras.repositories;
 
+import com.espe.compras.dto.TotalesPeriodo;
 import com.espe.compras.models.OrdenCompra;
 import com.espe.compras.models.EstadoOrden;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrdenCompraRepository extends JpaRepository<OrdenCompra, Long> {
-    
+
+    // Con Integer.MIN_VALUE el driver de MySQL entrega las filas una a una según llegan, sin
+    // cargar el resultado completo ni activar cursores del servidor para todo el pool
+    int FETCH_SIZE_EXPORTACION = Integer.MIN_VALUE;
+
+    // Listar órdenes paginadas por cursor (id > after)
+    List<OrdenCompra> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
     // Buscar órdenes por estado
-    List<OrdenCompra> findByEstado(EstadoOrden estado);
-    
+    List<OrdenCompra> findByEstadoAndIdGreaterThanOrderByIdAsc(EstadoOrden estado, Long after, Limit limit);
+
     // Buscar órdenes por proveedor
-    List<OrdenCompra> findByProveedorId(Long proveedorId);
-    
-    // Buscar órdenes por rango de fechas
-    @Query("SELECT o FROM OrdenCompra o WHERE o.fechaEmision BETWEEN :fechaInicio AND :fechaFin")
-    List<OrdenCompra> findByFechaEmisionBetween(
+    List<OrdenCompra> findByProveedorIdAndIdGreaterThanOrderByIdAsc(Long proveedorId, Long after, Limit limit);
+
+    // Buscar órdenes por rango de fechas paginadas por cursor
+    List<OrdenCompra> findByFechaEmisionBetweenAndIdGreaterThanOrderByIdAsc(
+            LocalDateTime fechaInicio, LocalDateTime fechaFin, Long after, Limit limit);
+
+    // Verificar existencia exacta de un número de factura (usa el índice único)
+    boolean existsByNumeroFactura(String numeroFactura);
+
+    // Obtener, de un conjunto de números de factura, los que ya existen
+    @Query("SELECT o.numeroFactura FROM OrdenCompra o WHERE o.numeroFactura IN :numeros")
+    List<String> findNumerosFacturaExistentes(@Param("numeros") Collection<String> numeros);
+
+    // Proveedor actual de una orden, sin cargar la entidad
+    @Query("SELECT o.proveedorId FROM OrdenCompra o WHERE o.id = :id")
+    Optional<Long> findProveedorIdById(@Param("id") Long id);
+
+    // Recorrer los números de factura paginados por cursor: [id, numeroFactura]
+    @Query("SELECT o.id, o.numeroFactura FROM OrdenCompra o WHERE o.id > :after ORDER BY o.id")
+    List<Object[]> findNumerosFacturaByIdGreaterThan(@Param("after") Long after, Limit limit);
+
+    // Buscar órdenes por número de factura (búsqueda insensible a mayúsculas) paginadas por cursor
+    List<OrdenCompra> findByNumeroFacturaContainingIgnoreCaseAndIdGreaterThanOrderByIdAsc(
+            String numeroFactura, Long after, Limit limit);
+
+    // Proyecciones dinámicas de los listados (p. ej. OrdenCompraResumen): un solo SELECT de las columnas del tipo
+    <T> List<T> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit, Class<T> tipo);
+
+    <T> List<T> findByEstadoAndIdGreaterThanOrderByIdAsc(EstadoOrden estado, Long after, Limit limit, Class<T> tipo);
+
+    <T> List<T> findByProveedorIdAndIdGreaterThanOrderByIdAsc(Long proveedorId, Long after, Limit limit, Class<T> tipo);
+
+    <T> List<T> findByFechaEmisionBetweenAndIdGreaterThanOrderByIdAsc(
+            LocalDateTime fechaInicio, LocalDateTime fechaFin, Long after, Limit limit, Class<T> tipo);
+
+    <T> List<T> findByNumeroFacturaContainingIgnoreCaseAndIdGreaterThanOrderByIdAsc(
+            String numeroFactura, Long after, Limit limit, Class<T> tipo);
+
+    <T> List<T> findByIdIn(Collection<Long> ids, Class<T> tipo);
+
+    // Recorrido de sólo avance para exportaciones: mientras el resultado está abierto la conexión
+    // no admite otras sentencias, así que las consultas auxiliares deben ir por otra conexión
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + FETCH_SIZE_EXPORTACION))
+    Stream<OrdenCompra> streamByFechaEmisionBetweenOrderByIdAsc(LocalDateTime fechaInicio, LocalDateTime fechaFin);
+
+    // Cargar los detalles de una página de órdenes en una sola consulta
+    @Query("SELECT DISTINCT o FROM OrdenCompra o LEFT JOIN FETCH o.detalles WHERE o.id IN :ids")
+    List<OrdenCompra> fetchDetallesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Contar órdenes por estado
+    Long countByEstado(EstadoOrden estado);
+
+    // Contar órdenes de todos los estados en una sola consulta: [estado, cantidad]
+    @Query("SELECT o.estado, COUNT(o) FROM OrdenCompra o GROUP BY o.estado")
+    List<Object[]> countGroupByEstado();
+
+    // Órdenes en estado terminal anteriores al corte, candidatas a archivarse
+    @Query("SELECT o.id FROM OrdenCompra o WHERE o.estado IN :estados AND o.fechaEmision < :corte ORDER BY o.id")
+    List<Long> findIdsArchivables(
+            @Param("estados") Collection<EstadoOrden> estados,
+            @Param("corte") LocalDateTime corte,
+            Limit limit
+    );
+
+    // Rango de fechas de emisión de un bloque de órdenes: [mínima, máxima]
+    @Query("SELECT MIN(o.fechaEmision), MAX(o.fechaEmision) FROM OrdenCompra o WHERE o.id IN :ids")
+    List<Object[]> findRangoFechasByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Eliminar un bloque de órdenes ya copiadas al archivo
+    @Modifying
+    @Query("DELETE FROM OrdenCompra o WHERE o.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Obtener cantidad y monto total de órdenes en un rango de fechas
+    @Query("SELECT new com.espe.compras.dto.TotalesPeriodo(COUNT(o), SUM(o.total)) FROM OrdenCompra o " +
+           "WHERE o.fechaEmision BETWEEN :fechaInicio AND :fechaFin")
+    TotalesPeriodo sumTotalesByFechaEmisionBetween(
             @Param("fechaInicio") LocalDateTime fechaInicio,
             @Param("fechaFin") LocalDateTime fechaFin
     );
-    
-    // Buscar órdenes por número de factura (búsqueda insensible a mayúsculas)
-    List<OrdenCompra> findByNumeroFacturaContainingIgnoreCase(String numeroFactura);
-    
-    // Contar órdenes por estado
-    Long countByEstado(EstadoOrden estado);
-    
-    // Obtener el total de compras por proveedor
-    @Query("SELECT SUM(o.total) FROM OrdenCompra o WHERE o.proveedorId = :proveedorId")
-    BigDecimal sumTotalByProveedorId(@Param("proveedorId") Long proveedorId);
+
+    // Serie temporal agrupada por día: [periodo, cantidad, total]
+    @Query(value = "SELECT DATE(fecha_emision) AS periodo, COUNT(*), SUM(total) FROM ordenes_compra " +
+                   "WHERE fecha_emision BETWEEN :fechaInicio AND :fechaFin " +
+                   "GROUP BY periodo ORDER BY periodo", nativeQuery = true)
+    List<Object[]> sumTotalesPorDia(
+            @Param("fechaInicio") LocalDateTime fechaInicio,
+            @Param("fechaFin") LocalDateTime fechaFin
+    );
+
+    // Serie temporal agrupada por semana (iniciando en lunes): [periodo, cantidad, total]
+    @Query(value = "SELECT DATE(fecha_emision) - INTERVAL WEEKDAY(fecha_emision) DAY AS periodo, COUNT(*), SUM(total) " +
+                   "FROM ordenes_compra WHERE fecha_emision BETWEEN :fechaInicio AND :fechaFin " +
+                   "GROUP BY periodo ORDER BY periodo", nativeQuery = true)
+    List<Object[]> sumTotalesPorSemana(
+            @Param("fechaInicio") LocalDateTime fechaInicio,
+            @Param("fechaFin") LocalDateTime fechaFin
+    );
+
+    // Serie temporal agrupada por mes: [periodo, cantidad, total]
+    @Query(value = "SELECT DATE(fecha_emision) - INTERVAL (DAYOFMONTH(fecha_emision) - 1) DAY AS periodo, COUNT(*), SUM(total) " +
+                   "FROM ordenes_compra WHERE fecha_emision BETWEEN :fechaInicio AND :fechaFin " +
+                   "GROUP BY periodo ORDER BY periodo", nativeQuery = true)
+    List<Object[]> sumTotalesPorMes(
+            @Param("fechaInicio") LocalDateTime fechaInicio,
+            @Param("fechaFin") LocalDateTime fechaFin
+    );
+
+    // Cargar una orden bloqueando su fila, para validar y aplicar una transición sin carreras
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM OrdenCompra o WHERE o.id = :id")
+    Optional<OrdenCompra> findParaActualizar(@Param("id") Long id);
+
+    // Bloquear un bloque de órdenes y obtener su estado actual: [id, estado]
+    @Query(value = "SELECT id, estado FROM ordenes_compra WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Object[]> findEstadosByIdInForUpdate(@Param("ids") Collection<Long> ids);
+
+    // Cambiar de estado sólo las órdenes cuyo estado actual es un predecesor válido
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE OrdenCompra o SET o.estado = :nuevoEstado, o.fechaActualizacion = :fecha " +
+           "WHERE o.id IN :ids AND o.estado IN :predecesores")
+    int updateEstadoByIdInAndEstadoIn(
+            @Param("ids") Collection<Long> ids,
+            @Param("predecesores") Collection<EstadoOrden> predecesores,
+            @Param("nuevoEstado") EstadoOrden nuevoEstado,
+            @Param("fecha") LocalDateTime fecha
+    );
 }
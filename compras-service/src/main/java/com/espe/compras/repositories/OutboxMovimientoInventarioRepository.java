@@ -0,0 +1,33 @@
+package com.espe.compras.repositories;
+
+import com.espe.compras.models.OutboxMovimientoInventario;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxMovimientoInventarioRepository extends JpaRepository<OutboxMovimientoInventario, Long> {
+
+    // Tomar un lote de movimientos pendientes; SKIP LOCKED permite varios despachadores en paralelo
+    @Query(value = "SELECT * FROM outbox_movimientos_inventario " +
+                   "WHERE estado = 'PENDIENTE' AND proximo_intento <= :ahora " +
+                   "ORDER BY id LIMIT :limite FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxMovimientoInventario> findPendientesParaDespacho(
+            @Param("ahora") LocalDateTime ahora,
+            @Param("limite") int limite
+    );
+
+    // Movimientos de un lote ya enviado que siguen pendientes, bloqueados para registrar el resultado;
+    // los que otro despachador resolvió tras vencer el arrendamiento se omiten
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m FROM OutboxMovimientoInventario m " +
+           "WHERE m.id IN :ids AND m.estado = com.espe.compras.models.OutboxMovimientoInventario.Estado.PENDIENTE")
+    List<OutboxMovimientoInventario> findPendientesByIdIn(@Param("ids") Collection<Long> ids);
+}
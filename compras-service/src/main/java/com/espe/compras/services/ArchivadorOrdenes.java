@@ -0,0 +1,65 @@
+package com.espe.compras.services;
+
+import com.espe.compras.config.EsquemaArchivo;
+import com.espe.compras.repositories.OrdenCompraRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+// Traslada periódicamente al archivo las órdenes terminales más antiguas que la edad
+// configurada, por bloques y cada bloque en su propia transacción
+@Component
+public class ArchivadorOrdenes {
+
+    // El mes en curso nunca se archiva: el resumen en memoria sólo consulta las tablas activas
+    private static final int EDAD_MINIMA_DIAS = 31;
+
+    private final OrdenCompraRepository ordenCompraRepository;
+    private final ArchivoOrdenesService archivoOrdenesService;
+    private final EsquemaArchivo esquemaArchivo;
+    private final int edadDias;
+    private final int tamanoLote;
+
+    @Autowired
+    public ArchivadorOrdenes(OrdenCompraRepository ordenCompraRepository,
+                             ArchivoOrdenesService archivoOrdenesService,
+                             EsquemaArchivo esquemaArchivo,
+                             @Value("${compras.archivo.edad-dias:180}") int edadDias,
+                             @Value("${compras.archivo.tamano-lote:500}") int tamanoLote) {
+        if (edadDias < EDAD_MINIMA_DIAS) {
+            throw new IllegalArgumentException("La edad mínima para archivar órdenes es de " + EDAD_MINIMA_DIAS + " días");
+        }
+        this.ordenCompraRepository = ordenCompraRepository;
+        this.archivoOrdenesService = archivoOrdenesService;
+        this.esquemaArchivo = esquemaArchivo;
+        this.edadDias = edadDias;
+        this.tamanoLote = tamanoLote;
+    }
+
+    @Scheduled(fixedDelayString = "${compras.archivo.intervalo-ms:3600000}",
+               initialDelayString = "${compras.archivo.intervalo-ms:3600000}")
+    public void archivar() {
+        LocalDateTime corte = LocalDateTime.now().minusDays(edadDias);
+        List<Long> ids;
+        do {
+            ids = ordenCompraRepository.findIdsArchivables(
+                ArchivoOrdenesService.ESTADOS_ARCHIVABLES, corte, Limit.of(tamanoLote));
+            if (ids.isEmpty()) {
+                return;
+            }
+
+            // Las particiones se crean antes y fuera de la transacción (el DDL confirma implícitamente)
+            Object[] rango = ordenCompraRepository.findRangoFechasByIdIn(ids).get(0);
+            esquemaArchivo.asegurarParticiones(
+                YearMonth.from((LocalDateTime) rango[0]), YearMonth.from((LocalDateTime) rango[1]));
+
+            archivoOrdenesService.archivar(ids);
+        } while (ids.size() == tamanoLote);
+    }
+}
@@ -0,0 +1,47 @@
+package com.espe.compras.services;
+
+import com.espe.compras.dto.OrdenCompraResumen;
+import com.espe.compras.models.EstadoOrden;
+import com.espe.compras.models.OrdenCompra;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+public interface ArchivoOrdenesService {
+
+    // Sólo las órdenes en estado terminal se trasladan al archivo
+    Set<EstadoOrden> ESTADOS_ARCHIVABLES = EnumSet.of(EstadoOrden.COMPLETADA, EstadoOrden.CANCELADA);
+
+    // Enrutamiento: indica si una consulta puede encontrar órdenes archivadas
+    boolean incluyeArchivo(EstadoOrden estado);
+    boolean incluyeArchivo(LocalDateTime fechaInicio);
+
+    // Consultas sobre el archivo (devuelven copias de sólo lectura con la forma de OrdenCompra)
+    Optional<OrdenCompra> buscarPorId(Long id);
+    boolean estaArchivada(Long id);
+    List<OrdenCompra> buscarPorIds(Collection<Long> ids);
+    List<OrdenCompra> listar(Long after, Limit limit);
+    List<OrdenCompra> listarPorEstado(EstadoOrden estado, Long after, Limit limit);
+    List<OrdenCompra> listarPorProveedor(Long proveedorId, Long after, Limit limit);
+    List<OrdenCompra> listarPorRangoFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin, Long after, Limit limit);
+    List<OrdenCompra> buscarPorNumeroFactura(String numeroFactura, Limit limit);
+    boolean existeNumeroFactura(String numeroFactura);
+    List<String> numerosFacturaExistentes(Collection<String> numeros);
+    long contarPorEstado(EstadoOrden estado);
+
+    // Las mismas consultas en vista resumen, sin cargar las líneas
+    List<OrdenCompraResumen> resumirPorIds(Collection<Long> ids);
+    List<OrdenCompraResumen> resumir(Long after, Limit limit);
+    List<OrdenCompraResumen> resumirPorEstado(EstadoOrden estado, Long after, Limit limit);
+    List<OrdenCompraResumen> resumirPorProveedor(Long proveedorId, Long after, Limit limit);
+    List<OrdenCompraResumen> resumirPorRangoFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin, Long after, Limit limit);
+    List<OrdenCompraResumen> resumirPorNumeroFactura(String numeroFactura, Limit limit);
+
+    // Mover un bloque de órdenes terminales al archivo en una sola transacción
+    int archivar(List<Long> ids);
+}
@@ -0,0 +1,252 @@
+package com.espe.compras.services;
+
+import com.espe.compras.dto.OrdenCompraResumen;
+import com.espe.compras.models.DetalleOrdenHistorico;
+import com.espe.compras.models.EstadoOrden;
+import com.espe.compras.models.OrdenCompra;
+import com.espe.compras.models.OrdenCompraHistorica;
+import com.espe.compras.repositories.DetalleOrdenHistoricoRepository;
+import com.espe.compras.repositories.DetalleOrdenRepository;
+import com.espe.compras.repositories.OrdenCompraHistoricaRepository;
+import com.espe.compras.repositories.OrdenCompraRepository;
+import com.espe.compras.utils.Transacciones;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Service
+@Transactional(readOnly = true)
+public class ArchivoOrdenesServiceImpl implements ArchivoOrdenesService, InitializingBean {
+
+    private final OrdenCompraRepository ordenCompraRepository;
+    private final DetalleOrdenRepository detalleOrdenRepository;
+    private final OrdenCompraHistoricaRepository ordenCompraHistoricaRepository;
+    private final DetalleOrdenHistoricoRepository detalleOrdenHistoricoRepository;
+
+    // Fecha de emisión más reciente en el archivo; nula mientras el archivo esté vacío
+    private volatile LocalDateTime fechaMaximaArchivada;
+
+    @Autowired
+    public ArchivoOrdenesServiceImpl(OrdenCompraRepository ordenCompraRepository,
+                                     DetalleOrdenRepository detalleOrdenRepository,
+                                     OrdenCompraHistoricaRepository ordenCompraHistoricaRepository,
+                                     DetalleOrdenHistoricoRepository detalleOrdenHistoricoRepository) {
+        this.ordenCompraRepository = ordenCompraRepository;
+        this.detalleOrdenRepository = detalleOrdenRepository;
+        this.ordenCompraHistoricaRepository = ordenCompraHistoricaRepository;
+        this.detalleOrdenHistoricoRepository = detalleOrdenHistoricoRepository;
+    }
+
+    @Override
+    public boolean incluyeArchivo(EstadoOrden estado) {
+        return ESTADOS_ARCHIVABLES.contains(estado) && fechaMaximaArchivada != null;
+    }
+
+    @Override
+    public boolean incluyeArchivo(LocalDateTime fechaInicio) {
+        LocalDateTime maxima = fechaMaximaArchivada;
+        return maxima != null && !fechaInicio.isAfter(maxima);
+    }
+
+    @Override
+    public Optional<OrdenCompra> buscarPorId(Long id) {
+        return ordenCompraHistoricaRepository.findFirstById(id)
+            .map(orden -> aOrdenes(List.of(orden)).get(0));
+    }
+
+    @Override
+    public boolean estaArchivada(Long id) {
+        return fechaMaximaArchivada != null && ordenCompraHistoricaRepository.findFirstById(id).isPresent();
+    }
+
+    @Override
+    public List<OrdenCompra> buscarPorIds(Collection<Long> ids) {
+        if (ids.isEmpty() || fechaMaximaArchivada == null) {
+            return List.of();
+        }
+        return aOrdenes(ordenCompraHistoricaRepository.findByIdIn(ids));
+    }
+
+    @Override
+    public List<OrdenCompra> listar(Long after, Limit limit) {
+        if (fechaMaximaArchivada == null) {
+            return List.of();
+        }
+        return aOrdenes(ordenCompraHistoricaRepository.findByIdGreaterThanOrderByIdAsc(after, limit));
+    }
+
+    @Override
+    public List<OrdenCompra> listarPorEstado(EstadoOrden estado, Long after, Limit limit) {
+        if (!incluyeArchivo(estado)) {
+            return List.of();
+        }
+        return aOrdenes(ordenCompraHistoricaRepository.findByEstadoAndIdGreaterThanOrderByIdAsc(estado, after, limit));
+    }
+
+    @Override
+    public List<OrdenCompra> listarPorProveedor(Long proveedorId, Long after, Limit limit) {
+        if (fechaMaximaArchivada == null) {
+            return List.of();
+        }
+        return aOrdenes(ordenCompraHistoricaRepository.findByProveedorIdAndIdGreaterThanOrderByIdAsc(
+            proveedorId, after, limit));
+    }
+
+    @Override
+    public List<OrdenCompra> listarPorRangoFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin,
+                                                  Long after, Limit limit) {
+        if (!incluyeArchivo(fechaInicio)) {
+            return List.of();
+        }
+        return aOrdenes(ordenCompraHistoricaRepository.findByFechaEmisionBetweenAndIdGreaterThanOrderByIdAsc(
+            fechaInicio, fechaFin, after, limit));
+    }
+
+    @Override
+    public List<OrdenCompra> buscarPorNumeroFactura(String numeroFactura, Limit limit) {
+        if (fechaMaximaArchivada == null) {
+            return List.of();
+        }
+        return aOrdenes(ordenCompraHistoricaRepository.findByNumeroFacturaContainingIgnoreCaseAndIdGreaterThanOrderByIdAsc(
+            numeroFactura, 0L, limit));
+    }
+
+    @Override
+    public boolean existeNumeroFactura(String numeroFactura) {
+        return fechaMaximaArchivada != null && ordenCompraHistoricaRepository.existsByNumeroFactura(numeroFactura);
+    }
+
+    @Override
+    public List<String> numerosFacturaExistentes(Collection<String> numeros) {
+        if (numeros.isEmpty() || fechaMaximaArchivada == null) {
+            return List.of();
+        }
+        return ordenCompraHistoricaRepository.findNumerosFacturaExistentes(numeros);
+    }
+
+    @Override
+    public long contarPorEstado(EstadoOrden estado) {
+        if (!incluyeArchivo(estado)) {
+            return 0;
+        }
+        Long cantidad = ordenCompraHistoricaRepository.countByEstado(estado);
+        return cantidad != null ? cantidad : 0;
+    }
+
+    @Override
+    public List<OrdenCompraResumen> resumirPorIds(Collection<Long> ids) {
+        if (ids.isEmpty() || fechaMaximaArchivada == null) {
+            return List.of();
+        }
+        return ordenCompraHistoricaRepository.findByIdIn(ids, OrdenCompraResumen.class);
+    }
+
+    @Override
+    public List<OrdenCompraResumen> resumir(Long after, Limit limit) {
+        if (fechaMaximaArchivada == null) {
+            return List.of();
+        }
+        return ordenCompraHistoricaRepository.findByIdGreaterThanOrderByIdAsc(after, limit, OrdenCompraResumen.class);
+    }
+
+    @Override
+    public List<OrdenCompraResumen> resumirPorEstado(EstadoOrden estado, Long after, Limit limit) {
+        if (!incluyeArchivo(estado)) {
+            return List.of();
+        }
+        return ordenCompraHistoricaRepository.findByEstadoAndIdGreaterThanOrderByIdAsc(
+            estado, after, limit, OrdenCompraResumen.class);
+    }
+
+    @Override
+    public List<OrdenCompraResumen> resumirPorProveedor(Long proveedorId, Long after, Limit limit) {
+        if (fechaMaximaArchivada == null) {
+            return List.of();
+        }
+        return ordenCompraHistoricaRepository.findByProveedorIdAndIdGreaterThanOrderByIdAsc(
+            proveedorId, after, limit, OrdenCompraResumen.class);
+    }
+
+    @Override
+    public List<OrdenCompraResumen> resumirPorRangoFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin,
+                                                          Long after, Limit limit) {
+        if (!incluyeArchivo(fechaInicio)) {
+            return List.of();
+        }
+        return ordenCompraHistoricaRepository.findByFechaEmisionBetweenAndIdGreaterThanOrderByIdAsc(
+            fechaInicio, fechaFin, after, limit, OrdenCompraResumen.class);
+    }
+
+    @Override
+    public List<OrdenCompraResumen> resumirPorNumeroFactura(String numeroFactura, Limit limit) {
+        if (fechaMaximaArchivada == null) {
+            return List.of();
+        }
+        return ordenCompraHistoricaRepository.findByNumeroFacturaContainingIgnoreCaseAndIdGreaterThanOrderByIdAsc(
+            numeroFactura, 0L, limit, OrdenCompraResumen.class);
+    }
+
+    @Override
+    @Transactional
+    public int archivar(List<Long> ids) {
+        // Bloquear el bloque y quedarse sólo con las órdenes que siguen en estado terminal
+        List<Long> bloqueadas = new ArrayList<>();
+        for (Object[] fila : ordenCompraRepository.findEstadosByIdInForUpdate(ids)) {
+            if (ESTADOS_ARCHIVABLES.contains(EstadoOrden.valueOf((String) fila[1]))) {
+                bloqueadas.add(((Number) fila[0]).longValue());
+            }
+        }
+        if (bloqueadas.isEmpty()) {
+            return 0;
+        }
+
+        // Copiar al archivo con INSERT ... SELECT y luego eliminar de las tablas activas
+        LocalDateTime maxima = (LocalDateTime) ordenCompraRepository.findRangoFechasByIdIn(bloqueadas).get(0)[1];
+        ordenCompraHistoricaRepository.copiarOrdenes(bloqueadas);
+        ordenCompraHistoricaRepository.copiarDetalles(bloqueadas);
+        detalleOrdenRepository.deleteByOrdenCompraIdIn(bloqueadas);
+        int archivadas = ordenCompraRepository.deleteByIdIn(bloqueadas);
+
+        Transacciones.alConfirmar(() -> actualizarFechaMaxima(maxima));
+        return archivadas;
+    }
+
+    // Se carga antes de atender solicitudes para que el enrutamiento considere el archivo desde el inicio
+    @Override
+    public void afterPropertiesSet() {
+        ordenCompraHistoricaRepository.findFirstByOrderByFechaEmisionDesc()
+            .ifPresent(orden -> actualizarFechaMaxima(orden.getFechaEmision()));
+    }
+
+    // Métodos auxiliares
+
+    private synchronized void actualizarFechaMaxima(LocalDateTime fecha) {
+        if (fecha != null && (fechaMaximaArchivada == null || fecha.isAfter(fechaMaximaArchivada))) {
+            fechaMaximaArchivada = fecha;
+        }
+    }
+
+    // Convierte una página de órdenes archivadas cargando todas sus líneas con una sola consulta
+    private List<OrdenCompra> aOrdenes(List<OrdenCompraHistorica> ordenes) {
+        if (ordenes.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<DetalleOrdenHistorico>> detalles = detalleOrdenHistoricoRepository
+            .findByOrdenCompraIdInOrderByIdAsc(ordenes.stream().map(OrdenCompraHistorica::getId).toList())
+            .stream()
+            .collect(Collectors.groupingBy(DetalleOrdenHistorico::getOrdenCompraId));
+        return ordenes.stream()
+            .map(orden -> orden.aOrdenCompra(detalles.getOrDefault(orden.getId(), List.of())))
+            .toList();
+    }
+}
@@ -0,0 +1,19 @@
+package com.espe.compras.services;
+
+import com.espe.compras.dto.ProductoDTO;
+import com.espe.compras.dto.ProveedorDTO;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+public interface CatalogoService {
+
+    // Productos por id (los ausentes del resultado no existen); a lo sumo una llamada remota
+    Map<Long, ProductoDTO> obtenerProductos(Collection<Long> ids);
+
+    Optional<ProveedorDTO> obtenerProveedor(Long id);
+
+    // Proveedores por id (los ausentes del resultado no existen); a lo sumo una llamada remota
+    Map<Long, ProveedorDTO> obtenerProveedores(Collection<Long> ids);
+}
@@ -0,0 +1,119 @@
+package com.espe.compras.services;
+
+import com.espe.compras.clients.ProductoClientRest;
+import com.espe.compras.clients.ProveedorClientRest;
+import com.espe.compras.dto.ProductoDTO;
+import com.espe.compras.dto.ProveedorDTO;
+import com.espe.comun.utils.CacheLocal;
+import feign.FeignException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+@Service
+public class CatalogoServiceImpl implements CatalogoService {
+
+    private final ProductoClientRest productoClient;
+    private final ProveedorClientRest proveedorClient;
+    private final CacheLocal<Long, ProductoDTO> productos;
+    private final CacheLocal<Long, ProveedorDTO> proveedores;
+
+    @Autowired
+    public CatalogoServiceImpl(ProductoClientRest productoClient,
+                               ProveedorClientRest proveedorClient,
+                               @Value("${compras.catalogo.cache.ttl-segundos:300}") long ttlSegundos,
+                               @Value("${compras.catalogo.cache.tamano-maximo:10000}") int tamanoMaximo) {
+        this.productoClient = productoClient;
+        this.proveedorClient = proveedorClient;
+        this.productos = new CacheLocal<>(Duration.ofSeconds(ttlSegundos), tamanoMaximo);
+        this.proveedores = new CacheLocal<>(Duration.ofSeconds(ttlSegundos), tamanoMaximo);
+    }
+
+    @Override
+    public Map<Long, ProductoDTO> obtenerProductos(Collection<Long> ids) {
+        Map<Long, ProductoDTO> encontrados = new HashMap<>();
+        Set<Long> faltantes = new HashSet<>();
+        for (Long id : ids) {
+            if (id == null) {
+                continue;
+            }
+            ProductoDTO producto = productos.obtener(id);
+            if (producto != null) {
+                encontrados.put(id, producto);
+            } else {
+                faltantes.add(id);
+            }
+        }
+
+        if (!faltantes.isEmpty()) {
+            try {
+                for (ProductoDTO producto : productoClient.findAllByIds(faltantes)) {
+                    productos.guardar(producto.id(), producto);
+                    encontrados.put(producto.id(), producto);
+                }
+            } catch (FeignException e) {
+                throw new RuntimeException("No se pudo consultar el catálogo de productos: " + e.getMessage());
+            }
+        }
+        return encontrados;
+    }
+
+    @Override
+    public Optional<ProveedorDTO> obtenerProveedor(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        ProveedorDTO proveedor = proveedores.obtener(id);
+        if (proveedor != null) {
+            return Optional.of(proveedor);
+        }
+        try {
+            proveedor = proveedorClient.findById(id);
+        } catch (FeignException.NotFound e) {
+            return Optional.empty();
+        } catch (FeignException e) {
+            throw new RuntimeException("No se pudo consultar el proveedor: " + e.getMessage());
+        }
+        if (proveedor != null) {
+            proveedores.guardar(id, proveedor);
+        }
+        return Optional.ofNullable(proveedor);
+    }
+
+    @Override
+    public Map<Long, ProveedorDTO> obtenerProveedores(Collection<Long> ids) {
+        Map<Long, ProveedorDTO> encontrados = new HashMap<>();
+        Set<Long> faltantes = new HashSet<>();
+        for (Long id : ids) {
+            if (id == null) {
+                continue;
+            }
+            ProveedorDTO proveedor = proveedores.obtener(id);
+            if (proveedor != null) {
+                encontrados.put(id, proveedor);
+            } else {
+                faltantes.add(id);
+            }
+        }
+
+        if (!faltantes.isEmpty()) {
+            try {
+                for (ProveedorDTO proveedor : proveedorClient.findAllByIds(faltantes)) {
+                    proveedores.guardar(proveedor.id(), proveedor);
+                    encontrados.put(proveedor.id(), proveedor);
+                }
+            } catch (FeignException e) {
+                throw new RuntimeException("No se pudo consultar el catálogo de proveedores: " + e.getMessage());
+            }
+        }
+        return encontrados;
+    }
+}
@@ -0,0 +1,16 @@
+package com.espe.compras.services;
+
+import com.espe.compras.models.EstadoOrden;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface EventosOrdenService {
+
+    // Publicación de cambios (se emiten al confirmar la transacción en curso)
+    void registrarCreacion(Long ordenId, EstadoOrden estado);
+    void registrarActualizacion(Long ordenId, EstadoOrden estado);
+    void registrarCambioEstado(Long ordenId, EstadoOrden estadoAnterior, EstadoOrden estadoNuevo);
+    void registrarEliminacion(Long ordenId, EstadoOrden estado);
+
+    // Suscripción SSE; reanuda después del último evento recibido si sigue en el historial
+    SseEmitter suscribir(Long ultimoEventoId);
+}
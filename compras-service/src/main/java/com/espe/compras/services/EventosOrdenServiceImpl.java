@@ -0,0 +1,212 @@
+package com.espe.compras.services;
+
+import com.espe.compras.dto.EventoOrden;
+import com.espe.compras.models.EstadoOrden;
+import com.espe.compras.utils.Transacciones;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+public class EventosOrdenServiceImpl implements EventosOrdenService, DisposableBean {
+
+    // Evento que indica al cliente que ya no puede reanudar y debe recargar el listado
+    private static final String EVENTO_RESINCRONIZAR = "resincronizar";
+
+    private final int capacidadSuscriptor;
+    private final long timeoutMs;
+    private final ExecutorService envios;
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+
+    // Historial circular de los últimos eventos, protegido por el monitor de esta instancia.
+    // Los ids parten del instante de arranque en microsegundos para que sigan creciendo tras
+    // un reinicio y un Last-Event-ID de la ejecución anterior se reconozca como no reanudable
+    private final EventoOrden[] historial;
+    private final long primerId;
+    private long ultimoId;
+
+    @Autowired
+    public EventosOrdenServiceImpl(@Value("${compras.eventos.buffer-suscriptor:256}") int capacidadSuscriptor,
+                                   @Value("${compras.eventos.historial:1024}") int tamanoHistorial,
+                                   @Value("${compras.eventos.timeout-ms:1800000}") long timeoutMs,
+                                   @Value("${compras.eventos.hilos-envio:4}") int hilosEnvio) {
+        this.capacidadSuscriptor = capacidadSuscriptor;
+        this.timeoutMs = timeoutMs;
+        this.historial = new EventoOrden[tamanoHistorial];
+        this.primerId = System.currentTimeMillis() * 1000;
+        this.ultimoId = primerId;
+        this.envios = Executors.newFixedThreadPool(hilosEnvio, tarea -> {
+            Thread hilo = new Thread(tarea, "eventos-ordenes");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @Override
+    public void registrarCreacion(Long ordenId, EstadoOrden estado) {
+        Transacciones.alConfirmar(() -> publicar(EventoOrden.Tipo.CREADA, ordenId, null, estado));
+    }
+
+    @Override
+    public void registrarActualizacion(Long ordenId, EstadoOrden estado) {
+        Transacciones.alConfirmar(() -> publicar(EventoOrden.Tipo.ACTUALIZADA, ordenId, null, estado));
+    }
+
+    @Override
+    public void registrarCambioEstado(Long ordenId, EstadoOrden estadoAnterior, EstadoOrden estadoNuevo) {
+        Transacciones.alConfirmar(() -> publicar(EventoOrden.Tipo.ESTADO_CAMBIADO, ordenId, estadoAnterior, estadoNuevo));
+    }
+
+    @Override
+    public void registrarEliminacion(Long ordenId, EstadoOrden estado) {
+        Transacciones.alConfirmar(() -> publicar(EventoOrden.Tipo.ELIMINADA, ordenId, estado, null));
+    }
+
+    @Override
+    public synchronized SseEmitter suscribir(Long ultimoEventoId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Suscriptor suscriptor = new Suscriptor(emitter);
+
+        if (ultimoEventoId != null) {
+            // Sólo se reanuda si todos los eventos posteriores siguen en el historial y caben en el buffer
+            long primeroRetenido = Math.max(primerId + 1, ultimoId - historial.length + 1);
+            if (ultimoEventoId + 1 >= primeroRetenido && ultimoEventoId <= ultimoId
+                    && ultimoId - ultimoEventoId <= capacidadSuscriptor) {
+                for (long id = ultimoEventoId + 1; id <= ultimoId; id++) {
+                    suscriptor.ofrecer(historial[posicion(id)]);
+                }
+            } else {
+                suscriptor.pedirResincronizacion();
+            }
+        }
+
+        emitter.onCompletion(suscriptor::cerrar);
+        emitter.onTimeout(suscriptor::cerrar);
+        emitter.onError(error -> suscriptor.cerrar());
+        suscriptores.add(suscriptor);
+        suscriptor.programarEnvio();
+        return emitter;
+    }
+
+    // Comentario periódico para detectar conexiones muertas y evitar cortes de proxies intermedios
+    @Scheduled(fixedDelayString = "${compras.eventos.latido-ms:15000}")
+    public void enviarLatidos() {
+        suscriptores.forEach(Suscriptor::latir);
+    }
+
+    @Override
+    public void destroy() {
+        suscriptores.forEach(Suscriptor::descartar);
+        envios.shutdown();
+    }
+
+    // Métodos auxiliares
+
+    private synchronized void publicar(EventoOrden.Tipo tipo, Long ordenId,
+                                       EstadoOrden estadoAnterior, EstadoOrden estado) {
+        EventoOrden evento = new EventoOrden(++ultimoId, tipo, ordenId, estadoAnterior, estado, LocalDateTime.now());
+        historial[posicion(evento.id())] = evento;
+        for (Suscriptor suscriptor : suscriptores) {
+            suscriptor.ofrecer(evento);
+        }
+    }
+
+    private int posicion(long id) {
+        return (int) (id % historial.length);
+    }
+
+    // Conexión de un cliente: la publicación sólo encola y el envío por la red ocurre en el
+    // pool de envíos, así que un cliente lento nunca bloquea la confirmación de una transacción
+    private final class Suscriptor {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<EventoOrden> pendientes = new ArrayBlockingQueue<>(capacidadSuscriptor);
+        private final AtomicBoolean enviando = new AtomicBoolean();
+        private volatile boolean resincronizar;
+        private volatile boolean latido;
+        private volatile boolean cerrado;
+
+        private Suscriptor(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void ofrecer(EventoOrden evento) {
+            if (cerrado) {
+                return;
+            }
+            if (!pendientes.offer(evento)) {
+                // Buffer lleno: se corta la conexión y el cliente reanuda o se resincroniza al reconectar
+                descartar();
+                return;
+            }
+            programarEnvio();
+        }
+
+        void pedirResincronizacion() {
+            resincronizar = true;
+        }
+
+        void latir() {
+            latido = true;
+            programarEnvio();
+        }
+
+        void cerrar() {
+            cerrado = true;
+            suscriptores.remove(this);
+        }
+
+        void descartar() {
+            cerrar();
+            envios.execute(emitter::complete);
+        }
+
+        void programarEnvio() {
+            if (!cerrado && enviando.compareAndSet(false, true)) {
+                envios.execute(this::enviarPendientes);
+            }
+        }
+
+        private void enviarPendientes() {
+            try {
+                if (resincronizar) {
+                    resincronizar = false;
+                    emitter.send(SseEmitter.event().name(EVENTO_RESINCRONIZAR).data(""));
+                }
+                EventoOrden evento;
+                while (!cerrado && (evento = pendientes.poll()) != null) {
+                    emitter.send(SseEmitter.event()
+                        .id(Long.toString(evento.id()))
+                        .data(evento, MediaType.APPLICATION_JSON));
+                }
+                if (latido && !cerrado) {
+                    latido = false;
+                    emitter.send(SseEmitter.event().comment("latido"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // El cliente cerró la conexión
+                cerrar();
+                emitter.completeWithError(e);
+            } finally {
+                enviando.set(false);
+            }
+            if (!cerrado && (!pendientes.isEmpty() || latido || resincronizar)) {
+                programarEnvio();
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.espe.compras.services;
+
+import com.espe.compras.dto.FormatoExportacion;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+public interface ExportacionOrdenesService {
+
+    // Escribe las órdenes del rango (activas y archivadas) a medida que se leen, sin materializar el resultado
+    void exportar(LocalDateTime fechaInicio, LocalDateTime fechaFin, FormatoExportacion formato,
+                  boolean incluirDetalles, OutputStream salida) throws IOException;
+}
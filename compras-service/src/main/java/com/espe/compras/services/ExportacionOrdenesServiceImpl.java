@@ -0,0 +1,350 @@
+package com.espe.compras.services;
+
+import com.espe.compras.dto.FormatoExportacion;
+import com.espe.compras.models.DetalleOrden;
+import com.espe.compras.models.DetalleOrdenHistorico;
+import com.espe.compras.models.OrdenCompra;
+import com.espe.compras.models.OrdenCompraHistorica;
+import com.espe.compras.repositories.DetalleOrdenHistoricoRepository;
+import com.espe.compras.repositories.DetalleOrdenRepository;
+import com.espe.compras.repositories.OrdenCompraHistoricaRepository;
+import com.espe.compras.repositories.OrdenCompraRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Service
+public class ExportacionOrdenesServiceImpl implements ExportacionOrdenesService {
+
+    // Órdenes por bloque: cada bloque carga sus líneas con una consulta, se escribe y se desvincula
+    private static final int TAMANO_BLOQUE = 500;
+
+    private final OrdenCompraRepository ordenCompraRepository;
+    private final DetalleOrdenRepository detalleOrdenRepository;
+    private final OrdenCompraHistoricaRepository ordenCompraHistoricaRepository;
+    private final DetalleOrdenHistoricoRepository detalleOrdenHistoricoRepository;
+    private final ArchivoOrdenesService archivoOrdenesService;
+    private final ObjectMapper objectMapper;
+    // Las líneas de cada bloque se leen en una transacción aparte (otra conexión del pool): la
+    // conexión de la exportación está ocupada entregando las órdenes fila a fila
+    private final TransactionTemplate lecturaDetalles;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public ExportacionOrdenesServiceImpl(OrdenCompraRepository ordenCompraRepository,
+                                         DetalleOrdenRepository detalleOrdenRepository,
+                                         OrdenCompraHistoricaRepository ordenCompraHistoricaRepository,
+                                         DetalleOrdenHistoricoRepository detalleOrdenHistoricoRepository,
+                                         ArchivoOrdenesService archivoOrdenesService,
+                                         ObjectMapper objectMapper,
+                                         PlatformTransactionManager transactionManager) {
+        this.ordenCompraRepository = ordenCompraRepository;
+        this.detalleOrdenRepository = detalleOrdenRepository;
+        this.ordenCompraHistoricaRepository = ordenCompraHistoricaRepository;
+        this.detalleOrdenHistoricoRepository = detalleOrdenHistoricoRepository;
+        this.archivoOrdenesService = archivoOrdenesService;
+        this.objectMapper = objectMapper;
+        this.lecturaDetalles = new TransactionTemplate(transactionManager);
+        this.lecturaDetalles.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.lecturaDetalles.setReadOnly(true);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportar(LocalDateTime fechaInicio, LocalDateTime fechaFin, FormatoExportacion formato,
+                         boolean incluirDetalles, OutputStream salida) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        EscritorOrdenes escritor = formato == FormatoExportacion.CSV
+            ? new EscritorCsv(writer, incluirDetalles)
+            : new EscritorNdjson(objectMapper.getFactory().createGenerator(writer), incluirDetalles);
+        escritor.iniciar();
+
+        // Primero las órdenes archivadas (las más antiguas) y luego las activas, cada grupo por id
+        if (archivoOrdenesService.incluyeArchivo(fechaInicio)) {
+            try (Stream<OrdenCompraHistorica> archivadas =
+                     ordenCompraHistoricaRepository.streamByFechaEmisionBetweenOrderByIdAsc(fechaInicio, fechaFin)) {
+                porBloques(archivadas, bloque -> escribirArchivadas(bloque, incluirDetalles, escritor));
+            }
+        }
+        try (Stream<OrdenCompra> activas =
+                 ordenCompraRepository.streamByFechaEmisionBetweenOrderByIdAsc(fechaInicio, fechaFin)) {
+            porBloques(activas, bloque -> escribirActivas(bloque, incluirDetalles, escritor));
+        }
+        escritor.terminar();
+    }
+
+    // Métodos auxiliares
+
+    private <T> void porBloques(Stream<T> origen, EscrituraBloque<T> escritura) throws IOException {
+        Iterator<T> iterador = origen.iterator();
+        List<T> bloque = new ArrayList<>(TAMANO_BLOQUE);
+        while (iterador.hasNext()) {
+            bloque.add(iterador.next());
+            if (bloque.size() == TAMANO_BLOQUE) {
+                escribirBloque(bloque, escritura);
+            }
+        }
+        if (!bloque.isEmpty()) {
+            escribirBloque(bloque, escritura);
+        }
+    }
+
+    private <T> void escribirBloque(List<T> bloque, EscrituraBloque<T> escritura) throws IOException {
+        escritura.escribir(bloque);
+        bloque.clear();
+        // Desvincular lo ya escrito para que la memoria no crezca con el tamaño de la exportación
+        entityManager.clear();
+    }
+
+    private void escribirActivas(List<OrdenCompra> bloque, boolean incluirDetalles,
+                                 EscritorOrdenes escritor) throws IOException {
+        Map<Long, List<DetalleOrden>> detalles = incluirDetalles
+            ? lecturaDetalles.execute(estado -> detalleOrdenRepository.findByOrdenCompraIdInOrderByIdAsc(
+                    bloque.stream().map(OrdenCompra::getId).toList()))
+                .stream()
+                .collect(Collectors.groupingBy(detalle -> detalle.getOrdenCompra().getId()))
+            : Map.of();
+        for (OrdenCompra orden : bloque) {
+            escritor.escribir(orden, detalles.getOrDefault(orden.getId(), List.of()));
+        }
+        escritor.vaciar();
+    }
+
+    private void escribirArchivadas(List<OrdenCompraHistorica> bloque, boolean incluirDetalles,
+                                    EscritorOrdenes escritor) throws IOException {
+        Map<Long, List<DetalleOrdenHistorico>> detalles = incluirDetalles
+            ? lecturaDetalles.execute(estado -> detalleOrdenHistoricoRepository.findByOrdenCompraIdInOrderByIdAsc(
+                    bloque.stream().map(OrdenCompraHistorica::getId).toList()))
+                .stream()
+                .collect(Collectors.groupingBy(DetalleOrdenHistorico::getOrdenCompraId))
+            : Map.of();
+        for (OrdenCompraHistorica archivada : bloque) {
+            OrdenCompra orden = archivada.aOrdenCompra(detalles.getOrDefault(archivada.getId(), List.of()));
+            escritor.escribir(orden, orden.getDetalles());
+        }
+        escritor.vaciar();
+    }
+
+    @FunctionalInterface
+    private interface EscrituraBloque<T> {
+        void escribir(List<T> bloque) throws IOException;
+    }
+
+    private interface EscritorOrdenes {
+        void iniciar() throws IOException;
+        void escribir(OrdenCompra orden, List<DetalleOrden> detalles) throws IOException;
+        void vaciar() throws IOException;
+        void terminar() throws IOException;
+    }
+
+    // Una fila por orden o, con detalles, una fila por línea repitiendo las columnas de la orden
+    private static final class EscritorCsv implements EscritorOrdenes {
+
+        private static final String COLUMNAS_ORDEN =
+            "id,numeroFactura,proveedorId,bodegaId,fechaEmision,fechaEntrega,estado,subtotal,iva,total,observaciones";
+        private static final String COLUMNAS_DETALLE =
+            ",detalleId,productoId,nombreProducto,cantidad,precioUnitario,descuento,subtotalDetalle";
+
+        private final Writer writer;
+        private final boolean incluirDetalles;
+
+        private EscritorCsv(Writer writer, boolean incluirDetalles) {
+            this.writer = writer;
+            this.incluirDetalles = incluirDetalles;
+        }
+
+        @Override
+        public void iniciar() throws IOException {
+            writer.write(COLUMNAS_ORDEN);
+            if (incluirDetalles) {
+                writer.write(COLUMNAS_DETALLE);
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void escribir(OrdenCompra orden, List<DetalleOrden> detalles) throws IOException {
+            if (!incluirDetalles) {
+                escribirOrden(orden);
+                writer.write('\n');
+                return;
+            }
+            if (detalles.isEmpty()) {
+                escribirOrden(orden);
+                writer.write(",,,,,,,\n");
+                return;
+            }
+            for (DetalleOrden detalle : detalles) {
+                escribirOrden(orden);
+                writer.write(',');
+                campo(detalle.getId());
+                writer.write(',');
+                campo(detalle.getProductoId());
+                writer.write(',');
+                texto(detalle.getNombreProducto());
+                writer.write(',');
+                campo(detalle.getCantidad());
+                writer.write(',');
+                campo(detalle.getPrecioUnitario());
+                writer.write(',');
+                campo(detalle.getDescuento());
+                writer.write(',');
+                campo(detalle.getSubtotal());
+                writer.write('\n');
+            }
+        }
+
+        @Override
+        public void vaciar() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void terminar() throws IOException {
+            writer.flush();
+        }
+
+        private void escribirOrden(OrdenCompra orden) throws IOException {
+            campo(orden.getId());
+            writer.write(',');
+            texto(orden.getNumeroFactura());
+            writer.write(',');
+            campo(orden.getProveedorId());
+            writer.write(',');
+            campo(orden.getBodegaId());
+            writer.write(',');
+            campo(orden.getFechaEmision());
+            writer.write(',');
+            campo(orden.getFechaEntrega());
+            writer.write(',');
+            campo(orden.getEstado());
+            writer.write(',');
+            campo(orden.getSubtotal());
+            writer.write(',');
+            campo(orden.getIva());
+            writer.write(',');
+            campo(orden.getTotal());
+            writer.write(',');
+            texto(orden.getObservaciones());
+        }
+
+        private void campo(Object valor) throws IOException {
+            if (valor instanceof BigDecimal decimal) {
+                writer.write(decimal.toPlainString());
+            } else if (valor != null) {
+                writer.write(valor.toString());
+            }
+        }
+
+        // Se entrecomillan los textos con separadores, comillas o saltos de línea (RFC 4180)
+        private void texto(String valor) throws IOException {
+            if (valor == null) {
+                return;
+            }
+            if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+                writer.write(valor);
+                return;
+            }
+            writer.write('"');
+            writer.write(valor.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    // Un objeto JSON por línea; con detalles, cada orden incluye sus líneas en "detalles"
+    private static final class EscritorNdjson implements EscritorOrdenes {
+
+        private final JsonGenerator json;
+        private final boolean incluirDetalles;
+
+        private EscritorNdjson(JsonGenerator json, boolean incluirDetalles) {
+            // El separador entre objetos de primer nivel es el salto de línea escrito tras cada orden
+            json.setRootValueSeparator(null);
+            this.json = json;
+            this.incluirDetalles = incluirDetalles;
+        }
+
+        @Override
+        public void iniciar() {
+        }
+
+        @Override
+        public void escribir(OrdenCompra orden, List<DetalleOrden> detalles) throws IOException {
+            json.writeStartObject();
+            json.writeNumberField("id", orden.getId());
+            json.writeStringField("numeroFactura", orden.getNumeroFactura());
+            numero("proveedorId", orden.getProveedorId());
+            numero("bodegaId", orden.getBodegaId());
+            fecha("fechaEmision", orden.getFechaEmision());
+            fecha("fechaEntrega", orden.getFechaEntrega());
+            json.writeStringField("estado", orden.getEstado() != null ? orden.getEstado().name() : null);
+            json.writeNumberField("subtotal", orden.getSubtotal());
+            json.writeNumberField("iva", orden.getIva());
+            json.writeNumberField("total", orden.getTotal());
+            json.writeStringField("observaciones", orden.getObservaciones());
+            if (incluirDetalles) {
+                json.writeArrayFieldStart("detalles");
+                for (DetalleOrden detalle : detalles) {
+                    json.writeStartObject();
+                    numero("id", detalle.getId());
+                    numero("productoId", detalle.getProductoId());
+                    json.writeStringField("nombreProducto", detalle.getNombreProducto());
+                    numero("cantidad", detalle.getCantidad() != null ? detalle.getCantidad().longValue() : null);
+                    json.writeNumberField("precioUnitario", detalle.getPrecioUnitario());
+                    json.writeNumberField("descuento", detalle.getDescuento());
+                    json.writeNumberField("subtotal", detalle.getSubtotal());
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void vaciar() throws IOException {
+            json.flush();
+        }
+
+        @Override
+        public void terminar() throws IOException {
+            json.flush();
+        }
+
+        private void numero(String nombre, Long valor) throws IOException {
+            if (valor != null) {
+                json.writeNumberField(nombre, valor);
+            } else {
+                json.writeNullField(nombre);
+            }
+        }
+
+        private void fecha(String nombre, LocalDateTime valor) throws IOException {
+            json.writeStringField(nombre, valor != null ? valor.toString() : null);
+        }
+    }
+}
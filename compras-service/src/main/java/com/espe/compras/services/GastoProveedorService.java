@@ -0,0 +1,28 @@
+package com.espe.compras.services;
+
+import com.espe.compras.dto.GastoProveedorDTO;
+import com.espe.compras.models.OrdenCompra;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface GastoProveedorService {
+
+    int TOP_POR_DEFECTO = 10;
+    int TOP_MAXIMO = 100;
+
+    // Actualizaciones de la proyección (deben ejecutarse dentro de la transacción de la orden)
+    void registrarCreacion(Long proveedorId, LocalDateTime fechaEmision, BigDecimal total);
+    void registrarCreaciones(Collection<OrdenCompra> ordenes);
+    void registrarCambio(Long proveedorAnterior, LocalDateTime fechaAnterior, BigDecimal totalAnterior,
+                         Long proveedorNuevo, LocalDateTime fechaNueva, BigDecimal totalNuevo);
+    void registrarEliminacion(Long proveedorId, LocalDateTime fechaEmision, BigDecimal total);
+
+    // Consultas sobre la proyección
+    List<GastoProveedorDTO> obtenerTopProveedores(int n, LocalDate desde, LocalDate hasta);
+    List<GastoProveedorDTO> obtenerGastoProveedores(List<Long> ids, LocalDate desde, LocalDate hasta);
+    BigDecimal obtenerTotalPorProveedor(Long proveedorId);
+}
@@ -0,0 +1,136 @@
+package com.espe.compras.services;
+
+import com.espe.compras.config.EsquemaArchivo;
+import com.espe.compras.dto.GastoProveedorDTO;
+import com.espe.compras.models.OrdenCompra;
+import com.espe.compras.repositories.GastoProveedorRepository;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Transactional
+public class GastoProveedorServiceImpl implements GastoProveedorService, InitializingBean {
+
+    // Rango de fechas admitido por el tipo DATE de MySQL
+    private static final LocalDate MES_MINIMO = LocalDate.of(1000, 1, 1);
+    private static final LocalDate MES_MAXIMO = LocalDate.of(9999, 12, 1);
+
+    private final GastoProveedorRepository gastoProveedorRepository;
+
+    @Autowired
+    public GastoProveedorServiceImpl(GastoProveedorRepository gastoProveedorRepository, EsquemaArchivo esquemaArchivo) {
+        // La dependencia con EsquemaArchivo garantiza que la vista ordenes_compra_todas ya existe
+        this.gastoProveedorRepository = gastoProveedorRepository;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarCreacion(Long proveedorId, LocalDateTime fechaEmision, BigDecimal total) {
+        gastoProveedorRepository.acumular(proveedorId, mes(fechaEmision), 1, total, fechaEmision);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarCreaciones(Collection<OrdenCompra> ordenes) {
+        // Agrupar el lote por proveedor y mes para emitir un solo upsert por grupo
+        record Grupo(Long proveedorId, LocalDate mes) {}
+        Map<Grupo, List<OrdenCompra>> grupos = ordenes.stream()
+            .collect(Collectors.groupingBy(orden -> new Grupo(orden.getProveedorId(), mes(orden.getFechaEmision()))));
+        grupos.forEach((grupo, delGrupo) -> gastoProveedorRepository.acumular(
+            grupo.proveedorId(),
+            grupo.mes(),
+            delGrupo.size(),
+            delGrupo.stream().map(OrdenCompra::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add),
+            delGrupo.stream().map(OrdenCompra::getFechaEmision).max(LocalDateTime::compareTo).orElse(null)
+        ));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarCambio(Long proveedorAnterior, LocalDateTime fechaAnterior, BigDecimal totalAnterior,
+                                Long proveedorNuevo, LocalDateTime fechaNueva, BigDecimal totalNuevo) {
+        if (Objects.equals(proveedorAnterior, proveedorNuevo) && mes(fechaAnterior).equals(mes(fechaNueva))) {
+            BigDecimal diferencia = totalNuevo.subtract(totalAnterior);
+            if (diferencia.signum() != 0 || !fechaAnterior.equals(fechaNueva)) {
+                gastoProveedorRepository.acumular(proveedorNuevo, mes(fechaNueva), 0, diferencia, fechaNueva);
+            }
+            return;
+        }
+        // La orden cambió de proveedor o de mes: se traslada completa
+        registrarEliminacion(proveedorAnterior, fechaAnterior, totalAnterior);
+        registrarCreacion(proveedorNuevo, fechaNueva, totalNuevo);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarEliminacion(Long proveedorId, LocalDateTime fechaEmision, BigDecimal total) {
+        // La fecha de la última orden no retrocede al eliminar; se conserva la mayor registrada
+        gastoProveedorRepository.acumular(proveedorId, mes(fechaEmision), -1, total.negate(), null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<GastoProveedorDTO> obtenerTopProveedores(int n, LocalDate desde, LocalDate hasta) {
+        int limite = Math.max(1, Math.min(n, TOP_MAXIMO));
+        return gastoProveedorRepository.findTopByMesBetween(desde(desde), hasta(hasta), Limit.of(limite));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<GastoProveedorDTO> obtenerGastoProveedores(List<Long> ids, LocalDate desde, LocalDate hasta) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, GastoProveedorDTO> encontrados = new HashMap<>(gastoProveedorRepository
+            .findByProveedorIdInAndMesBetween(ids, desde(desde), hasta(hasta)).stream()
+            .collect(Collectors.toMap(GastoProveedorDTO::proveedorId, Function.identity())));
+        // Respetar el orden solicitado y devolver cero para los proveedores sin compras
+        return ids.stream()
+            .distinct()
+            .map(id -> encontrados.getOrDefault(id, new GastoProveedorDTO(id, 0L, BigDecimal.ZERO, null)))
+            .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BigDecimal obtenerTotalPorProveedor(Long proveedorId) {
+        BigDecimal total = gastoProveedorRepository.sumTotalByProveedorId(proveedorId);
+        return total != null ? total : BigDecimal.ZERO;
+    }
+
+    // Poblar la proyección en el primer arranque con órdenes ya existentes, antes de que el
+    // servidor web acepte solicitudes que la acumulen
+    @Override
+    public void afterPropertiesSet() {
+        if (gastoProveedorRepository.count() == 0) {
+            gastoProveedorRepository.poblarDesdeOrdenes();
+        }
+    }
+
+    private static LocalDate mes(LocalDateTime fecha) {
+        return fecha.toLocalDate().withDayOfMonth(1);
+    }
+
+    private static LocalDate desde(LocalDate fecha) {
+        return fecha != null ? fecha.withDayOfMonth(1) : MES_MINIMO;
+    }
+
+    private static LocalDate hasta(LocalDate fecha) {
+        return fecha != null ? fecha.withDayOfMonth(1) : MES_MAXIMO;
+    }
+}
@@ -0,0 +1,100 @@
+package com.espe.compras.services;
+
+import com.espe.compras.repositories.OrdenCompraHistoricaRepository;
+import com.espe.compras.repositories.OrdenCompraRepository;
+import com.espe.compras.utils.FiltroBloom;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiFunction;
+
+// Caché negativa de números de factura: si el filtro responde que un número no
+// puede existir, se evita la consulta a MySQL. Mientras no se haya construido,
+// todas las consultas van a la base de datos.
+@Component
+public class IndiceNumerosFactura {
+
+    private static final int TAMANO_LOTE_CARGA = 5000;
+
+    private final OrdenCompraRepository ordenCompraRepository;
+    private final OrdenCompraHistoricaRepository ordenCompraHistoricaRepository;
+    private final long capacidadMinima;
+    private final double probabilidadFalsoPositivo;
+
+    private volatile FiltroBloom filtro;
+    private volatile FiltroBloom enConstruccion;
+
+    @Autowired
+    public IndiceNumerosFactura(OrdenCompraRepository ordenCompraRepository,
+                                OrdenCompraHistoricaRepository ordenCompraHistoricaRepository,
+                                @Value("${compras.facturas.bloom.capacidad:1000000}") long capacidadMinima,
+                                @Value("${compras.facturas.bloom.falsos-positivos:0.01}") double probabilidadFalsoPositivo) {
+        this.ordenCompraRepository = ordenCompraRepository;
+        this.ordenCompraHistoricaRepository = ordenCompraHistoricaRepository;
+        this.capacidadMinima = capacidadMinima;
+        this.probabilidadFalsoPositivo = probabilidadFalsoPositivo;
+    }
+
+    public boolean puedeExistir(String numeroFactura) {
+        FiltroBloom actual = filtro;
+        return actual == null || actual.puedeContener(clave(numeroFactura));
+    }
+
+    public void registrar(String numeroFactura) {
+        if (numeroFactura == null) {
+            return;
+        }
+        String clave = clave(numeroFactura);
+        FiltroBloom actual = filtro;
+        if (actual != null) {
+            actual.agregar(clave);
+        }
+        FiltroBloom nuevo = enConstruccion;
+        if (nuevo != null) {
+            nuevo.agregar(clave);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reconstruir() {
+        long existentes = ordenCompraRepository.count() + ordenCompraHistoricaRepository.count();
+        FiltroBloom nuevo = new FiltroBloom(Math.max(capacidadMinima, existentes * 2), probabilidadFalsoPositivo);
+
+        // Los registros concurrentes con la carga también se agregan al nuevo filtro
+        enConstruccion = nuevo;
+
+        // Los números archivados siguen ocupados
+        cargar(nuevo, ordenCompraRepository::findNumerosFacturaByIdGreaterThan);
+        cargar(nuevo, ordenCompraHistoricaRepository::findNumerosFacturaByIdGreaterThan);
+
+        filtro = nuevo;
+        enConstruccion = null;
+    }
+
+    private void cargar(FiltroBloom nuevo, BiFunction<Long, Limit, List<Object[]>> fuente) {
+        Long after = 0L;
+        List<Object[]> lote;
+        do {
+            lote = fuente.apply(after, Limit.of(TAMANO_LOTE_CARGA));
+            for (Object[] fila : lote) {
+                after = (Long) fila[0];
+                nuevo.agregar(clave((String) fila[1]));
+            }
+        } while (lote.size() == TAMANO_LOTE_CARGA);
+    }
+
+    // La intercalación por defecto de MySQL ignora mayúsculas y acentos, así que
+    // el filtro debe tratar como iguales los mismos valores que el índice único
+    public static String clave(String numeroFactura) {
+        String sinAcentos = Normalizer.normalize(numeroFactura, Normalizer.Form.NFD)
+            .replaceAll("\\p{M}", "");
+        return sinAcentos.toLowerCase(Locale.ROOT);
+    }
+}
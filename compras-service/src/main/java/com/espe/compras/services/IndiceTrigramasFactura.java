@@ -0,0 +1,228 @@
+package com.espe.compras.services;
+
+import com.espe.compras.repositories.OrdenCompraHistoricaRepository;
+import com.espe.compras.repositories.OrdenCompraRepository;
+import com.espe.compras.utils.Transacciones;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+// Índice invertido de trigramas sobre los números de factura para búsquedas por
+// fragmento. Se carga al iniciar y se mantiene al confirmar cada escritura; mientras
+// no esté listo las búsquedas vuelven a la consulta LIKE sobre MySQL.
+@Component
+public class IndiceTrigramasFactura {
+
+    private static final int TAMANO_LOTE_CARGA = 5000;
+    private static final int LONGITUD_TRIGRAMA = 3;
+
+    private final OrdenCompraRepository ordenCompraRepository;
+    private final OrdenCompraHistoricaRepository ordenCompraHistoricaRepository;
+
+    private volatile Indice indice;
+    private volatile Indice enConstruccion;
+
+    @Autowired
+    public IndiceTrigramasFactura(OrdenCompraRepository ordenCompraRepository,
+                                  OrdenCompraHistoricaRepository ordenCompraHistoricaRepository) {
+        this.ordenCompraRepository = ordenCompraRepository;
+        this.ordenCompraHistoricaRepository = ordenCompraHistoricaRepository;
+    }
+
+    // Ids de las órdenes cuyo número contiene el fragmento, ordenados por relevancia;
+    // vacío si el índice todavía se está construyendo
+    public Optional<List<Long>> buscar(String fragmento, int limite) {
+        Indice actual = indice;
+        if (actual == null) {
+            return Optional.empty();
+        }
+        return Optional.of(actual.buscar(IndiceNumerosFactura.clave(fragmento), limite));
+    }
+
+    public void registrar(Long id, String numeroFactura) {
+        if (id == null || numeroFactura == null) {
+            return;
+        }
+        String clave = IndiceNumerosFactura.clave(numeroFactura);
+        Transacciones.alConfirmar(() -> aplicar(indice -> indice.agregar(id, clave)));
+    }
+
+    public void eliminar(Long id) {
+        Transacciones.alConfirmar(() -> aplicar(indice -> indice.quitar(id)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reconstruir() {
+        Indice nuevo = new Indice();
+
+        // Las escrituras concurrentes con la carga también se aplican al nuevo índice
+        // y prevalecen sobre lo leído de la base de datos
+        enConstruccion = nuevo;
+
+        cargar(nuevo, ordenCompraRepository::findNumerosFacturaByIdGreaterThan);
+        cargar(nuevo, ordenCompraHistoricaRepository::findNumerosFacturaByIdGreaterThan);
+
+        nuevo.terminarCarga();
+        indice = nuevo;
+        enConstruccion = null;
+    }
+
+    // Métodos auxiliares
+
+    private void cargar(Indice nuevo, BiFunction<Long, Limit, List<Object[]>> fuente) {
+        Long after = 0L;
+        List<Object[]> lote;
+        do {
+            lote = fuente.apply(after, Limit.of(TAMANO_LOTE_CARGA));
+            for (Object[] fila : lote) {
+                after = (Long) fila[0];
+                nuevo.cargar(after, IndiceNumerosFactura.clave((String) fila[1]));
+            }
+        } while (lote.size() == TAMANO_LOTE_CARGA);
+    }
+
+    private void aplicar(Consumer<Indice> cambio) {
+        Indice actual = indice;
+        if (actual != null) {
+            cambio.accept(actual);
+        }
+        Indice nuevo = enConstruccion;
+        if (nuevo != null) {
+            cambio.accept(nuevo);
+        }
+    }
+
+    private static List<String> trigramas(String clave) {
+        List<String> resultado = new ArrayList<>();
+        for (int i = 0; i + LONGITUD_TRIGRAMA <= clave.length(); i++) {
+            resultado.add(clave.substring(i, i + LONGITUD_TRIGRAMA));
+        }
+        return resultado;
+    }
+
+    // Las escrituras se serializan con el monitor de la instancia; las lecturas no bloquean
+    private static class Indice {
+
+        private final Map<Long, String> numeros = new ConcurrentHashMap<>();
+        private final Map<String, Set<Long>> publicaciones = new ConcurrentHashMap<>();
+        private final Set<Long> tocadosDuranteCarga = ConcurrentHashMap.newKeySet();
+        private boolean cargando = true;
+
+        synchronized void agregar(Long id, String clave) {
+            marcarTocado(id);
+            String anterior = numeros.put(id, clave);
+            if (anterior != null) {
+                if (anterior.equals(clave)) {
+                    return;
+                }
+                desindexar(id, anterior);
+            }
+            indexar(id, clave);
+        }
+
+        synchronized void quitar(Long id) {
+            marcarTocado(id);
+            String anterior = numeros.remove(id);
+            if (anterior != null) {
+                desindexar(id, anterior);
+            }
+        }
+
+        synchronized void cargar(Long id, String clave) {
+            if (!tocadosDuranteCarga.contains(id) && numeros.putIfAbsent(id, clave) == null) {
+                indexar(id, clave);
+            }
+        }
+
+        synchronized void terminarCarga() {
+            cargando = false;
+            tocadosDuranteCarga.clear();
+        }
+
+        List<Long> buscar(String fragmento, int limite) {
+            List<Long> coincidencias = new ArrayList<>();
+            if (fragmento.length() < LONGITUD_TRIGRAMA) {
+                // Fragmentos cortos no forman trigramas: se recorre el diccionario en memoria
+                numeros.forEach((id, clave) -> {
+                    if (clave.contains(fragmento)) {
+                        coincidencias.add(id);
+                    }
+                });
+            } else {
+                // Intersectar las listas partiendo de la más corta y verificar el fragmento completo
+                List<Set<Long>> listas = new ArrayList<>();
+                for (String trigrama : trigramas(fragmento)) {
+                    Set<Long> lista = publicaciones.get(trigrama);
+                    if (lista == null) {
+                        return List.of();
+                    }
+                    listas.add(lista);
+                }
+                listas.sort(Comparator.comparingInt(Set::size));
+                for (Long id : listas.get(0)) {
+                    String clave = numeros.get(id);
+                    if (clave != null && clave.contains(fragmento) && contenidoEnTodas(id, listas)) {
+                        coincidencias.add(id);
+                    }
+                }
+            }
+
+            // Relevancia: coincidencia exacta, luego prefijo, posición más temprana y número más corto
+            Comparator<Long> relevancia = Comparator
+                .comparing((Long id) -> !numeros.getOrDefault(id, "").equals(fragmento))
+                .thenComparing(id -> !numeros.getOrDefault(id, "").startsWith(fragmento))
+                .thenComparingInt(id -> numeros.getOrDefault(id, "").indexOf(fragmento))
+                .thenComparingInt(id -> numeros.getOrDefault(id, "").length())
+                .thenComparing(Comparator.naturalOrder());
+            return coincidencias.stream()
+                .sorted(relevancia)
+                .limit(limite)
+                .toList();
+        }
+
+        private void marcarTocado(Long id) {
+            if (cargando) {
+                tocadosDuranteCarga.add(id);
+            }
+        }
+
+        private boolean contenidoEnTodas(Long id, List<Set<Long>> listas) {
+            for (int i = 1; i < listas.size(); i++) {
+                if (!listas.get(i).contains(id)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void indexar(Long id, String clave) {
+            for (String trigrama : trigramas(clave)) {
+                publicaciones.computeIfAbsent(trigrama, t -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+
+        private void desindexar(Long id, String clave) {
+            for (String trigrama : trigramas(clave)) {
+                Set<Long> lista = publicaciones.get(trigrama);
+                if (lista != null) {
+                    lista.remove(id);
+                    if (lista.isEmpty()) {
+                        publicaciones.remove(trigrama);
+                    }
+                }
+            }
+        }
+    }
+}
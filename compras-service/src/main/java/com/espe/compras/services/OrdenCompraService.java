@@ -1,44 +1,71 @@
 package com.espe.compras.services;
 
+import com.espe.compras.dto.EstadisticaProductoDTO;
+import com.espe.compras.dto.Granularidad;
+import com.espe.compras.dto.OrdenCompraResumen;
+import com.espe.compras.dto.PuntoSerieTemporal;
+import com.espe.compras.dto.ResultadoCambioEstadoLote;
+import com.espe.compras.dto.ResultadoLote;
 import com.espe.compras.models.OrdenCompra;
 import com.espe.compras.models.DetalleOrden;
 import com.espe.compras.models.EstadoOrden;
+import com.espe.compras.models.HistorialEstadoOrden;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.math.BigDecimal;
 
 public interface OrdenCompraService {
+
+    // Tamaño de página por defecto y máximo para los listados paginados por cursor
+    int LIMITE_POR_DEFECTO = 100;
+    int LIMITE_MAXIMO = 1000;
     
     // Operaciones CRUD básicas
     OrdenCompra crearOrdenCompra(OrdenCompra ordenCompra);
+    ResultadoLote crearOrdenesEnLote(List<OrdenCompra> ordenes);
     OrdenCompra obtenerOrdenCompraPorId(Long id);
-    List<OrdenCompra> obtenerTodasLasOrdenes();
+    List<OrdenCompra> obtenerTodasLasOrdenes(Long after, int limit);
     OrdenCompra actualizarOrdenCompra(Long id, OrdenCompra ordenCompra);
     void eliminarOrdenCompra(Long id);
     
     // Operaciones de búsqueda
-    List<OrdenCompra> buscarOrdenesPorEstado(EstadoOrden estado);
-    List<OrdenCompra> buscarOrdenesPorProveedor(Long proveedorId);
-    List<OrdenCompra> buscarOrdenesPorRangoFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin);
-    List<OrdenCompra> buscarOrdenesPorNumeroFactura(String numeroFactura);
+    List<OrdenCompra> buscarOrdenesPorEstado(EstadoOrden estado, Long after, int limit);
+    List<OrdenCompra> buscarOrdenesPorProveedor(Long proveedorId, Long after, int limit);
+    List<OrdenCompra> buscarOrdenesPorRangoFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin, Long after, int limit);
+    List<OrdenCompra> buscarOrdenesPorNumeroFactura(String numeroFactura, int limit);
+    
+    // Listados en vista resumen: un solo SELECT de columnas, sin cargar los detalles
+    List<OrdenCompraResumen> resumirTodasLasOrdenes(Long after, int limit);
+    List<OrdenCompraResumen> resumirOrdenesPorEstado(EstadoOrden estado, Long after, int limit);
+    List<OrdenCompraResumen> resumirOrdenesPorProveedor(Long proveedorId, Long after, int limit);
+    List<OrdenCompraResumen> resumirOrdenesPorRangoFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin, Long after, int limit);
+    List<OrdenCompraResumen> resumirOrdenesPorNumeroFactura(String numeroFactura, int limit);
     
     // Operaciones de estado
     OrdenCompra cambiarEstadoOrden(Long id, EstadoOrden nuevoEstado);
-    List<OrdenCompra> obtenerOrdenesPendientes();
-    List<OrdenCompra> obtenerOrdenesEnProceso();
-    List<OrdenCompra> obtenerOrdenesCompletadas();
-    List<OrdenCompra> obtenerOrdenesCanceladas();
+    ResultadoCambioEstadoLote cambiarEstadoOrdenes(List<Long> ids, EstadoOrden nuevoEstado);
+    List<HistorialEstadoOrden> obtenerHistorialEstados(Long id);
+    List<OrdenCompra> obtenerOrdenesPendientes(Long after, int limit);
+    List<OrdenCompra> obtenerOrdenesEnProceso(Long after, int limit);
+    List<OrdenCompra> obtenerOrdenesCompletadas(Long after, int limit);
+    List<OrdenCompra> obtenerOrdenesCanceladas(Long after, int limit);
     
     // Operaciones de detalles
     DetalleOrden agregarDetalleOrden(Long ordenId, DetalleOrden detalle);
     DetalleOrden actualizarDetalleOrden(Long ordenId, Long detalleId, DetalleOrden detalle);
     void eliminarDetalleOrden(Long ordenId, Long detalleId);
+    OrdenCompra reemplazarDetallesOrden(Long ordenId, List<DetalleOrden> detalles);
     
     // Operaciones de estadísticas
     Long contarOrdenesPorEstado(EstadoOrden estado);
     BigDecimal obtenerTotalComprasPorProveedor(Long proveedorId);
     BigDecimal obtenerTotalComprasPorRangoFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin);
+    List<EstadisticaProductoDTO> obtenerEstadisticasProductos(List<Long> productoIds, LocalDateTime fechaInicio,
+                                                             LocalDateTime fechaFin, EstadoOrden estado);
+    List<EstadisticaProductoDTO> obtenerEstadisticasProductos(Long after, int limit, LocalDateTime fechaInicio,
+                                                             LocalDateTime fechaFin, EstadoOrden estado);
+    List<PuntoSerieTemporal> obtenerSerieTemporal(LocalDateTime fechaInicio, LocalDateTime fechaFin, Granularidad granularidad);
     
     // Validaciones
     boolean existeOrdenConNumeroFactura(String numeroFactura);
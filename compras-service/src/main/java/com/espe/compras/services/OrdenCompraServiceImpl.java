@@ -1,61 +1,248 @@
 package com.espe.compras.services;
 
+import com.espe.compras.dto.EstadisticaProductoDTO;
+import com.espe.compras.dto.Granularidad;
+import com.espe.compras.dto.OrdenCompraResumen;
+import com.espe.compras.dto.ProductoDTO;
+import com.espe.compras.dto.ProveedorDTO;
+import com.espe.compras.dto.PuntoSerieTemporal;
+import com.espe.compras.dto.ResultadoCambioEstadoLote;
+import com.espe.compras.dto.ResultadoItemLote;
+import com.espe.compras.dto.ResultadoLote;
 import com.espe.compras.models.OrdenCompra;
 import com.espe.compras.models.DetalleOrden;
 import com.espe.compras.models.EstadoOrden;
+import com.espe.compras.models.HistorialEstadoOrden;
 import com.espe.compras.repositories.OrdenCompraRepository;
 import com.espe.compras.repositories.DetalleOrdenRepository;
+import com.espe.compras.repositories.DetalleOrdenHistoricoRepository;
+import com.espe.compras.repositories.HistorialEstadoOrdenRepository;
+import com.espe.compras.repositories.OrdenCompraHistoricaRepository;
+import com.espe.compras.utils.Dinero;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class OrdenCompraServiceImpl implements OrdenCompraService {
 
+    // Coincide con hibernate.jdbc.batch_size
+    private static final int TAMANO_LOTE_ESCRITURA = 50;
+    private static final int TAMANO_CONSULTA_IN = 1000;
+
     private final OrdenCompraRepository ordenCompraRepository;
     private final DetalleOrdenRepository detalleOrdenRepository;
+    private final HistorialEstadoOrdenRepository historialEstadoOrdenRepository;
+    private final OrdenCompraHistoricaRepository ordenCompraHistoricaRepository;
+    private final DetalleOrdenHistoricoRepository detalleOrdenHistoricoRepository;
+    private final ResumenService resumenService;
+    private final GastoProveedorService gastoProveedorService;
+    private final OutboxInventarioService outboxInventarioService;
+    private final CatalogoService catalogoService;
+    private final IndiceNumerosFactura indiceNumerosFactura;
+    private final IndiceTrigramasFactura indiceTrigramasFactura;
+    private final ArchivoOrdenesService archivoOrdenesService;
+    private final EventosOrdenService eventosOrdenService;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    // Tasa de IVA (compras.iva.tasa) en partes por millón, aplicada sobre el subtotal
+    private final long tasaIvaPartesPorMillon;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Autowired
     public OrdenCompraServiceImpl(OrdenCompraRepository ordenCompraRepository, 
-                                 DetalleOrdenRepository detalleOrdenRepository) {
+                                 DetalleOrdenRepository detalleOrdenRepository,
+                                 HistorialEstadoOrdenRepository historialEstadoOrdenRepository,
+                                 OrdenCompraHistoricaRepository ordenCompraHistoricaRepository,
+                                 DetalleOrdenHistoricoRepository detalleOrdenHistoricoRepository,
+                                 ResumenService resumenService,
+                                 GastoProveedorService gastoProveedorService,
+                                 OutboxInventarioService outboxInventarioService,
+                                 CatalogoService catalogoService,
+                                 IndiceNumerosFactura indiceNumerosFactura,
+                                 IndiceTrigramasFactura indiceTrigramasFactura,
+                                 ArchivoOrdenesService archivoOrdenesService,
+                                 EventosOrdenService eventosOrdenService,
+                                 Validator validator,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${compras.iva.tasa:0.15}") BigDecimal tasaIva) {
+        if (tasaIva.signum() < 0 || tasaIva.compareTo(BigDecimal.ONE) >= 0) {
+            throw new IllegalArgumentException("La tasa de IVA debe estar entre 0 y 1: " + tasaIva);
+        }
         this.ordenCompraRepository = ordenCompraRepository;
         this.detalleOrdenRepository = detalleOrdenRepository;
+        this.historialEstadoOrdenRepository = historialEstadoOrdenRepository;
+        this.ordenCompraHistoricaRepository = ordenCompraHistoricaRepository;
+        this.detalleOrdenHistoricoRepository = detalleOrdenHistoricoRepository;
+        this.resumenService = resumenService;
+        this.gastoProveedorService = gastoProveedorService;
+        this.outboxInventarioService = outboxInventarioService;
+        this.catalogoService = catalogoService;
+        this.indiceNumerosFactura = indiceNumerosFactura;
+        this.indiceTrigramasFactura = indiceTrigramasFactura;
+        this.archivoOrdenesService = archivoOrdenesService;
+        this.eventosOrdenService = eventosOrdenService;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tasaIvaPartesPorMillon = Dinero.partesPorMillon(tasaIva);
     }
 
+    // Las consultas al catálogo (Feign) se hacen sin transacción: la escritura abre la suya
+    // después, para no retener una conexión ni bloqueos durante las llamadas remotas
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public OrdenCompra crearOrdenCompra(OrdenCompra ordenCompra) {
         // Validar que no exista una orden con el mismo número de factura
         if (existeOrdenConNumeroFactura(ordenCompra.getNumeroFactura())) {
             throw new RuntimeException("Ya existe una orden con el número de factura: " + ordenCompra.getNumeroFactura());
         }
         
-        // Establecer fecha de creación si no está definida
-        if (ordenCompra.getFechaCreacion() == null) {
-            ordenCompra.setFechaCreacion(LocalDateTime.now());
+        // Validar proveedor y productos contra el catálogo y completar nombre y precio de cada línea
+        String errorCatalogo = validarCatalogo(ordenCompra,
+            catalogoService.obtenerProductos(idsProductos(List.of(ordenCompra))),
+            catalogoService.obtenerProveedores(idsProveedores(List.of(ordenCompra))));
+        if (errorCatalogo != null) {
+            throw new RuntimeException(errorCatalogo);
         }
         
-        // Establecer estado por defecto si no está definido
-        if (ordenCompra.getEstado() == null) {
-            ordenCompra.setEstado(EstadoOrden.PENDIENTE);
-        }
+        prepararNuevaOrden(ordenCompra);
+        return transactionTemplate.execute(estado -> guardarNuevaOrden(ordenCompra));
+    }
+
+    private OrdenCompra guardarNuevaOrden(OrdenCompra ordenCompra) {
+        OrdenCompra ordenGuardada = ordenCompraRepository.save(ordenCompra);
+        historialEstadoOrdenRepository.save(
+            new HistorialEstadoOrden(ordenGuardada.getId(), null, ordenGuardada.getEstado(), LocalDateTime.now()));
+        indiceNumerosFactura.registrar(ordenGuardada.getNumeroFactura());
+        indiceTrigramasFactura.registrar(ordenGuardada.getId(), ordenGuardada.getNumeroFactura());
+        resumenService.registrarCreacion(ordenGuardada.getEstado(), ordenGuardada.getFechaEmision(), ordenGuardada.getTotal());
+        gastoProveedorService.registrarCreacion(ordenGuardada.getProveedorId(), ordenGuardada.getFechaEmision(),
+            ordenGuardada.getTotal());
+        eventosOrdenService.registrarCreacion(ordenGuardada.getId(), ordenGuardada.getEstado());
+        return ordenGuardada;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResultadoLote crearOrdenesEnLote(List<OrdenCompra> ordenes) {
+        long inicio = System.nanoTime();
+        ResultadoItemLote[] resultados = new ResultadoItemLote[ordenes.size()];
+        List<Integer> candidatas = new ArrayList<>();
+        Set<String> clavesEnLote = new HashSet<>();
         
-        // Establecer la relación bidireccional con los detalles
-        if (ordenCompra.getDetalles() != null && !ordenCompra.getDetalles().isEmpty()) {
-            for (DetalleOrden detalle : ordenCompra.getDetalles()) {
-                detalle.setOrdenCompra(ordenCompra);
+        // Resolver todos los productos y proveedores del lote con una consulta al catálogo de cada uno
+        Map<Long, ProductoDTO> productos = catalogoService.obtenerProductos(idsProductos(ordenes));
+        Map<Long, ProveedorDTO> proveedores = catalogoService.obtenerProveedores(idsProveedores(ordenes));
+        
+        // Validar cada orden y descartar facturas repetidas dentro del mismo lote
+        for (int i = 0; i < ordenes.size(); i++) {
+            OrdenCompra orden = ordenes.get(i);
+            if (orden == null) {
+                resultados[i] = ResultadoItemLote.rechazada(i, null, "La orden no puede ser nula");
+                continue;
+            }
+            String error = validarCatalogo(orden, productos, proveedores);
+            prepararNuevaOrden(orden);
+            if (error == null) {
+                error = validarOrden(orden);
+            }
+            if (error == null && !clavesEnLote.add(IndiceNumerosFactura.clave(orden.getNumeroFactura()))) {
+                error = "Número de factura repetido dentro del lote: " + orden.getNumeroFactura();
+            }
+            if (error != null) {
+                resultados[i] = ResultadoItemLote.rechazada(i, orden.getNumeroFactura(), error);
+            } else {
+                candidatas.add(i);
             }
         }
         
-        // Calcular totales
-        ordenCompra.actualizarTotales();
+        int creadas = transactionTemplate.execute(estado -> persistirLote(ordenes, candidatas, resultados));
+        
+        long duracionNanos = System.nanoTime() - inicio;
+        double ordenesPorSegundo = duracionNanos > 0 ? creadas * 1_000_000_000.0 / duracionNanos : 0;
+        return new ResultadoLote(
+            ordenes.size(),
+            creadas,
+            ordenes.size() - creadas,
+            duracionNanos / 1_000_000,
+            ordenesPorSegundo,
+            Arrays.asList(resultados)
+        );
+    }
+
+    // Escritura del lote ya validado; devuelve cuántas órdenes se crearon
+    private int persistirLote(List<OrdenCompra> ordenes, List<Integer> candidatas, ResultadoItemLote[] resultados) {
+        // Verificar unicidad contra la base de datos con consultas IN por bloques
+        List<String> porConsultar = candidatas.stream()
+            .map(i -> ordenes.get(i).getNumeroFactura())
+            .filter(indiceNumerosFactura::puedeExistir)
+            .toList();
+        Set<String> existentes = new HashSet<>();
+        for (int desde = 0; desde < porConsultar.size(); desde += TAMANO_CONSULTA_IN) {
+            List<String> bloque = porConsultar.subList(desde, Math.min(desde + TAMANO_CONSULTA_IN, porConsultar.size()));
+            ordenCompraRepository.findNumerosFacturaExistentes(bloque)
+                .forEach(numero -> existentes.add(IndiceNumerosFactura.clave(numero)));
+            archivoOrdenesService.numerosFacturaExistentes(bloque)
+                .forEach(numero -> existentes.add(IndiceNumerosFactura.clave(numero)));
+        }
+        
+        // Persistir en bloques del tamaño del batch JDBC, liberando el contexto de persistencia
+        List<OrdenCompra> ordenesCreadas = new ArrayList<>();
+        for (int i : candidatas) {
+            OrdenCompra orden = ordenes.get(i);
+            if (existentes.contains(IndiceNumerosFactura.clave(orden.getNumeroFactura()))) {
+                resultados[i] = ResultadoItemLote.rechazada(i, orden.getNumeroFactura(),
+                    "Ya existe una orden con el número de factura: " + orden.getNumeroFactura());
+                continue;
+            }
+            entityManager.persist(orden);
+            entityManager.persist(new HistorialEstadoOrden(orden.getId(), null, orden.getEstado(), LocalDateTime.now()));
+            indiceNumerosFactura.registrar(orden.getNumeroFactura());
+            indiceTrigramasFactura.registrar(orden.getId(), orden.getNumeroFactura());
+            resumenService.registrarCreacion(orden.getEstado(), orden.getFechaEmision(), orden.getTotal());
+            eventosOrdenService.registrarCreacion(orden.getId(), orden.getEstado());
+            resultados[i] = ResultadoItemLote.creada(i, orden.getNumeroFactura(), orden.getId());
+            ordenesCreadas.add(orden);
+            if (ordenesCreadas.size() % TAMANO_LOTE_ESCRITURA == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
         
-        return ordenCompraRepository.save(ordenCompra);
+        // Un upsert de la proyección de gasto por cada proveedor y mes del lote
+        gastoProveedorService.registrarCreaciones(ordenesCreadas);
+        return ordenesCreadas.size();
     }
 
     @Override
@@ -68,18 +255,35 @@ public class OrdenCompraServiceImpl implements OrdenCompraService {
             orden.getDetalles().size(); // Forzar la carga de la colección
             return orden;
         }
-        throw new RuntimeException("Orden de compra no encontrada con ID: " + id);
+        // Las órdenes terminales antiguas se consultan en el archivo
+        return archivoOrdenesService.buscarPorId(id)
+            .orElseThrow(() -> new RuntimeException("Orden de compra no encontrada con ID: " + id));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<OrdenCompra> obtenerTodasLasOrdenes() {
-        return ordenCompraRepository.findAll();
+    public List<OrdenCompra> obtenerTodasLasOrdenes(Long after, int limit) {
+        Limit limite = limite(limit);
+        return fusionar(
+            cargarDetalles(ordenCompraRepository.findByIdGreaterThanOrderByIdAsc(cursor(after), limite)),
+            archivoOrdenesService.listar(cursor(after), limite),
+            limite, OrdenCompra::getId);
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public OrdenCompra actualizarOrdenCompra(Long id, OrdenCompra ordenCompra) {
-        OrdenCompra ordenExistente = obtenerOrdenCompraPorId(id);
+        // Validar el proveedor nuevo contra el catálogo antes de abrir la transacción de escritura
+        Long proveedorActual = ordenCompraRepository.findProveedorIdById(id).orElse(null);
+        if (proveedorActual != null && !proveedorActual.equals(ordenCompra.getProveedorId()) &&
+            catalogoService.obtenerProveedor(ordenCompra.getProveedorId()).isEmpty()) {
+            throw new RuntimeException("Proveedor no encontrado con ID: " + ordenCompra.getProveedorId());
+        }
+        return transactionTemplate.execute(estado -> guardarCambiosOrden(id, ordenCompra));
+    }
+
+    private OrdenCompra guardarCambiosOrden(Long id, OrdenCompra ordenCompra) {
+        OrdenCompra ordenExistente = buscarOrdenConDetalles(id);
         
         // Validar que el nuevo número de factura no exista (si se está cambiando)
         if (!ordenExistente.getNumeroFactura().equals(ordenCompra.getNumeroFactura()) &&
@@ -87,8 +291,13 @@ public class OrdenCompraServiceImpl implements OrdenCompraService {
             throw new RuntimeException("Ya existe una orden con el número de factura: " + ordenCompra.getNumeroFactura());
         }
         
+        LocalDateTime fechaAnterior = ordenExistente.getFechaEmision();
+        BigDecimal totalAnterior = ordenExistente.getTotal();
+        Long proveedorAnterior = ordenExistente.getProveedorId();
+        
         // Actualizar campos permitidos
         ordenExistente.setProveedorId(ordenCompra.getProveedorId());
+        ordenExistente.setBodegaId(ordenCompra.getBodegaId());
         ordenExistente.setNumeroFactura(ordenCompra.getNumeroFactura());
         ordenExistente.setFechaEmision(ordenCompra.getFechaEmision());
         ordenExistente.setFechaEntrega(ordenCompra.getFechaEntrega());
@@ -97,107 +306,316 @@ public class OrdenCompraServiceImpl implements OrdenCompraService {
         // No permitir cambiar el estado directamente a través de este método
         // Usar cambiarEstadoOrden en su lugar
         
-        return ordenCompraRepository.save(ordenExistente);
+        OrdenCompra ordenActualizada = ordenCompraRepository.save(ordenExistente);
+        indiceNumerosFactura.registrar(ordenActualizada.getNumeroFactura());
+        indiceTrigramasFactura.registrar(ordenActualizada.getId(), ordenActualizada.getNumeroFactura());
+        resumenService.registrarCambioTotal(fechaAnterior, totalAnterior,
+            ordenActualizada.getFechaEmision(), ordenActualizada.getTotal());
+        gastoProveedorService.registrarCambio(proveedorAnterior, fechaAnterior, totalAnterior,
+            ordenActualizada.getProveedorId(), ordenActualizada.getFechaEmision(), ordenActualizada.getTotal());
+        eventosOrdenService.registrarActualizacion(ordenActualizada.getId(), ordenActualizada.getEstado());
+        return ordenActualizada;
     }
 
     @Override
     public void eliminarOrdenCompra(Long id) {
-        OrdenCompra orden = obtenerOrdenCompraPorId(id);
+        OrdenCompra orden = buscarOrdenConDetalles(id);
         
         // Solo permitir eliminar órdenes en estado PENDIENTE
         if (orden.getEstado() != EstadoOrden.PENDIENTE) {
             throw new RuntimeException("Solo se pueden eliminar órdenes en estado PENDIENTE");
         }
         
+        // El historial de estados se elimina junto con la orden: no hay estado ELIMINADA y una orden
+        // borrada deja de existir para /historial, así que sus filas quedarían huérfanas
+        historialEstadoOrdenRepository.deleteByOrdenCompraId(orden.getId());
         ordenCompraRepository.delete(orden);
+        resumenService.registrarEliminacion(orden.getEstado(), orden.getFechaEmision(), orden.getTotal());
+        gastoProveedorService.registrarEliminacion(orden.getProveedorId(), orden.getFechaEmision(), orden.getTotal());
+        indiceTrigramasFactura.eliminar(orden.getId());
+        eventosOrdenService.registrarEliminacion(orden.getId(), orden.getEstado());
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<OrdenCompra> buscarOrdenesPorEstado(EstadoOrden estado) {
-        return ordenCompraRepository.findByEstado(estado);
+    public List<OrdenCompra> buscarOrdenesPorEstado(EstadoOrden estado, Long after, int limit) {
+        // Los estados no terminales sólo existen en las tablas activas
+        Limit limite = limite(limit);
+        return fusionar(
+            cargarDetalles(ordenCompraRepository.findByEstadoAndIdGreaterThanOrderByIdAsc(estado, cursor(after), limite)),
+            archivoOrdenesService.listarPorEstado(estado, cursor(after), limite),
+            limite, OrdenCompra::getId);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<OrdenCompra> buscarOrdenesPorProveedor(Long proveedorId) {
-        return ordenCompraRepository.findByProveedorId(proveedorId);
+    public List<OrdenCompra> buscarOrdenesPorProveedor(Long proveedorId, Long after, int limit) {
+        Limit limite = limite(limit);
+        return fusionar(
+            cargarDetalles(ordenCompraRepository.findByProveedorIdAndIdGreaterThanOrderByIdAsc(
+                proveedorId, cursor(after), limite)),
+            archivoOrdenesService.listarPorProveedor(proveedorId, cursor(after), limite),
+            limite, OrdenCompra::getId);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<OrdenCompra> buscarOrdenesPorRangoFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin) {
-        return ordenCompraRepository.findByFechaEmisionBetween(fechaInicio, fechaFin);
+    public List<OrdenCompra> buscarOrdenesPorRangoFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin,
+                                                         Long after, int limit) {
+        // Los rangos posteriores a la última orden archivada sólo consultan las tablas activas
+        Limit limite = limite(limit);
+        return fusionar(
+            cargarDetalles(ordenCompraRepository.findByFechaEmisionBetweenAndIdGreaterThanOrderByIdAsc(
+                fechaInicio, fechaFin, cursor(after), limite)),
+            archivoOrdenesService.listarPorRangoFechas(fechaInicio, fechaFin, cursor(after), limite),
+            limite, OrdenCompra::getId);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<OrdenCompra> buscarOrdenesPorNumeroFactura(String numeroFactura) {
-        return ordenCompraRepository.findByNumeroFacturaContainingIgnoreCase(numeroFactura);
+    public List<OrdenCompra> buscarOrdenesPorNumeroFactura(String numeroFactura, int limit) {
+        Limit limite = limite(limit);
+        Optional<List<Long>> ids = indiceTrigramasFactura.buscar(numeroFactura, limite.max());
+        if (ids.isEmpty()) {
+            // Índice en construcción: se recurre a la búsqueda LIKE sobre las tablas
+            return fusionar(
+                cargarDetalles(ordenCompraRepository.findByNumeroFacturaContainingIgnoreCaseAndIdGreaterThanOrderByIdAsc(
+                    numeroFactura, 0L, limite)),
+                archivoOrdenesService.buscarPorNumeroFactura(numeroFactura, limite),
+                limite, OrdenCompra::getId);
+        }
+        
+        // Cargar las órdenes encontradas respetando el orden de relevancia del índice
+        Map<Long, OrdenCompra> porId = new HashMap<>();
+        cargarDetalles(ordenCompraRepository.findAllById(ids.get())).forEach(orden -> porId.put(orden.getId(), orden));
+        if (porId.size() < ids.get().size()) {
+            archivoOrdenesService.buscarPorIds(ids.get().stream().filter(id -> !porId.containsKey(id)).toList())
+                .forEach(orden -> porId.put(orden.getId(), orden));
+        }
+        return ids.get().stream()
+            .map(porId::get)
+            .filter(Objects::nonNull)
+            .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<OrdenCompraResumen> resumirTodasLasOrdenes(Long after, int limit) {
+        Limit limite = limite(limit);
+        return fusionar(
+            ordenCompraRepository.findByIdGreaterThanOrderByIdAsc(cursor(after), limite, OrdenCompraResumen.class),
+            archivoOrdenesService.resumir(cursor(after), limite),
+            limite, OrdenCompraResumen::id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<OrdenCompraResumen> resumirOrdenesPorEstado(EstadoOrden estado, Long after, int limit) {
+        Limit limite = limite(limit);
+        return fusionar(
+            ordenCompraRepository.findByEstadoAndIdGreaterThanOrderByIdAsc(
+                estado, cursor(after), limite, OrdenCompraResumen.class),
+            archivoOrdenesService.resumirPorEstado(estado, cursor(after), limite),
+            limite, OrdenCompraResumen::id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<OrdenCompraResumen> resumirOrdenesPorProveedor(Long proveedorId, Long after, int limit) {
+        Limit limite = limite(limit);
+        return fusionar(
+            ordenCompraRepository.findByProveedorIdAndIdGreaterThanOrderByIdAsc(
+                proveedorId, cursor(after), limite, OrdenCompraResumen.class),
+            archivoOrdenesService.resumirPorProveedor(proveedorId, cursor(after), limite),
+            limite, OrdenCompraResumen::id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<OrdenCompraResumen> resumirOrdenesPorRangoFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin,
+                                                                 Long after, int limit) {
+        Limit limite = limite(limit);
+        return fusionar(
+            ordenCompraRepository.findByFechaEmisionBetweenAndIdGreaterThanOrderByIdAsc(
+                fechaInicio, fechaFin, cursor(after), limite, OrdenCompraResumen.class),
+            archivoOrdenesService.resumirPorRangoFechas(fechaInicio, fechaFin, cursor(after), limite),
+            limite, OrdenCompraResumen::id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<OrdenCompraResumen> resumirOrdenesPorNumeroFactura(String numeroFactura, int limit) {
+        Limit limite = limite(limit);
+        Optional<List<Long>> ids = indiceTrigramasFactura.buscar(numeroFactura, limite.max());
+        if (ids.isEmpty()) {
+            return fusionar(
+                ordenCompraRepository.findByNumeroFacturaContainingIgnoreCaseAndIdGreaterThanOrderByIdAsc(
+                    numeroFactura, 0L, limite, OrdenCompraResumen.class),
+                archivoOrdenesService.resumirPorNumeroFactura(numeroFactura, limite),
+                limite, OrdenCompraResumen::id);
+        }
+        
+        Map<Long, OrdenCompraResumen> porId = new HashMap<>();
+        ordenCompraRepository.findByIdIn(ids.get(), OrdenCompraResumen.class)
+            .forEach(orden -> porId.put(orden.id(), orden));
+        if (porId.size() < ids.get().size()) {
+            archivoOrdenesService.resumirPorIds(ids.get().stream().filter(id -> !porId.containsKey(id)).toList())
+                .forEach(orden -> porId.put(orden.id(), orden));
+        }
+        return ids.get().stream()
+            .map(porId::get)
+            .filter(Objects::nonNull)
+            .toList();
     }
 
     @Override
     public OrdenCompra cambiarEstadoOrden(Long id, EstadoOrden nuevoEstado) {
-        OrdenCompra orden = obtenerOrdenCompraPorId(id);
+        // Con la fila bloqueada (como en cambiarEstadoOrdenes) dos transiciones concurrentes
+        // no pueden validar ambas contra el mismo estado anterior
+        OrdenCompra orden = ordenCompraRepository.findParaActualizar(id)
+            .orElseThrow(() -> ordenNoEncontrada(id));
+        EstadoOrden estadoAnterior = orden.getEstado();
         
-        // Validar que se pueda cambiar al nuevo estado
-        if (!puedeCambiarEstado(id, nuevoEstado)) {
-            throw new RuntimeException("No se puede cambiar la orden de " + orden.getEstado() + " a " + nuevoEstado);
+        // Validar la transición sobre la orden ya cargada
+        if (!estadoAnterior.puedeCambiarA(nuevoEstado)) {
+            throw new RuntimeException("No se puede cambiar la orden de " + estadoAnterior + " a " + nuevoEstado);
         }
         
         orden.setEstado(nuevoEstado);
-        return ordenCompraRepository.save(orden);
+        OrdenCompra ordenActualizada = ordenCompraRepository.save(orden);
+        historialEstadoOrdenRepository.save(
+            new HistorialEstadoOrden(id, estadoAnterior, nuevoEstado, LocalDateTime.now()));
+        if (nuevoEstado == EstadoOrden.COMPLETADA) {
+            outboxInventarioService.registrarRecepcion(List.of(id));
+        }
+        resumenService.registrarCambioEstado(estadoAnterior, nuevoEstado);
+        eventosOrdenService.registrarCambioEstado(id, estadoAnterior, nuevoEstado);
+        return ordenActualizada;
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<OrdenCompra> obtenerOrdenesPendientes() {
-        return buscarOrdenesPorEstado(EstadoOrden.PENDIENTE);
+    public List<HistorialEstadoOrden> obtenerHistorialEstados(Long id) {
+        if (!ordenCompraRepository.existsById(id) && !archivoOrdenesService.estaArchivada(id)) {
+            throw new RuntimeException("Orden de compra no encontrada con ID: " + id);
+        }
+        return historialEstadoOrdenRepository.findByOrdenCompraIdOrderByFechaCambioAscIdAsc(id);
+    }
+
+    @Override
+    public ResultadoCambioEstadoLote cambiarEstadoOrdenes(List<Long> ids, EstadoOrden nuevoEstado) {
+        List<Long> idsOrdenados = ids.stream().distinct().sorted().toList();
+        Set<EstadoOrden> predecesores = nuevoEstado.predecesores();
+        List<Long> actualizadas = new ArrayList<>();
+        List<ResultadoCambioEstadoLote.Rechazo> rechazadas = new ArrayList<>();
+        LocalDateTime ahora = LocalDateTime.now();
+        
+        for (int desde = 0; desde < idsOrdenados.size(); desde += TAMANO_CONSULTA_IN) {
+            List<Long> bloque = idsOrdenados.subList(desde, Math.min(desde + TAMANO_CONSULTA_IN, idsOrdenados.size()));
+            
+            // Bloquear las filas (en orden de id) para que el UPDATE condicional afecte exactamente a las validadas
+            Map<Long, EstadoOrden> estadosActuales = new HashMap<>();
+            for (Object[] fila : ordenCompraRepository.findEstadosByIdInForUpdate(bloque)) {
+                estadosActuales.put(((Number) fila[0]).longValue(), EstadoOrden.valueOf((String) fila[1]));
+            }
+            
+            List<Long> permitidas = new ArrayList<>();
+            for (Long id : bloque) {
+                EstadoOrden estadoActual = estadosActuales.get(id);
+                if (estadoActual == null) {
+                    rechazadas.add(new ResultadoCambioEstadoLote.Rechazo(id, "Orden de compra no encontrada"));
+                } else if (!estadoActual.puedeCambiarA(nuevoEstado)) {
+                    rechazadas.add(new ResultadoCambioEstadoLote.Rechazo(id,
+                        "No se puede cambiar la orden de " + estadoActual + " a " + nuevoEstado));
+                } else {
+                    permitidas.add(id);
+                }
+            }
+            
+            if (!permitidas.isEmpty()) {
+                ordenCompraRepository.updateEstadoByIdInAndEstadoIn(permitidas, predecesores, nuevoEstado, ahora);
+                List<HistorialEstadoOrden> historial = new ArrayList<>(permitidas.size());
+                for (Long id : permitidas) {
+                    historial.add(new HistorialEstadoOrden(id, estadosActuales.get(id), nuevoEstado, ahora));
+                    resumenService.registrarCambioEstado(estadosActuales.get(id), nuevoEstado);
+                    eventosOrdenService.registrarCambioEstado(id, estadosActuales.get(id), nuevoEstado);
+                }
+                historialEstadoOrdenRepository.saveAll(historial);
+                if (nuevoEstado == EstadoOrden.COMPLETADA) {
+                    outboxInventarioService.registrarRecepcion(permitidas);
+                }
+                actualizadas.addAll(permitidas);
+            }
+        }
+        
+        return new ResultadoCambioEstadoLote(nuevoEstado, actualizadas, rechazadas);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<OrdenCompra> obtenerOrdenesEnProceso() {
-        return buscarOrdenesPorEstado(EstadoOrden.EN_PROCESO);
+    public List<OrdenCompra> obtenerOrdenesPendientes(Long after, int limit) {
+        return buscarOrdenesPorEstado(EstadoOrden.PENDIENTE, after, limit);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<OrdenCompra> obtenerOrdenesCompletadas() {
-        return buscarOrdenesPorEstado(EstadoOrden.COMPLETADA);
+    public List<OrdenCompra> obtenerOrdenesEnProceso(Long after, int limit) {
+        return buscarOrdenesPorEstado(EstadoOrden.EN_PROCESO, after, limit);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<OrdenCompra> obtenerOrdenesCanceladas() {
-        return buscarOrdenesPorEstado(EstadoOrden.CANCELADA);
+    public List<OrdenCompra> obtenerOrdenesCompletadas(Long after, int limit) {
+        return buscarOrdenesPorEstado(EstadoOrden.COMPLETADA, after, limit);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<OrdenCompra> obtenerOrdenesCanceladas(Long after, int limit) {
+        return buscarOrdenesPorEstado(EstadoOrden.CANCELADA, after, limit);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public DetalleOrden agregarDetalleOrden(Long ordenId, DetalleOrden detalle) {
-        OrdenCompra orden = obtenerOrdenCompraPorId(ordenId);
+        enriquecerDetalle(detalle);
+        return transactionTemplate.execute(estado -> guardarDetalleNuevo(ordenId, detalle));
+    }
+
+    private DetalleOrden guardarDetalleNuevo(Long ordenId, DetalleOrden detalle) {
+        OrdenCompra orden = buscarOrdenConDetalles(ordenId);
         
         // Validar que la orden esté en estado PENDIENTE
         if (orden.getEstado() != EstadoOrden.PENDIENTE) {
             throw new RuntimeException("Solo se pueden agregar detalles a órdenes en estado PENDIENTE");
         }
         
-        // Asignar la orden al detalle
-        detalle.setOrdenCompra(orden);
+        BigDecimal totalAnterior = orden.getTotal();
+        
+        // Asignar la orden al detalle (los totales se ajustan con el subtotal de la nueva línea)
+        orden.agregarDetalle(detalle);
+        calcularTotales(orden);
         
         // Guardar el detalle
         DetalleOrden detalleGuardado = detalleOrdenRepository.save(detalle);
-        
-        // Actualizar totales de la orden
-        orden.actualizarTotales();
         ordenCompraRepository.save(orden);
+        resumenService.registrarCambioTotal(orden.getFechaEmision(), totalAnterior, orden.getFechaEmision(), orden.getTotal());
+        gastoProveedorService.registrarCambio(orden.getProveedorId(), orden.getFechaEmision(), totalAnterior,
+            orden.getProveedorId(), orden.getFechaEmision(), orden.getTotal());
+        eventosOrdenService.registrarActualizacion(orden.getId(), orden.getEstado());
         
         return detalleGuardado;
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public DetalleOrden actualizarDetalleOrden(Long ordenId, Long detalleId, DetalleOrden detalle) {
-        OrdenCompra orden = obtenerOrdenCompraPorId(ordenId);
+        enriquecerDetalle(detalle);
+        return transactionTemplate.execute(estado -> guardarCambiosDetalle(ordenId, detalleId, detalle));
+    }
+
+    private DetalleOrden guardarCambiosDetalle(Long ordenId, Long detalleId, DetalleOrden detalle) {
+        OrdenCompra orden = buscarOrdenConDetalles(ordenId);
         
         // Validar que la orden esté en estado PENDIENTE
         if (orden.getEstado() != EstadoOrden.PENDIENTE) {
@@ -210,27 +628,30 @@ public class OrdenCompraServiceImpl implements OrdenCompraService {
         }
         
         DetalleOrden detalleExistente = detalleOpt.get();
+        BigDecimal totalAnterior = orden.getTotal();
         
-        // Actualizar campos
+        // Actualizar campos (cada cambio de subtotal se traslada a los totales de la orden)
         detalleExistente.setProductoId(detalle.getProductoId());
         detalleExistente.setNombreProducto(detalle.getNombreProducto());
         detalleExistente.setCantidad(detalle.getCantidad());
         detalleExistente.setPrecioUnitario(detalle.getPrecioUnitario());
         detalleExistente.setDescuento(detalle.getDescuento());
+        calcularTotales(orden);
         
         // Guardar el detalle actualizado
         DetalleOrden detalleActualizado = detalleOrdenRepository.save(detalleExistente);
-        
-        // Actualizar totales de la orden
-        orden.actualizarTotales();
         ordenCompraRepository.save(orden);
+        resumenService.registrarCambioTotal(orden.getFechaEmision(), totalAnterior, orden.getFechaEmision(), orden.getTotal());
+        gastoProveedorService.registrarCambio(orden.getProveedorId(), orden.getFechaEmision(), totalAnterior,
+            orden.getProveedorId(), orden.getFechaEmision(), orden.getTotal());
+        eventosOrdenService.registrarActualizacion(orden.getId(), orden.getEstado());
         
         return detalleActualizado;
     }
 
     @Override
     public void eliminarDetalleOrden(Long ordenId, Long detalleId) {
-        OrdenCompra orden = obtenerOrdenCompraPorId(ordenId);
+        OrdenCompra orden = buscarOrdenConDetalles(ordenId);
         
         // Validar que la orden esté en estado PENDIENTE
         if (orden.getEstado() != EstadoOrden.PENDIENTE) {
@@ -243,62 +664,372 @@ public class OrdenCompraServiceImpl implements OrdenCompraService {
         }
         
         DetalleOrden detalle = detalleOpt.get();
+        BigDecimal totalAnterior = orden.getTotal();
         
-        // Eliminar el detalle
+        // Eliminar el detalle descontando su subtotal de la orden
+        orden.eliminarDetalle(detalle);
+        calcularTotales(orden);
         detalleOrdenRepository.delete(detalle);
-        
-        // Actualizar totales de la orden
-        orden.actualizarTotales();
         ordenCompraRepository.save(orden);
+        resumenService.registrarCambioTotal(orden.getFechaEmision(), totalAnterior, orden.getFechaEmision(), orden.getTotal());
+        gastoProveedorService.registrarCambio(orden.getProveedorId(), orden.getFechaEmision(), totalAnterior,
+            orden.getProveedorId(), orden.getFechaEmision(), orden.getTotal());
+        eventosOrdenService.registrarActualizacion(orden.getId(), orden.getEstado());
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public OrdenCompra reemplazarDetallesOrden(Long ordenId, List<DetalleOrden> detalles) {
+        // Resolver todos los productos con una sola consulta al catálogo, antes de la transacción
+        Map<Long, ProductoDTO> productos = catalogoService.obtenerProductos(detalles.stream()
+            .map(DetalleOrden::getProductoId)
+            .filter(Objects::nonNull)
+            .distinct()
+            .toList());
+        return transactionTemplate.execute(estado -> guardarDetallesOrden(ordenId, detalles, productos));
+    }
+
+    private OrdenCompra guardarDetallesOrden(Long ordenId, List<DetalleOrden> detalles, Map<Long, ProductoDTO> productos) {
+        OrdenCompra orden = buscarOrdenConDetalles(ordenId);
+        
+        // Validar que la orden esté en estado PENDIENTE
+        if (orden.getEstado() != EstadoOrden.PENDIENTE) {
+            throw new RuntimeException("Solo se pueden actualizar detalles de órdenes en estado PENDIENTE");
+        }
+        
+        // Indexar las líneas actuales y verificar que las referenciadas pertenezcan a la orden
+        Map<Long, DetalleOrden> existentes = new HashMap<>();
+        for (DetalleOrden detalle : orden.getDetalles()) {
+            existentes.put(detalle.getId(), detalle);
+        }
+        Set<Long> conservados = new HashSet<>();
+        for (DetalleOrden detalle : detalles) {
+            if (detalle.getId() == null) {
+                continue;
+            }
+            if (!existentes.containsKey(detalle.getId())) {
+                throw new RuntimeException("Detalle no encontrado o no pertenece a la orden especificada: " + detalle.getId());
+            }
+            if (!conservados.add(detalle.getId())) {
+                throw new RuntimeException("Detalle repetido en la solicitud: " + detalle.getId());
+            }
+        }
+        
+        BigDecimal totalAnterior = orden.getTotal();
+        
+        // Eliminar las líneas que ya no forman parte del conjunto (orphanRemoval genera los DELETE)
+        orden.getDetalles().removeIf(detalle -> !conservados.contains(detalle.getId()));
+        
+        // Actualizar las líneas conservadas e insertar las nuevas
+        for (DetalleOrden detalle : detalles) {
+            ProductoDTO producto = productos.get(detalle.getProductoId());
+            if (producto == null) {
+                throw new RuntimeException("Producto no encontrado con ID: " + detalle.getProductoId());
+            }
+            completarDetalle(detalle, producto);
+            if (detalle.getId() == null) {
+                detalle.setOrdenCompra(orden);
+                orden.getDetalles().add(detalle);
+            } else {
+                DetalleOrden detalleExistente = existentes.get(detalle.getId());
+                detalleExistente.setProductoId(detalle.getProductoId());
+                detalleExistente.setNombreProducto(detalle.getNombreProducto());
+                detalleExistente.setCantidad(detalle.getCantidad());
+                detalleExistente.setPrecioUnitario(detalle.getPrecioUnitario());
+                detalleExistente.setDescuento(detalle.getDescuento());
+            }
+        }
+        
+        // Recalcular los totales una sola vez para todo el conjunto
+        orden.actualizarTotales(tasaIvaPartesPorMillon);
+        String error = validarOrden(orden);
+        if (error != null) {
+            throw new RuntimeException(error);
+        }
+        
+        // El flush agrupa los INSERT, UPDATE y DELETE de las líneas en batches JDBC
+        OrdenCompra ordenActualizada = ordenCompraRepository.saveAndFlush(orden);
+        resumenService.registrarCambioTotal(orden.getFechaEmision(), totalAnterior, orden.getFechaEmision(), orden.getTotal());
+        gastoProveedorService.registrarCambio(orden.getProveedorId(), orden.getFechaEmision(), totalAnterior,
+            orden.getProveedorId(), orden.getFechaEmision(), orden.getTotal());
+        eventosOrdenService.registrarActualizacion(orden.getId(), orden.getEstado());
+        return ordenActualizada;
     }
 
     @Override
     @Transactional(readOnly = true)
     public Long contarOrdenesPorEstado(EstadoOrden estado) {
-        return ordenCompraRepository.countByEstado(estado);
+        return ordenCompraRepository.countByEstado(estado) + archivoOrdenesService.contarPorEstado(estado);
     }
 
     @Override
     @Transactional(readOnly = true)
     public BigDecimal obtenerTotalComprasPorProveedor(Long proveedorId) {
-        BigDecimal total = ordenCompraRepository.sumTotalByProveedorId(proveedorId);
-        return total != null ? total : BigDecimal.ZERO;
+        // Se responde desde la proyección gasto_proveedor en lugar de sumar las órdenes
+        return gastoProveedorService.obtenerTotalPorProveedor(proveedorId);
     }
 
     @Override
     @Transactional(readOnly = true)
     public BigDecimal obtenerTotalComprasPorRangoFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin) {
-        List<OrdenCompra> ordenes = buscarOrdenesPorRangoFechas(fechaInicio, fechaFin);
-        return ordenes.stream()
-            .map(OrdenCompra::getTotal)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (archivoOrdenesService.incluyeArchivo(fechaInicio)) {
+            // El rango alcanza órdenes archivadas: se consulta la vista unificada
+            Object[] fila = ordenCompraHistoricaRepository.sumTotalesUnificadoByFechaEmisionBetween(fechaInicio, fechaFin).get(0);
+            return fila[1] != null ? new BigDecimal(fila[1].toString()) : BigDecimal.ZERO;
+        }
+        return ordenCompraRepository.sumTotalesByFechaEmisionBetween(fechaInicio, fechaFin).total();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<EstadisticaProductoDTO> obtenerEstadisticasProductos(List<Long> productoIds, LocalDateTime fechaInicio,
+                                                                    LocalDateTime fechaFin, EstadoOrden estado) {
+        List<Long> ids = productoIds.stream().filter(Objects::nonNull).distinct().toList();
+        boolean conArchivo = estadisticasIncluyenArchivo(fechaInicio, estado);
+        Map<Long, EstadisticaProductoDTO> porProducto = new HashMap<>();
+        for (int desde = 0; desde < ids.size(); desde += TAMANO_CONSULTA_IN) {
+            List<Long> bloque = ids.subList(desde, Math.min(desde + TAMANO_CONSULTA_IN, ids.size()));
+            detalleOrdenRepository.sumarPorProductoIdIn(bloque, fechaInicio, fechaFin, estado)
+                .forEach(estadistica -> porProducto.merge(estadistica.productoId(), estadistica, EstadisticaProductoDTO::sumar));
+            if (conArchivo) {
+                detalleOrdenHistoricoRepository.sumarPorProductoIdIn(bloque, fechaInicio, fechaFin, estado)
+                    .forEach(estadistica -> porProducto.merge(estadistica.productoId(), estadistica, EstadisticaProductoDTO::sumar));
+            }
+        }
+        // Respetar el orden solicitado y devolver cero para los productos sin compras
+        return ids.stream()
+            .map(id -> porProducto.getOrDefault(id, EstadisticaProductoDTO.vacia(id)))
+            .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<EstadisticaProductoDTO> obtenerEstadisticasProductos(Long after, int limit, LocalDateTime fechaInicio,
+                                                                    LocalDateTime fechaFin, EstadoOrden estado) {
+        Limit limite = limite(limit);
+        List<EstadisticaProductoDTO> activas = detalleOrdenRepository.sumarPorProducto(
+            cursor(after), fechaInicio, fechaFin, estado, limite);
+        if (!estadisticasIncluyenArchivo(fechaInicio, estado)) {
+            return activas;
+        }
+        // Cada fuente devuelve sus primeros productos después del cursor; la unión de ambas páginas
+        // contiene los primeros de la combinación con sus cifras completas
+        Map<Long, EstadisticaProductoDTO> porProducto = new TreeMap<>();
+        activas.forEach(estadistica -> porProducto.put(estadistica.productoId(), estadistica));
+        detalleOrdenHistoricoRepository.sumarPorProducto(cursor(after), fechaInicio, fechaFin, estado, limite)
+            .forEach(estadistica -> porProducto.merge(estadistica.productoId(), estadistica, EstadisticaProductoDTO::sumar));
+        return porProducto.values().stream().limit(limite.max()).toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PuntoSerieTemporal> obtenerSerieTemporal(LocalDateTime fechaInicio, LocalDateTime fechaFin,
+                                                         Granularidad granularidad) {
+        // El rango alcanza órdenes archivadas: se consulta la vista unificada
+        boolean unificado = archivoOrdenesService.incluyeArchivo(fechaInicio);
+        List<Object[]> filas = switch (granularidad) {
+            case DIA -> unificado
+                ? ordenCompraHistoricaRepository.sumTotalesUnificadoPorDia(fechaInicio, fechaFin)
+                : ordenCompraRepository.sumTotalesPorDia(fechaInicio, fechaFin);
+            case SEMANA -> unificado
+                ? ordenCompraHistoricaRepository.sumTotalesUnificadoPorSemana(fechaInicio, fechaFin)
+                : ordenCompraRepository.sumTotalesPorSemana(fechaInicio, fechaFin);
+            case MES -> unificado
+                ? ordenCompraHistoricaRepository.sumTotalesUnificadoPorMes(fechaInicio, fechaFin)
+                : ordenCompraRepository.sumTotalesPorMes(fechaInicio, fechaFin);
+        };
+        return filas.stream()
+            .map(fila -> new PuntoSerieTemporal(
+                aFecha(fila[0]),
+                ((Number) fila[1]).longValue(),
+                fila[2] != null ? new BigDecimal(fila[2].toString()) : BigDecimal.ZERO))
+            .toList();
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean existeOrdenConNumeroFactura(String numeroFactura) {
-        List<OrdenCompra> ordenes = ordenCompraRepository.findByNumeroFacturaContainingIgnoreCase(numeroFactura);
-        return ordenes.stream()
-            .anyMatch(orden -> orden.getNumeroFactura().equals(numeroFactura));
+        if (numeroFactura == null || !indiceNumerosFactura.puedeExistir(numeroFactura)) {
+            return false;
+        }
+        return ordenCompraRepository.existsByNumeroFactura(numeroFactura)
+            || archivoOrdenesService.existeNumeroFactura(numeroFactura);
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean puedeCambiarEstado(Long ordenId, EstadoOrden nuevoEstado) {
-        OrdenCompra orden = obtenerOrdenCompraPorId(ordenId);
-        EstadoOrden estadoActual = orden.getEstado();
-        
-        // Reglas de transición de estados
-        switch (estadoActual) {
-            case PENDIENTE:
-                return nuevoEstado == EstadoOrden.EN_PROCESO || nuevoEstado == EstadoOrden.CANCELADA;
-            case EN_PROCESO:
-                return nuevoEstado == EstadoOrden.COMPLETADA || nuevoEstado == EstadoOrden.CANCELADA;
-            case COMPLETADA:
-            case CANCELADA:
-                return false; // Estados finales
-            default:
-                return false;
+        // Reglas de transición de estados definidas en EstadoOrden
+        Optional<OrdenCompra> orden = ordenCompraRepository.findById(ordenId);
+        if (orden.isEmpty() && archivoOrdenesService.estaArchivada(ordenId)) {
+            // Las órdenes archivadas están en estado terminal
+            return false;
+        }
+        return orden.map(o -> o.getEstado().puedeCambiarA(nuevoEstado))
+            .orElseThrow(() -> new RuntimeException("Orden de compra no encontrada con ID: " + ordenId));
+    }
+
+    // Métodos auxiliares
+
+    // Obtiene la orden activa sin forzar la carga de sus detalles; las archivadas no admiten cambios
+    private OrdenCompra buscarOrden(Long id) {
+        return ordenCompraRepository.findById(id).orElseThrow(() -> ordenNoEncontrada(id));
+    }
+
+    private RuntimeException ordenNoEncontrada(Long id) {
+        return archivoOrdenesService.estaArchivada(id)
+            ? new RuntimeException("La orden de compra " + id + " está archivada y no admite cambios")
+            : new RuntimeException("Orden de compra no encontrada con ID: " + id);
+    }
+
+    private OrdenCompra buscarOrdenConDetalles(Long id) {
+        OrdenCompra orden = buscarOrden(id);
+        orden.getDetalles().size(); // Forzar la carga de la colección
+        return orden;
+    }
+
+    // Las líneas archivadas sólo cuentan si el filtro de estado admite estados terminales y el rango las alcanza
+    private boolean estadisticasIncluyenArchivo(LocalDateTime fechaInicio, EstadoOrden estado) {
+        return (estado == null || archivoOrdenesService.incluyeArchivo(estado))
+            && archivoOrdenesService.incluyeArchivo(fechaInicio != null ? fechaInicio : LocalDateTime.MIN);
+    }
+
+    // Combina una página de órdenes activas con una de archivadas manteniendo el orden por id
+    private <T> List<T> fusionar(List<T> activas, List<T> archivadas, Limit limite, Function<T, Long> id) {
+        if (archivadas.isEmpty()) {
+            return activas;
+        }
+        List<T> todas = new ArrayList<>(activas);
+        todas.addAll(archivadas);
+        todas.sort(Comparator.comparing(id));
+        return todas.size() > limite.max() ? todas.subList(0, limite.max()) : todas;
+    }
+
+    private void prepararNuevaOrden(OrdenCompra ordenCompra) {
+        // Establecer fecha de creación si no está definida
+        if (ordenCompra.getFechaCreacion() == null) {
+            ordenCompra.setFechaCreacion(LocalDateTime.now());
+        }
+        
+        // Establecer estado por defecto si no está definido
+        if (ordenCompra.getEstado() == null) {
+            ordenCompra.setEstado(EstadoOrden.PENDIENTE);
+        }
+        
+        // Establecer la relación bidireccional con los detalles
+        if (ordenCompra.getDetalles() != null && !ordenCompra.getDetalles().isEmpty()) {
+            for (DetalleOrden detalle : ordenCompra.getDetalles()) {
+                detalle.setOrdenCompra(ordenCompra);
+            }
+        }
+        
+        // Calcular totales
+        ordenCompra.actualizarTotales(tasaIvaPartesPorMillon);
+    }
+
+    // Publica el IVA y el total tras cambiar líneas. Una orden anterior al subtotal con
+    // descuento se recalcula completa la primera vez, porque su subtotal no sirve de base
+    private void calcularTotales(OrdenCompra orden) {
+        if (orden.isTotalesConDescuento()) {
+            orden.aplicarIva(tasaIvaPartesPorMillon);
+        } else {
+            orden.actualizarTotales(tasaIvaPartesPorMillon);
+        }
+    }
+
+    private List<Long> idsProductos(List<OrdenCompra> ordenes) {
+        return ordenes.stream()
+            .filter(orden -> orden != null && orden.getDetalles() != null)
+            .flatMap(orden -> orden.getDetalles().stream())
+            .map(DetalleOrden::getProductoId)
+            .filter(Objects::nonNull)
+            .distinct()
+            .toList();
+    }
+
+    private List<Long> idsProveedores(List<OrdenCompra> ordenes) {
+        return ordenes.stream()
+            .filter(Objects::nonNull)
+            .map(OrdenCompra::getProveedorId)
+            .filter(Objects::nonNull)
+            .distinct()
+            .toList();
+    }
+
+    // Devuelve el primer error encontrado o null; completa nombre y, si falta, el precio de cada línea
+    private String validarCatalogo(OrdenCompra orden, Map<Long, ProductoDTO> productos,
+                                   Map<Long, ProveedorDTO> proveedores) {
+        if (orden.getProveedorId() != null && !proveedores.containsKey(orden.getProveedorId())) {
+            return "Proveedor no encontrado con ID: " + orden.getProveedorId();
+        }
+        if (orden.getDetalles() != null) {
+            for (DetalleOrden detalle : orden.getDetalles()) {
+                ProductoDTO producto = productos.get(detalle.getProductoId());
+                if (producto == null) {
+                    return "Producto no encontrado con ID: " + detalle.getProductoId();
+                }
+                completarDetalle(detalle, producto);
+            }
+        }
+        return null;
+    }
+
+    private void enriquecerDetalle(DetalleOrden detalle) {
+        ProductoDTO producto = catalogoService.obtenerProductos(List.of(detalle.getProductoId()))
+            .get(detalle.getProductoId());
+        if (producto == null) {
+            throw new RuntimeException("Producto no encontrado con ID: " + detalle.getProductoId());
+        }
+        completarDetalle(detalle, producto);
+    }
+
+    private void completarDetalle(DetalleOrden detalle, ProductoDTO producto) {
+        detalle.setNombreProducto(producto.nombre());
+        if (detalle.getPrecioUnitario() == null || detalle.getPrecioUnitario().signum() <= 0) {
+            detalle.setPrecioUnitario(producto.precio());
+        }
+    }
+
+    private String validarOrden(OrdenCompra orden) {
+        Set<ConstraintViolation<Object>> violaciones = new HashSet<>(validator.validate(orden));
+        if (orden.getDetalles() != null) {
+            for (DetalleOrden detalle : orden.getDetalles()) {
+                violaciones.addAll(validator.validate(detalle));
+            }
+        }
+        if (violaciones.isEmpty()) {
+            return null;
+        }
+        return violaciones.stream()
+            .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+            .sorted()
+            .collect(Collectors.joining("; "));
+    }
+
+    private LocalDate aFecha(Object valor) {
+        if (valor instanceof java.sql.Date fecha) {
+            return fecha.toLocalDate();
+        }
+        if (valor instanceof LocalDateTime fechaHora) {
+            return fechaHora.toLocalDate();
+        }
+        return (LocalDate) valor;
+    }
+
+    private Long cursor(Long after) {
+        return after != null ? after : 0L;
+    }
+
+    private Limit limite(int limit) {
+        return Limit.of(Math.max(1, Math.min(limit, LIMITE_MAXIMO)));
+    }
+
+    // Inicializa los detalles de toda la página con una única consulta adicional
+    // en lugar de un SELECT por orden al serializar la colección perezosa
+    private List<OrdenCompra> cargarDetalles(List<OrdenCompra> ordenes) {
+        if (!ordenes.isEmpty()) {
+            ordenCompraRepository.fetchDetallesByIdIn(ordenes.stream().map(OrdenCompra::getId).toList());
         }
+        return ordenes;
     }
 }
@@ -0,0 +1,12 @@
+package com.espe.compras.services;
+
+import java.util.Collection;
+
+public interface OutboxInventarioService {
+
+    // Registrar en el outbox el ingreso de stock de las órdenes completadas (misma transacción)
+    void registrarRecepcion(Collection<Long> ordenIds);
+
+    // Enviar a inventario-service un lote de movimientos pendientes
+    int despacharPendientes();
+}
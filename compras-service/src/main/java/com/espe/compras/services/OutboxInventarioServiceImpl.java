@@ -0,0 +1,141 @@
+package com.espe.compras.services;
+
+import com.espe.compras.clients.InventarioClientRest;
+import com.espe.compras.dto.MovimientoStockDTO;
+import com.espe.compras.dto.ResultadoMovimientoDTO;
+import com.espe.compras.models.OutboxMovimientoInventario;
+import com.espe.compras.repositories.DetalleOrdenRepository;
+import com.espe.compras.repositories.OutboxMovimientoInventarioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class OutboxInventarioServiceImpl implements OutboxInventarioService {
+
+    private final DetalleOrdenRepository detalleOrdenRepository;
+    private final OutboxMovimientoInventarioRepository outboxRepository;
+    private final InventarioClientRest inventarioClient;
+    private final TransactionTemplate transactionTemplate;
+    private final Long bodegaPorDefecto;
+    private final int tamanoLote;
+    private final int maxIntentos;
+    private final long arrendamientoSegundos;
+
+    @Autowired
+    public OutboxInventarioServiceImpl(DetalleOrdenRepository detalleOrdenRepository,
+                                       OutboxMovimientoInventarioRepository outboxRepository,
+                                       InventarioClientRest inventarioClient,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${compras.inventario.bodega-por-defecto:1}") Long bodegaPorDefecto,
+                                       @Value("${compras.outbox.tamano-lote:200}") int tamanoLote,
+                                       @Value("${compras.outbox.max-intentos:10}") int maxIntentos,
+                                       @Value("${compras.outbox.arrendamiento-segundos:120}") long arrendamientoSegundos) {
+        this.detalleOrdenRepository = detalleOrdenRepository;
+        this.outboxRepository = outboxRepository;
+        this.inventarioClient = inventarioClient;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bodegaPorDefecto = bodegaPorDefecto;
+        this.tamanoLote = tamanoLote;
+        this.maxIntentos = maxIntentos;
+        this.arrendamientoSegundos = arrendamientoSegundos;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarRecepcion(Collection<Long> ordenIds) {
+        if (ordenIds.isEmpty()) {
+            return;
+        }
+        List<OutboxMovimientoInventario> movimientos = new ArrayList<>();
+        for (Object[] linea : detalleOrdenRepository.findLineasRecepcionByOrdenIdIn(ordenIds)) {
+            Long bodegaId = linea[4] != null ? (Long) linea[4] : bodegaPorDefecto;
+            movimientos.add(new OutboxMovimientoInventario(
+                (Long) linea[0], (Long) linea[1], (Long) linea[2], bodegaId, (Integer) linea[3]));
+        }
+        outboxRepository.saveAll(movimientos);
+    }
+
+    // Sin transacción propia: la llamada HTTP no debe retener bloqueos ni una conexión del pool.
+    // Se reclama el lote en una transacción corta, se envía y se registra el resultado en otra
+    @Override
+    @Scheduled(fixedDelayString = "${compras.outbox.intervalo-ms:5000}")
+    public int despacharPendientes() {
+        List<OutboxMovimientoInventario> pendientes = transactionTemplate.execute(estado -> reclamarLote());
+        if (pendientes.isEmpty()) {
+            return 0;
+        }
+
+        List<MovimientoStockDTO> solicitud = pendientes.stream()
+            .map(m -> new MovimientoStockDTO(m.getClaveIdempotencia(), m.getProductoId(), m.getBodegaId(), m.getCantidad()))
+            .toList();
+        List<Long> ids = pendientes.stream().map(OutboxMovimientoInventario::getId).toList();
+
+        List<ResultadoMovimientoDTO> resultados;
+        try {
+            resultados = inventarioClient.aplicarMovimientos(solicitud);
+        } catch (RuntimeException e) {
+            // Fallo de comunicación: se reintenta todo el lote con espera exponencial
+            transactionTemplate.executeWithoutResult(estado -> {
+                LocalDateTime ahora = LocalDateTime.now();
+                for (OutboxMovimientoInventario movimiento : outboxRepository.findPendientesByIdIn(ids)) {
+                    movimiento.programarReintento(e.getMessage(), ahora.plusSeconds(esperaSegundos(movimiento)), maxIntentos);
+                }
+            });
+            return 0;
+        }
+
+        Map<String, ResultadoMovimientoDTO> porClave = resultados.stream()
+            .collect(Collectors.toMap(ResultadoMovimientoDTO::claveIdempotencia, Function.identity(), (a, b) -> a));
+        return transactionTemplate.execute(estado -> registrarResultados(ids, porClave));
+    }
+
+    // Toma el lote con SKIP LOCKED y lo arrienda adelantando proximo_intento: al confirmar se
+    // sueltan los bloqueos y otros despachadores no lo vuelven a tomar mientras está en vuelo.
+    // Si el proceso muere antes de registrar el resultado, el lote vuelve a quedar disponible
+    // al vencer el arrendamiento (inventario-service deduplica por clave de idempotencia)
+    private List<OutboxMovimientoInventario> reclamarLote() {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<OutboxMovimientoInventario> pendientes = outboxRepository.findPendientesParaDespacho(ahora, tamanoLote);
+        for (OutboxMovimientoInventario movimiento : pendientes) {
+            movimiento.arrendarHasta(ahora.plusSeconds(arrendamientoSegundos));
+        }
+        return pendientes;
+    }
+
+    private int registrarResultados(List<Long> ids, Map<String, ResultadoMovimientoDTO> porClave) {
+        LocalDateTime ahora = LocalDateTime.now();
+        int enviados = 0;
+        for (OutboxMovimientoInventario movimiento : outboxRepository.findPendientesByIdIn(ids)) {
+            ResultadoMovimientoDTO resultado = porClave.get(movimiento.getClaveIdempotencia());
+            if (resultado == null) {
+                movimiento.programarReintento("Sin respuesta para el movimiento",
+                    ahora.plusSeconds(esperaSegundos(movimiento)), maxIntentos);
+            } else if (resultado.rechazado()) {
+                movimiento.marcarRechazado(resultado.mensaje());
+            } else {
+                movimiento.marcarEnviado();
+                enviados++;
+            }
+        }
+        return enviados;
+    }
+
+    // Espera exponencial acotada a una hora: 2, 4, 8, ... segundos
+    private long esperaSegundos(OutboxMovimientoInventario movimiento) {
+        return Math.min(3600L, 1L << Math.min(movimiento.getIntentos() + 1, 12));
+    }
+}
@@ -0,0 +1,23 @@
+package com.espe.compras.services;
+
+import com.espe.compras.dto.ResumenOrdenes;
+import com.espe.compras.models.EstadoOrden;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public interface ResumenService {
+
+    // Consulta del resumen en memoria
+    ResumenOrdenes obtenerResumen();
+
+    // Actualizaciones incrementales (se aplican al confirmar la transacción en curso)
+    void registrarCreacion(EstadoOrden estado, LocalDateTime fechaEmision, BigDecimal total);
+    void registrarCambioEstado(EstadoOrden estadoAnterior, EstadoOrden estadoNuevo);
+    void registrarCambioTotal(LocalDateTime fechaAnterior, BigDecimal totalAnterior,
+                              LocalDateTime fechaNueva, BigDecimal totalNuevo);
+    void registrarEliminacion(EstadoOrden estado, LocalDateTime fechaEmision, BigDecimal total);
+
+    // Recalcular el resumen completo desde la base de datos
+    void reconciliar();
+}
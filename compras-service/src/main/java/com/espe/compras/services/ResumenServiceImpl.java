@@ -0,0 +1,203 @@
+package com.espe.compras.services;
+
+import com.espe.compras.dto.ResumenOrdenes;
+import com.espe.compras.models.EstadoOrden;
+import com.espe.compras.repositories.OrdenCompraHistoricaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Service
+public class ResumenServiceImpl implements ResumenService {
+
+    // Espera máxima de reconciliar por las confirmaciones en curso antes de reintentar o desistir
+    private static final long ESPERA_CONFIRMACIONES_MS = 1000;
+
+    private final OrdenCompraHistoricaRepository ordenCompraHistoricaRepository;
+
+    // Estado mutable protegido por el monitor de esta instancia
+    private final Map<EstadoOrden, Long> conteos = new EnumMap<>(EstadoOrden.class);
+    private BigDecimal totalMes = BigDecimal.ZERO;
+    private volatile YearMonth mes;
+    // Las transacciones que registraron variaciones toman la lectura desde antes de confirmar
+    // hasta aplicarlas; reconciliar toma la escritura mientras consulta. Así cada confirmación
+    // terminó y se aplicó antes de la instantánea (y está en ella) o confirma y se aplica
+    // después sobre el resultado; ninguna queda contada dos veces ni perdida
+    private final ReentrantReadWriteLock confirmaciones = new ReentrantReadWriteLock();
+
+    // Copia inmutable publicada para las lecturas
+    private volatile ResumenOrdenes resumen;
+
+    @Autowired
+    public ResumenServiceImpl(OrdenCompraHistoricaRepository ordenCompraHistoricaRepository) {
+        this.ordenCompraHistoricaRepository = ordenCompraHistoricaRepository;
+    }
+
+    @Override
+    public ResumenOrdenes obtenerResumen() {
+        ResumenOrdenes actual = resumen;
+        if (actual == null || !YearMonth.now().equals(mes)) {
+            reconciliar();
+            actual = resumen;
+        }
+        return actual;
+    }
+
+    @Override
+    public void registrarCreacion(EstadoOrden estado, LocalDateTime fechaEmision, BigDecimal total) {
+        registrar(() -> {
+            sumarConteo(estado, 1);
+            sumarTotalMes(fechaEmision, total);
+        });
+    }
+
+    @Override
+    public void registrarCambioEstado(EstadoOrden estadoAnterior, EstadoOrden estadoNuevo) {
+        registrar(() -> {
+            sumarConteo(estadoAnterior, -1);
+            sumarConteo(estadoNuevo, 1);
+        });
+    }
+
+    @Override
+    public void registrarCambioTotal(LocalDateTime fechaAnterior, BigDecimal totalAnterior,
+                                     LocalDateTime fechaNueva, BigDecimal totalNuevo) {
+        registrar(() -> {
+            sumarTotalMes(fechaAnterior, totalAnterior != null ? totalAnterior.negate() : null);
+            sumarTotalMes(fechaNueva, totalNuevo);
+        });
+    }
+
+    @Override
+    public void registrarEliminacion(EstadoOrden estado, LocalDateTime fechaEmision, BigDecimal total) {
+        registrar(() -> {
+            sumarConteo(estado, -1);
+            sumarTotalMes(fechaEmision, total != null ? total.negate() : null);
+        });
+    }
+
+    // Corrige cualquier desviación acumulada por escrituras concurrentes o externas
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${compras.resumen.reconciliacion-ms:60000}",
+               initialDelayString = "${compras.resumen.reconciliacion-ms:60000}")
+    public void reconciliar() {
+        if (confirmaciones.getReadHoldCount() > 0) {
+            // Invocado desde una transacción que está confirmando: esperar la escritura la bloquearía
+            return;
+        }
+        // La espera es acotada: una confirmación que retiene la lectura puede estar esperando un
+        // bloqueo de fila de otra, y esa otra no toma la lectura mientras la escritura está en cola
+        try {
+            while (!confirmaciones.writeLock().tryLock(ESPERA_CONFIRMACIONES_MS, TimeUnit.MILLISECONDS)) {
+                if (resumen != null && YearMonth.now().equals(mes)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            LocalDateTime ahora = LocalDateTime.now();
+            LocalDateTime inicioMes = ahora.withDayOfMonth(1).toLocalDate().atStartOfDay();
+
+            // Las órdenes archivadas siguen contando en su estado terminal; nunca son del mes en curso
+            Map<EstadoOrden, Long> nuevosConteos = new EnumMap<>(EstadoOrden.class);
+            BigDecimal nuevoTotalMes = BigDecimal.ZERO;
+            for (Object[] fila : ordenCompraHistoricaRepository.resumirUnificadoPorEstado(inicioMes, ahora)) {
+                nuevosConteos.put(EstadoOrden.valueOf((String) fila[0]), ((Number) fila[1]).longValue());
+                nuevoTotalMes = nuevoTotalMes.add((BigDecimal) fila[2]);
+            }
+
+            synchronized (this) {
+                conteos.clear();
+                conteos.putAll(nuevosConteos);
+                totalMes = nuevoTotalMes;
+                mes = YearMonth.from(ahora);
+                publicar();
+            }
+        } finally {
+            confirmaciones.writeLock().unlock();
+        }
+    }
+
+    // Métodos auxiliares
+
+    // Aplica la variación al confirmar la transacción, reteniendo la lectura de confirmaciones
+    // desde antes del commit; sin transacción activa se aplica de inmediato
+    private void registrar(Runnable variacion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            confirmaciones.readLock().lock();
+            try {
+                variacion.run();
+            } finally {
+                confirmaciones.readLock().unlock();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean retenida;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                confirmaciones.readLock().lock();
+                retenida = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                variacion.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (retenida) {
+                    retenida = false;
+                    confirmaciones.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    private synchronized void sumarConteo(EstadoOrden estado, long delta) {
+        if (estado == null || mes == null) {
+            return;
+        }
+        conteos.merge(estado, delta, Long::sum);
+        publicar();
+    }
+
+    private synchronized void sumarTotalMes(LocalDateTime fechaEmision, BigDecimal monto) {
+        if (fechaEmision == null || monto == null || mes == null) {
+            return;
+        }
+        if (YearMonth.from(fechaEmision).equals(mes) && !fechaEmision.isAfter(LocalDateTime.now())) {
+            totalMes = totalMes.add(monto);
+            publicar();
+        }
+    }
+
+    private void publicar() {
+        resumen = new ResumenOrdenes(
+            conteos.getOrDefault(EstadoOrden.PENDIENTE, 0L),
+            conteos.getOrDefault(EstadoOrden.EN_PROCESO, 0L),
+            conteos.getOrDefault(EstadoOrden.COMPLETADA, 0L),
+            conteos.getOrDefault(EstadoOrden.CANCELADA, 0L),
+            totalMes,
+            LocalDateTime.now()
+        );
+    }
+}
@@ -0,0 +1,72 @@
+package com.espe.compras.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Importe monetario en centavos sobre un long. Se usa para los cálculos en memoria
+// de líneas y totales; la conversión a BigDecimal sólo ocurre al publicar el valor
+// en las columnas DECIMAL(…, 2).
+public record Dinero(long centavos) {
+
+    public static final Dinero CERO = new Dinero(0);
+
+    // Escala de las fracciones expresadas en partes por millón (tasas de impuesto)
+    private static final long MILLON = 1_000_000L;
+
+    // Escala de los porcentajes con dos decimales (12,50 % = 1250)
+    private static final long DIEZ_MIL = 10_000L;
+
+    public static Dinero de(BigDecimal valor) {
+        return valor == null ? CERO : new Dinero(centesimas(valor));
+    }
+
+    // Convierte un valor con dos decimales a su entero en centésimas, redondeando
+    public static long centesimas(BigDecimal valor) {
+        return valor.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    // Convierte una fracción (0.15) a partes por millón (150000)
+    public static long partesPorMillon(BigDecimal fraccion) {
+        return fraccion.movePointRight(6).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public Dinero mas(Dinero otro) {
+        return otro.centavos == 0 ? this : new Dinero(Math.addExact(centavos, otro.centavos));
+    }
+
+    public Dinero menos(Dinero otro) {
+        return otro.centavos == 0 ? this : new Dinero(Math.subtractExact(centavos, otro.centavos));
+    }
+
+    public Dinero por(long cantidad) {
+        return cantidad == 1 ? this : new Dinero(Math.multiplyExact(centavos, cantidad));
+    }
+
+    // Aplica un descuento porcentual expresado en centésimas de punto (1250 = 12,50 %)
+    public Dinero descontar(long porcentajeCentesimas) {
+        if (porcentajeCentesimas == 0) {
+            return this;
+        }
+        return new Dinero(escalar(centavos, DIEZ_MIL - porcentajeCentesimas, DIEZ_MIL));
+    }
+
+    // Aplica una tasa expresada en partes por millón (150000 = 15 %)
+    public Dinero aplicarTasa(long partesPorMillon) {
+        return new Dinero(escalar(centavos, partesPorMillon, MILLON));
+    }
+
+    public BigDecimal aBigDecimal() {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    // valor * numerador / denominador con redondeo HALF_UP (alejándose de cero)
+    private static long escalar(long valor, long numerador, long denominador) {
+        long producto = Math.multiplyExact(valor, numerador);
+        long cociente = producto / denominador;
+        long resto = producto % denominador;
+        if (Math.abs(resto) * 2 >= denominador) {
+            cociente += Long.signum(producto);
+        }
+        return cociente;
+    }
+}
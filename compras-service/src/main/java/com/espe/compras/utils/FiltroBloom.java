@@ -0,0 +1,66 @@
+package com.espe.compras.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Filtro de Bloom concurrente para cadenas: sin falsos negativos, con una
+// tasa de falsos positivos acotada por la capacidad y probabilidad indicadas
+public class FiltroBloom {
+
+    private final AtomicLongArray bits;
+    private final long numeroBits;
+    private final int numeroHashes;
+
+    public FiltroBloom(long capacidadEsperada, double probabilidadFalsoPositivo) {
+        long capacidad = Math.max(1, capacidadEsperada);
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-capacidad * Math.log(probabilidadFalsoPositivo) / (ln2 * ln2));
+        this.numeroBits = Math.max(64, m);
+        this.numeroHashes = Math.max(1, (int) Math.round((double) numeroBits / capacidad * ln2));
+        this.bits = new AtomicLongArray((int) ((numeroBits + 63) / 64));
+    }
+
+    public void agregar(String valor) {
+        long hash = hash64(valor);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numeroHashes; i++) {
+            long indice = Math.floorMod(h1 + (long) i * h2, numeroBits);
+            int palabra = (int) (indice >>> 6);
+            long mascara = 1L << indice;
+            long actual;
+            do {
+                actual = bits.get(palabra);
+                if ((actual & mascara) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(palabra, actual, actual | mascara));
+        }
+    }
+
+    public boolean puedeContener(String valor) {
+        long hash = hash64(valor);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numeroHashes; i++) {
+            long indice = Math.floorMod(h1 + (long) i * h2, numeroBits);
+            if ((bits.get((int) (indice >>> 6)) & (1L << indice)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a de 64 bits con mezcla final para separar bien los dos hashes derivados
+    private static long hash64(String valor) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : valor.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
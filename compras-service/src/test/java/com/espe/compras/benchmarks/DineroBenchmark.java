@@ -0,0 +1,81 @@
+package com.espe.compras.benchmarks;
+
+import com.espe.compras.utils.Dinero;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Subtotal de línea con descuento e IVA: cálculo anterior en BigDecimal frente a centavos en long.
+// Ejecutar con la clase main desde el classpath de test
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DineroBenchmark {
+
+    private static final int LINEAS = 1024;
+    private static final BigDecimal CIEN = BigDecimal.valueOf(100);
+    private static final BigDecimal TASA = new BigDecimal("0.15");
+    private static final long TASA_PARTES_POR_MILLON = Dinero.partesPorMillon(TASA);
+
+    private final BigDecimal[] precios = new BigDecimal[LINEAS];
+    private final BigDecimal[] descuentos = new BigDecimal[LINEAS];
+    private final int[] cantidades = new int[LINEAS];
+    private final Dinero[] preciosDinero = new Dinero[LINEAS];
+    private final long[] descuentosCentesimas = new long[LINEAS];
+
+    @Setup
+    public void crearLineas() {
+        Random aleatorio = new Random(42);
+        for (int i = 0; i < LINEAS; i++) {
+            precios[i] = BigDecimal.valueOf(1 + aleatorio.nextInt(1_000_000), 2);
+            descuentos[i] = BigDecimal.valueOf(aleatorio.nextInt(4) == 0 ? aleatorio.nextInt(5001) : 0, 2);
+            cantidades[i] = 1 + aleatorio.nextInt(100);
+            preciosDinero[i] = Dinero.de(precios[i]);
+            descuentosCentesimas[i] = Dinero.centesimas(descuentos[i]);
+        }
+    }
+
+    @Benchmark
+    public void bigDecimal(Blackhole blackhole) {
+        for (int i = 0; i < LINEAS; i++) {
+            BigDecimal sinDescuento = precios[i].multiply(BigDecimal.valueOf(cantidades[i]));
+            BigDecimal subtotal = descuentos[i].signum() > 0
+                ? sinDescuento.subtract(sinDescuento.multiply(descuentos[i].divide(CIEN))).setScale(2, RoundingMode.HALF_UP)
+                : sinDescuento.setScale(2, RoundingMode.HALF_UP);
+            BigDecimal iva = subtotal.multiply(TASA).setScale(2, RoundingMode.HALF_UP);
+            blackhole.consume(subtotal.add(iva));
+        }
+    }
+
+    @Benchmark
+    public void dinero(Blackhole blackhole) {
+        for (int i = 0; i < LINEAS; i++) {
+            Dinero subtotal = preciosDinero[i].por(cantidades[i]).descontar(descuentosCentesimas[i]);
+            Dinero iva = subtotal.aplicarTasa(TASA_PARTES_POR_MILLON);
+            blackhole.consume(subtotal.mas(iva).centavos());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DineroBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,75 @@
+package com.espe.compras.benchmarks;
+
+import com.espe.compras.models.DetalleOrden;
+import com.espe.compras.models.OrdenCompra;
+import com.espe.compras.utils.Dinero;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// Costo de editar una línea de una orden con N líneas: diferencia de la línea más IVA
+// frente a recorrer todas las líneas. Ejecutar con la clase main desde el classpath de test
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TotalesOrdenBenchmark {
+
+    private static final long TASA_IVA = Dinero.partesPorMillon(new BigDecimal("0.15"));
+
+    @Param({"10", "100", "1000"})
+    private int lineas;
+
+    private OrdenCompra orden;
+    private DetalleOrden editada;
+    private int cantidad;
+
+    @Setup
+    public void crearOrden() {
+        orden = new OrdenCompra();
+        for (int i = 0; i < lineas; i++) {
+            DetalleOrden detalle = new DetalleOrden();
+            detalle.setProductoId((long) i);
+            detalle.setCantidad(1 + i % 7);
+            detalle.setPrecioUnitario(new BigDecimal("19.99"));
+            detalle.setDescuento(new BigDecimal(i % 3 == 0 ? "12.50" : "0"));
+            orden.agregarDetalle(detalle);
+        }
+        orden.actualizarTotales(TASA_IVA);
+        editada = orden.getDetalles().get(lineas / 2);
+    }
+
+    @Benchmark
+    public BigDecimal editarLineaConDiferencia() {
+        editada.setCantidad(1 + (++cantidad & 31));
+        orden.aplicarIva(TASA_IVA);
+        return orden.getTotal();
+    }
+
+    @Benchmark
+    public BigDecimal editarLineaRecorriendoTodas() {
+        editada.setCantidad(1 + (++cantidad & 31));
+        orden.actualizarTotales(TASA_IVA);
+        return orden.getTotal();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TotalesOrdenBenchmark.class.getSimpleName()).build()).run();
+    }
+}
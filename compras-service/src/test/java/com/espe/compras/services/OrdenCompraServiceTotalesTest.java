@@ -0,0 +1,121 @@
+package com.espe.compras.services;
+
+import com.espe.compras.models.DetalleOrden;
+import com.espe.compras.models.OrdenCompra;
+import com.espe.compras.repositories.DetalleOrdenHistoricoRepository;
+import com.espe.compras.repositories.DetalleOrdenRepository;
+import com.espe.compras.repositories.HistorialEstadoOrdenRepository;
+import com.espe.compras.repositories.OrdenCompraHistoricaRepository;
+import com.espe.compras.repositories.OrdenCompraRepository;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+// Totales de la orden calculados por el servicio con la tasa de IVA inyectada
+@ExtendWith(MockitoExtension.class)
+class OrdenCompraServiceTotalesTest {
+
+    private static final Long ORDEN_ID = 7L;
+
+    @Mock private OrdenCompraRepository ordenCompraRepository;
+    @Mock private DetalleOrdenRepository detalleOrdenRepository;
+    @Mock private HistorialEstadoOrdenRepository historialEstadoOrdenRepository;
+    @Mock private OrdenCompraHistoricaRepository ordenCompraHistoricaRepository;
+    @Mock private DetalleOrdenHistoricoRepository detalleOrdenHistoricoRepository;
+    @Mock private ResumenService resumenService;
+    @Mock private GastoProveedorService gastoProveedorService;
+    @Mock private OutboxInventarioService outboxInventarioService;
+    @Mock private CatalogoService catalogoService;
+    @Mock private IndiceNumerosFactura indiceNumerosFactura;
+    @Mock private IndiceTrigramasFactura indiceTrigramasFactura;
+    @Mock private ArchivoOrdenesService archivoOrdenesService;
+    @Mock private EventosOrdenService eventosOrdenService;
+    @Mock private Validator validator;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private OrdenCompra orden;
+    private DetalleOrden primera;
+    private DetalleOrden segunda;
+
+    @BeforeEach
+    void crearOrden() {
+        orden = new OrdenCompra();
+        orden.setId(ORDEN_ID);
+        orden.setProveedorId(1L);
+        primera = detalle(1L, 3, "19.99", "12.50");
+        segunda = detalle(2L, 2, "5.00", "0");
+        orden.agregarDetalle(primera);
+        orden.agregarDetalle(segunda);
+    }
+
+    @Test
+    void eliminarDetalleAplicaLaTasaConfigurada() {
+        OrdenCompraServiceImpl servicio = servicio("0.12");
+        eliminar(servicio, segunda);
+
+        // 3 x 19.99 = 59.97 con 12,50 % de descuento = 52.47; IVA 12 % = 6.30
+        assertEquals(new BigDecimal("52.47"), orden.getSubtotal());
+        assertEquals(new BigDecimal("6.30"), orden.getIva());
+        assertEquals(new BigDecimal("58.77"), orden.getTotal());
+    }
+
+    @Test
+    void ordenAnteriorAlDescuentoSeRecalculaCompletaAlPrimerCambio() {
+        // Orden guardada con el cálculo anterior: subtotal sin descuento (59.97 + 10.00) e IVA 15 %
+        ReflectionTestUtils.setField(orden, "totalesConDescuento", false);
+        orden.setSubtotal(new BigDecimal("69.97"));
+        orden.setIva(new BigDecimal("10.50"));
+        orden.setTotal(new BigDecimal("80.47"));
+
+        eliminar(servicio("0.15"), segunda);
+
+        // Sin el recálculo quedaría 69.97 - 10.00 = 59.97, ignorando el descuento de la primera línea
+        assertEquals(new BigDecimal("52.47"), orden.getSubtotal());
+        assertEquals(new BigDecimal("7.87"), orden.getIva());
+        assertEquals(new BigDecimal("60.34"), orden.getTotal());
+        assertTrue(orden.isTotalesConDescuento());
+    }
+
+    @Test
+    void rechazaTasaFueraDeRango() {
+        assertThrows(IllegalArgumentException.class, () -> servicio("1.15"));
+        assertThrows(IllegalArgumentException.class, () -> servicio("-0.01"));
+    }
+
+    private void eliminar(OrdenCompraServiceImpl servicio, DetalleOrden detalle) {
+        when(ordenCompraRepository.findById(ORDEN_ID)).thenReturn(Optional.of(orden));
+        when(detalleOrdenRepository.findById(detalle.getId())).thenReturn(Optional.of(detalle));
+        servicio.eliminarDetalleOrden(ORDEN_ID, detalle.getId());
+    }
+
+    private OrdenCompraServiceImpl servicio(String tasaIva) {
+        return new OrdenCompraServiceImpl(ordenCompraRepository, detalleOrdenRepository, historialEstadoOrdenRepository,
+            ordenCompraHistoricaRepository, detalleOrdenHistoricoRepository, resumenService, gastoProveedorService,
+            outboxInventarioService, catalogoService, indiceNumerosFactura, indiceTrigramasFactura,
+            archivoOrdenesService, eventosOrdenService, validator, transactionManager, new BigDecimal(tasaIva));
+    }
+
+    private static DetalleOrden detalle(Long id, int cantidad, String precio, String descuento) {
+        DetalleOrden detalle = new DetalleOrden();
+        detalle.setId(id);
+        detalle.setProductoId(id);
+        detalle.setNombreProducto("Producto " + id);
+        detalle.setCantidad(cantidad);
+        detalle.setPrecioUnitario(new BigDecimal(precio));
+        detalle.setDescuento(new BigDecimal(descuento));
+        return detalle;
+    }
+}
@@ -0,0 +1,111 @@
+package com.espe.compras.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Los importes en centavos deben coincidir con el cálculo anterior en BigDecimal:
+// subtotal = precio * cantidad - precio * cantidad * descuento / 100 e IVA = subtotal * tasa,
+// ambos redondeados a dos decimales con HALF_UP
+class DineroTest {
+
+    @ParameterizedTest
+    @CsvSource({
+        // precio, cantidad, descuento %, subtotal esperado
+        "19.99, 3, 12.50, 52.47",
+        "0.05, 1, 50, 0.03",     // 0.025: medio centavo hacia arriba
+        "0.01, 1, 50, 0.01",     // 0.005
+        "0.03, 1, 50, 0.02",     // 0.015
+        "10.00, 7, 0, 70.00",
+        "10.00, 7, 100, 0.00",
+        "1234.56, 999, 33.33, 822258.07",
+        "0.07, 3, 12.34, 0.18"
+    })
+    void descontarCoincideConBigDecimal(String precio, int cantidad, String descuento, String esperado) {
+        Dinero subtotal = Dinero.de(new BigDecimal(precio)).por(cantidad).descontar(Dinero.centesimas(new BigDecimal(descuento)));
+
+        assertEquals(new BigDecimal(esperado), subtotal.aBigDecimal());
+        assertEquals(subtotalBigDecimal(new BigDecimal(precio), cantidad, new BigDecimal(descuento)), subtotal.aBigDecimal());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        // subtotal, tasa, IVA esperado
+        "0.10, 0.15, 0.02",      // 0.015
+        "0.30, 0.15, 0.05",      // 0.045
+        "0.70, 0.15, 0.11",      // 0.105
+        "52.47, 0.12, 6.30",
+        "100.00, 0, 0.00",
+        "999999.99, 0.15, 150000.00",
+        "-0.10, 0.15, -0.02",    // HALF_UP se aleja de cero también en negativos
+        "-0.30, 0.15, -0.05"
+    })
+    void aplicarTasaCoincideConBigDecimal(String subtotal, String tasa, String esperado) {
+        Dinero iva = Dinero.de(new BigDecimal(subtotal)).aplicarTasa(Dinero.partesPorMillon(new BigDecimal(tasa)));
+
+        assertEquals(new BigDecimal(esperado), iva.aBigDecimal());
+        assertEquals(new BigDecimal(subtotal).multiply(new BigDecimal(tasa)).setScale(2, RoundingMode.HALF_UP),
+            iva.aBigDecimal());
+    }
+
+    @Test
+    void coincideConBigDecimalEnImportesAleatorios() {
+        Random aleatorio = new Random(42);
+        BigDecimal tasa = new BigDecimal("0.15");
+        long tasaPartesPorMillon = Dinero.partesPorMillon(tasa);
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal precio = BigDecimal.valueOf(1 + aleatorio.nextInt(10_000_000), 2);
+            int cantidad = 1 + aleatorio.nextInt(1000);
+            BigDecimal descuento = BigDecimal.valueOf(aleatorio.nextInt(10_001), 2);
+
+            Dinero subtotal = Dinero.de(precio).por(cantidad).descontar(Dinero.centesimas(descuento));
+            BigDecimal subtotalEsperado = subtotalBigDecimal(precio, cantidad, descuento);
+            assertEquals(subtotalEsperado, subtotal.aBigDecimal(), () -> precio + " x " + cantidad + " - " + descuento + " %");
+            assertEquals(subtotalEsperado.multiply(tasa).setScale(2, RoundingMode.HALF_UP),
+                subtotal.aplicarTasa(tasaPartesPorMillon).aBigDecimal());
+        }
+    }
+
+    @Test
+    void conversionesRedondeanAlCentavo() {
+        assertEquals(1235, Dinero.de(new BigDecimal("12.345")).centavos());
+        assertEquals(1234, Dinero.de(new BigDecimal("12.3449")).centavos());
+        assertEquals(-1235, Dinero.de(new BigDecimal("-12.345")).centavos());
+        assertEquals(0, Dinero.de(null).centavos());
+        assertEquals(150_000, Dinero.partesPorMillon(new BigDecimal("0.15")));
+        assertEquals(125_000, Dinero.partesPorMillon(new BigDecimal("0.1250004")));
+    }
+
+    @Test
+    void aBigDecimalConservaDosDecimales() {
+        assertEquals("0.00", Dinero.CERO.aBigDecimal().toPlainString());
+        assertEquals("0.05", new Dinero(5).aBigDecimal().toPlainString());
+        assertEquals("-1.50", new Dinero(-150).aBigDecimal().toPlainString());
+        assertEquals("70.00", Dinero.de(new BigDecimal("70")).aBigDecimal().toPlainString());
+    }
+
+    @Test
+    void desbordamientoLanzaExcepcion() {
+        Dinero maximo = new Dinero(Long.MAX_VALUE / 2 + 1);
+        assertThrows(ArithmeticException.class, () -> maximo.por(2));
+        assertThrows(ArithmeticException.class, () -> maximo.mas(maximo));
+        assertThrows(ArithmeticException.class, () -> maximo.aplicarTasa(150_000));
+    }
+
+    // Cálculo de DetalleOrden antes de llevar los importes a centavos
+    private static BigDecimal subtotalBigDecimal(BigDecimal precio, int cantidad, BigDecimal descuento) {
+        BigDecimal sinDescuento = precio.multiply(BigDecimal.valueOf(cantidad));
+        if (descuento.compareTo(BigDecimal.ZERO) > 0) {
+            BigDecimal montoDescuento = sinDescuento.multiply(descuento.divide(BigDecimal.valueOf(100)));
+            return sinDescuento.subtract(montoDescuento).setScale(2, RoundingMode.HALF_UP);
+        }
+        return sinDescuento.setScale(2, RoundingMode.HALF_UP);
+    }
+}
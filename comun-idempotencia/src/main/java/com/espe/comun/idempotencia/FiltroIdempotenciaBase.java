@@ -0,0 +1,311 @@
+package com.espe.comun.idempotencia;
+
+import com.espe.comun.utils.CacheLocal;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Reproduce la respuesta almacenada cuando una solicitud se reintenta con la misma
+// cabecera Idempotency-Key, sin volver a ejecutarla. Cada servicio indica a qué rutas
+// aplica y con qué cuerpo responde los errores. Los servicios comparten la tabla, así que
+// la clave se guarda con el espacio del servicio como prefijo
+public abstract class FiltroIdempotenciaBase extends OncePerRequestFilter {
+
+    public static final String CABECERA_CLAVE = "Idempotency-Key";
+    public static final String CABECERA_REPETIDA = "Idempotent-Replayed";
+
+    private static final int LONGITUD_MAXIMA_CLAVE = 100;
+
+    private final RespuestaIdempotenteRepository respuestaIdempotenteRepository;
+    private final ObjectMapper objectMapper;
+    private final CacheLocal<String, RespuestaIdempotente> cache;
+    private final Duration retencion;
+    // Tiempo tras el cual una reserva EN_PROCESO se da por abandonada y otra solicitud la toma
+    private final Duration arrendamiento;
+    private final String espacio;
+    // Renueva el arrendamiento de las reservas en curso: una solicitud lenta (p. ej. esperando
+    // a otro servicio) no pierde la reserva ante un reintento mientras sigue ejecutándose
+    private final ScheduledExecutorService renovaciones;
+
+    protected FiltroIdempotenciaBase(RespuestaIdempotenteRepository respuestaIdempotenteRepository,
+                                     ObjectMapper objectMapper,
+                                     String espacio,
+                                     Duration retencion,
+                                     int tamanoMaximo,
+                                     Duration arrendamiento) {
+        this.respuestaIdempotenteRepository = respuestaIdempotenteRepository;
+        this.objectMapper = objectMapper;
+        this.espacio = espacio;
+        this.retencion = retencion;
+        this.arrendamiento = arrendamiento;
+        this.cache = new CacheLocal<>(retencion, tamanoMaximo);
+        this.renovaciones = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "renovacion-idempotencia");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    // Indica si la solicitud (ruta sin el context path) pasa por el filtro
+    protected abstract boolean aplicaA(HttpServletRequest request, String ruta);
+
+    // Cuerpo JSON de error con el formato del servicio
+    protected abstract Object cuerpoError(HttpStatus estado, String mensaje);
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        return request.getHeader(CABECERA_CLAVE) == null || !aplicaA(request, ruta);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String claveCliente = request.getHeader(CABECERA_CLAVE).trim();
+        if (claveCliente.isEmpty() || claveCliente.length() > LONGITUD_MAXIMA_CLAVE) {
+            escribirError(response, HttpStatus.BAD_REQUEST,
+                "La cabecera " + CABECERA_CLAVE + " debe tener entre 1 y " + LONGITUD_MAXIMA_CLAVE + " caracteres");
+            return;
+        }
+        // Resumen de la clave del cliente: con el prefijo del servicio cabe en la columna
+        String clave = espacio + ":" + sha256(claveCliente.getBytes(StandardCharsets.UTF_8));
+
+        SolicitudEnMemoria solicitud = new SolicitudEnMemoria(request);
+        String huella = huella(solicitud);
+
+        RespuestaIdempotente reserva;
+        RespuestaIdempotente previa = buscar(clave);
+        if (previa != null) {
+            reserva = tomarSiAbandonada(previa, huella);
+            if (reserva == null) {
+                responderPrevia(previa, huella, response);
+                return;
+            }
+        } else {
+            // Reservar la clave; si otra solicitud la reservó primero, responder según su estado
+            reserva = new RespuestaIdempotente(clave, huella);
+            try {
+                respuestaIdempotenteRepository.saveAndFlush(reserva);
+            } catch (DataIntegrityViolationException e) {
+                previa = respuestaIdempotenteRepository.findById(clave).orElse(null);
+                if (previa != null) {
+                    responderPrevia(previa, huella, response);
+                } else {
+                    escribirError(response, HttpStatus.CONFLICT, "La solicitud con esta clave de idempotencia aún se está procesando");
+                }
+                return;
+            }
+        }
+
+        ContentCachingResponseWrapper respuesta = new ContentCachingResponseWrapper(response);
+        ScheduledFuture<?> renovacion = programarRenovacion(reserva);
+        boolean guardada = false;
+        try {
+            filterChain.doFilter(solicitud, respuesta);
+            // Los errores del servidor no se memorizan para que el cliente pueda reintentar
+            if (respuesta.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+                reserva.completar(respuesta.getStatus(), respuesta.getContentType(), respuesta.getContentAsByteArray());
+                guardada = respuestaIdempotenteRepository.completarReserva(clave, reserva.getFechaCreacion(),
+                    reserva.getCodigoEstado(), reserva.getTipoContenido(), reserva.getCuerpo()) > 0;
+                if (guardada) {
+                    cache.guardar(clave, reserva);
+                }
+            }
+        } finally {
+            renovacion.cancel(false);
+            if (!guardada) {
+                respuestaIdempotenteRepository.liberarReserva(clave, reserva.getFechaCreacion());
+            }
+            respuesta.copyBodyToResponse();
+        }
+    }
+
+    public void purgarVencidas() {
+        respuestaIdempotenteRepository.deleteByFechaCreacionBefore(LocalDateTime.now().minus(retencion));
+    }
+
+    @Override
+    public void destroy() {
+        renovaciones.shutdownNow();
+    }
+
+    // Métodos auxiliares
+
+    // Renueva tres veces por arrendamiento, así una renovación demorada no deja vencer la reserva
+    private ScheduledFuture<?> programarRenovacion(RespuestaIdempotente reserva) {
+        long periodoMs = Math.max(1, arrendamiento.toMillis() / 3);
+        return renovaciones.scheduleWithFixedDelay(() -> {
+            try {
+                respuestaIdempotenteRepository.renovarReserva(reserva.getClave(), reserva.getFechaCreacion(),
+                    LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+            } catch (RuntimeException e) {
+                // Una falla puntual no cancela las renovaciones siguientes
+                logger.warn("No se pudo renovar la reserva de idempotencia " + reserva.getClave(), e);
+            }
+        }, periodoMs, periodoMs, TimeUnit.MILLISECONDS);
+    }
+
+    private RespuestaIdempotente buscar(String clave) {
+        RespuestaIdempotente respuesta = cache.obtener(clave);
+        if (respuesta == null) {
+            respuesta = respuestaIdempotenteRepository.findById(clave).orElse(null);
+            if (respuesta != null && respuesta.getEstado() == RespuestaIdempotente.Estado.COMPLETADA) {
+                cache.guardar(clave, respuesta);
+            }
+        }
+        return respuesta;
+    }
+
+    // Una reserva EN_PROCESO de la misma solicitud con el arrendamiento vencido quedó de un
+    // proceso que murió antes de completarla o liberarla; se toma en lugar de responder 409
+    private RespuestaIdempotente tomarSiAbandonada(RespuestaIdempotente previa, String huella) {
+        LocalDateTime ahora = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        if (previa.getEstado() != RespuestaIdempotente.Estado.EN_PROCESO
+                || !previa.getHuella().equals(huella)
+                || !previa.getUltimaRenovacion().isBefore(ahora.minus(arrendamiento))) {
+            return null;
+        }
+        int tomadas = respuestaIdempotenteRepository.tomarReservaVencida(
+            previa.getClave(), huella, ahora.minus(arrendamiento), ahora);
+        return tomadas > 0 ? new RespuestaIdempotente(previa.getClave(), huella, ahora) : null;
+    }
+
+    private void responderPrevia(RespuestaIdempotente previa, String huella, HttpServletResponse response)
+            throws IOException {
+        if (!previa.getHuella().equals(huella)) {
+            escribirError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                "La clave de idempotencia ya se usó con una solicitud diferente");
+            return;
+        }
+        if (previa.getEstado() != RespuestaIdempotente.Estado.COMPLETADA) {
+            escribirError(response, HttpStatus.CONFLICT, "La solicitud con esta clave de idempotencia aún se está procesando");
+            return;
+        }
+        response.setStatus(previa.getCodigoEstado());
+        if (previa.getTipoContenido() != null) {
+            response.setContentType(previa.getTipoContenido());
+        }
+        response.setHeader(CABECERA_REPETIDA, "true");
+        if (previa.getCuerpo() != null) {
+            response.setContentLength(previa.getCuerpo().length);
+            response.getOutputStream().write(previa.getCuerpo());
+        }
+    }
+
+    private void escribirError(HttpServletResponse response, HttpStatus estado, String mensaje) throws IOException {
+        response.setStatus(estado.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), cuerpoError(estado, mensaje));
+    }
+
+    private static String huella(SolicitudEnMemoria solicitud) {
+        MessageDigest digest = digestSha256();
+        digest.update(solicitud.getMethod().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ' ');
+        digest.update(solicitud.getRequestURI().getBytes(StandardCharsets.UTF_8));
+        if (solicitud.getQueryString() != null) {
+            digest.update((byte) '?');
+            digest.update(solicitud.getQueryString().getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) '\n');
+        digest.update(solicitud.cuerpo);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String sha256(byte[] datos) {
+        return HexFormat.of().formatHex(digestSha256().digest(datos));
+    }
+
+    private static MessageDigest digestSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Solicitud con el cuerpo leído por completo, para calcular la huella y poder releerlo
+    private static class SolicitudEnMemoria extends HttpServletRequestWrapper {
+
+        private final byte[] cuerpo;
+
+        SolicitudEnMemoria(HttpServletRequest request) throws IOException {
+            super(request);
+            this.cuerpo = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream entrada = new ByteArrayInputStream(cuerpo);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return entrada.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return entrada.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return entrada.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String codificacion = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(getInputStream(), Charset.forName(codificacion)));
+        }
+
+        @Override
+        public int getContentLength() {
+            return cuerpo.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return cuerpo.length;
+        }
+    }
+}
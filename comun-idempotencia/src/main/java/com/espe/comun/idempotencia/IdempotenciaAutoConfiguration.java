@@ -0,0 +1,13 @@
+package com.espe.comun.idempotencia;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+
+// Registra este paquete junto al de la aplicación para que la entidad y el repositorio
+// de respuestas idempotentes se escaneen sin @EntityScan ni @EnableJpaRepositories
+@AutoConfiguration(before = {HibernateJpaAutoConfiguration.class, JpaRepositoriesAutoConfiguration.class})
+@AutoConfigurationPackage
+public class IdempotenciaAutoConfiguration {
+}
@@ -0,0 +1,131 @@
+package com.espe.comun.idempotencia;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+// Respuesta registrada para una cabecera Idempotency-Key. La fila se reserva en
+// estado EN_PROCESO antes de ejecutar la solicitud y se completa con la respuesta.
+@Entity
+@Table(name = "respuestas_idempotentes", indexes = {
+    @Index(name = "idx_respuestas_idempotentes_fecha", columnList = "fecha_creacion")
+})
+public class RespuestaIdempotente implements Persistable<String> {
+
+    public enum Estado {
+        EN_PROCESO,
+        COMPLETADA
+    }
+
+    @Id
+    @Column(length = 100)
+    private String clave;
+
+    // Hash de método, ruta, parámetros y cuerpo de la solicitud original
+    @Column(nullable = false, length = 64)
+    private String huella;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Estado estado;
+
+    @Column(name = "codigo_estado")
+    private Integer codigoEstado;
+
+    @Column(name = "tipo_contenido", length = 100)
+    private String tipoContenido;
+
+    @Lob
+    @Column(columnDefinition = "MEDIUMBLOB")
+    private byte[] cuerpo;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    // Última renovación del arrendamiento por la solicitud que tiene la reserva
+    @Column(name = "fecha_renovacion")
+    private LocalDateTime fechaRenovacion;
+
+    // La clave es asignada, así que se evita el SELECT previo de merge al reservarla
+    @Transient
+    private boolean nuevo = true;
+
+    // Constructores
+    protected RespuestaIdempotente() {
+    }
+
+    public RespuestaIdempotente(String clave, String huella) {
+        this.clave = clave;
+        this.huella = huella;
+        this.estado = Estado.EN_PROCESO;
+        // Microsegundos: la fecha identifica la reserva al completarla o liberarla
+        this.fechaCreacion = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    public RespuestaIdempotente(String clave, String huella, LocalDateTime fechaCreacion) {
+        this.clave = clave;
+        this.huella = huella;
+        this.estado = Estado.EN_PROCESO;
+        this.fechaCreacion = fechaCreacion;
+        this.nuevo = false;
+    }
+
+    public void completar(int codigoEstado, String tipoContenido, byte[] cuerpo) {
+        this.estado = Estado.COMPLETADA;
+        this.codigoEstado = codigoEstado;
+        this.tipoContenido = tipoContenido;
+        this.cuerpo = cuerpo;
+    }
+
+    // Getters
+    public String getClave() {
+        return clave;
+    }
+
+    public String getHuella() {
+        return huella;
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    public Integer getCodigoEstado() {
+        return codigoEstado;
+    }
+
+    public String getTipoContenido() {
+        return tipoContenido;
+    }
+
+    public byte[] getCuerpo() {
+        return cuerpo;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    // Momento desde el que corre el arrendamiento de una reserva EN_PROCESO
+    public LocalDateTime getUltimaRenovacion() {
+        return fechaRenovacion != null ? fechaRenovacion : fechaCreacion;
+    }
+
+    @Override
+    public String getId() {
+        return clave;
+    }
+
+    @Override
+    public boolean isNew() {
+        return nuevo;
+    }
+
+    @PostLoad
+    @PostPersist
+    void marcarPersistido() {
+        this.nuevo = false;
+    }
+}
@@ -0,0 +1,67 @@
+package com.espe.comun.idempotencia;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface RespuestaIdempotenteRepository extends JpaRepository<RespuestaIdempotente, String> {
+
+    // Eliminar las respuestas cuyo período de retención ya venció
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RespuestaIdempotente r WHERE r.fechaCreacion < :limite")
+    int deleteByFechaCreacionBefore(@Param("limite") LocalDateTime limite);
+
+    // Toma una reserva EN_PROCESO cuyo arrendamiento venció (el proceso que la hizo murió).
+    // Solo una solicitud la gana: las demás ya ven la fecha nueva y no actualizan nada
+    @Transactional
+    @Modifying
+    @Query("UPDATE RespuestaIdempotente r SET r.fechaCreacion = :ahora, r.fechaRenovacion = NULL " +
+           "WHERE r.clave = :clave AND r.huella = :huella " +
+           "AND r.estado = com.espe.comun.idempotencia.RespuestaIdempotente.Estado.EN_PROCESO " +
+           "AND COALESCE(r.fechaRenovacion, r.fechaCreacion) < :vencimiento")
+    int tomarReservaVencida(@Param("clave") String clave,
+                            @Param("huella") String huella,
+                            @Param("vencimiento") LocalDateTime vencimiento,
+                            @Param("ahora") LocalDateTime ahora);
+
+    // Extiende el arrendamiento de la reserva propia mientras la solicitud sigue en ejecución
+    @Transactional
+    @Modifying
+    @Query("UPDATE RespuestaIdempotente r SET r.fechaRenovacion = :ahora WHERE r.clave = :clave " +
+           "AND r.estado = com.espe.comun.idempotencia.RespuestaIdempotente.Estado.EN_PROCESO " +
+           "AND r.fechaCreacion = :fechaReserva")
+    int renovarReserva(@Param("clave") String clave,
+                       @Param("fechaReserva") LocalDateTime fechaReserva,
+                       @Param("ahora") LocalDateTime ahora);
+
+    // Completa la reserva solo si sigue siendo la nuestra: si otra solicitud la tomó
+    // por arrendamiento vencido, su fecha ya no coincide
+    @Transactional
+    @Modifying
+    @Query("UPDATE RespuestaIdempotente r SET " +
+           "r.estado = com.espe.comun.idempotencia.RespuestaIdempotente.Estado.COMPLETADA, " +
+           "r.codigoEstado = :codigoEstado, r.tipoContenido = :tipoContenido, r.cuerpo = :cuerpo " +
+           "WHERE r.clave = :clave " +
+           "AND r.estado = com.espe.comun.idempotencia.RespuestaIdempotente.Estado.EN_PROCESO " +
+           "AND r.fechaCreacion = :fechaReserva")
+    int completarReserva(@Param("clave") String clave,
+                         @Param("fechaReserva") LocalDateTime fechaReserva,
+                         @Param("codigoEstado") int codigoEstado,
+                         @Param("tipoContenido") String tipoContenido,
+                         @Param("cuerpo") byte[] cuerpo);
+
+    // Libera la reserva propia para que el cliente pueda reintentar
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RespuestaIdempotente r WHERE r.clave = :clave " +
+           "AND r.estado = com.espe.comun.idempotencia.RespuestaIdempotente.Estado.EN_PROCESO " +
+           "AND r.fechaCreacion = :fechaReserva")
+    int liberarReserva(@Param("clave") String clave, @Param("fechaReserva") LocalDateTime fechaReserva);
+}
@@ -0,0 +1,41 @@
+package com.espe.comun.utils;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Caché en memoria con expiración por tiempo y tamaño máximo (desalojo LRU)
+public class CacheLocal<K, V> {
+
+    private record Entrada<V>(V valor, long expiraEnNanos) {
+    }
+
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entrada<V>> entradas;
+
+    public CacheLocal(Duration ttl, int tamanoMaximo) {
+        this.ttlNanos = ttl.toNanos();
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> eldest) {
+                return size() > tamanoMaximo;
+            }
+        };
+    }
+
+    public synchronized V obtener(K clave) {
+        Entrada<V> entrada = entradas.get(clave);
+        if (entrada == null) {
+            return null;
+        }
+        if (System.nanoTime() - entrada.expiraEnNanos() > 0) {
+            entradas.remove(clave);
+            return null;
+        }
+        return entrada.valor();
+    }
+
+    public synchronized void guardar(K clave, V valor) {
+        entradas.put(clave, new Entrada<>(valor, System.nanoTime() + ttlNanos));
+    }
+}
@@ -67,6 +67,37 @@ import {
 } from 'recharts';
 import { useNavigate } from 'react-router-dom';
 import { productoService, proveedorService, inventarioService, ordenCompraService } from '../services';
+import { EventoOrden, ResumenOrdenes } from '../types';
+
+// Totales de órdenes a partir del resumen del servidor, sin descargar el listado
+const conteosOrdenes = (resumen: ResumenOrdenes) => ({
+  totalOrdenes: resumen.pendientes + resumen.enProceso + resumen.completadas + resumen.canceladas,
+  ordenesPendientes: resumen.pendientes,
+});
+
+// Efecto de un cambio de orden sobre los totales del dashboard
+const variacionOrdenes = (stats: { totalOrdenes: number; ordenesPendientes: number }, evento: EventoOrden) => {
+  const pendiente = (estado?: string) => (estado === 'PENDIENTE' ? 1 : 0);
+  switch (evento.tipo) {
+    case 'CREADA':
+      return {
+        totalOrdenes: stats.totalOrdenes + 1,
+        ordenesPendientes: stats.ordenesPendientes + pendiente(evento.estado),
+      };
+    case 'ELIMINADA':
+      return {
+        totalOrdenes: stats.totalOrdenes - 1,
+        ordenesPendientes: stats.ordenesPendientes - pendiente(evento.estadoAnterior),
+      };
+    case 'ESTADO_CAMBIADO':
+      return {
+        totalOrdenes: stats.totalOrdenes,
+        ordenesPendientes: stats.ordenesPendientes - pendiente(evento.estadoAnterior) + pendiente(evento.estado),
+      };
+    default:
+      return {};
+  }
+};
 
 interface DashboardStats {
   totalProductos: number;
@@ -208,22 +239,20 @@ const DashboardPage: React.FC = () => {
   const handleRefresh = async () => {
     setRefreshing(true);
     try {
-      const [productos, proveedores, bodegas, ordenes, stockCritico, ordenesPendientes] = await Promise.all([
+      const [productos, proveedores, bodegas, resumen, stockCritico] = await Promise.all([
         productoService.getAll(),
         proveedorService.getAll(),
         inventarioService.getAllBodegas(),
-        ordenCompraService.getAll(),
+        ordenCompraService.getResumen(),
         inventarioService.getStockCritico(),
-        ordenCompraService.getPendientes(),
       ]);
 
       setStats({
         totalProductos: productos.length,
         totalProveedores: proveedores.length,
         totalBodegas: bodegas.length,
-        totalOrdenes: ordenes.length,
+        ...conteosOrdenes(resumen),
         stockCritico: stockCritico.length,
-        ordenesPendientes: ordenesPendientes.length,
         productosActivos: productos.filter(p => p.estado === 'ACTIVO').length,
         proveedoresActivos: proveedores.filter(p => p.estado === 'ACTIVO').length,
         bodegasActivas: bodegas.length,
@@ -288,22 +317,20 @@ const DashboardPage: React.FC = () => {
   useEffect(() => {
     const loadStats = async () => {
       try {
-        const [productos, proveedores, bodegas, ordenes, stockCritico, ordenesPendientes] = await Promise.all([
+        const [productos, proveedores, bodegas, resumen, stockCritico] = await Promise.all([
           productoService.getAll(),
           proveedorService.getAll(),
           inventarioService.getAllBodegas(),
-          ordenCompraService.getAll(),
+          ordenCompraService.getResumen(),
           inventarioService.getStockCritico(),
-          ordenCompraService.getPendientes(),
         ]);
 
         setStats({
           totalProductos: productos.length,
           totalProveedores: proveedores.length,
           totalBodegas: bodegas.length,
-          totalOrdenes: ordenes.length,
+          ...conteosOrdenes(resumen),
           stockCritico: stockCritico.length,
-          ordenesPendientes: ordenesPendientes.length,
           productosActivos: productos.filter(p => p.estado === 'ACTIVO').length,
           proveedoresActivos: proveedores.filter(p => p.estado === 'ACTIVO').length,
           bodegasActivas: bodegas.length,
@@ -321,6 +348,22 @@ const DashboardPage: React.FC = () => {
     loadStats();
   }, []);
 
+  // Los conteos de órdenes se ajustan con los datos de cada evento publicado por el servidor,
+  // sin solicitudes por evento; el resumen sólo se vuelve a leer si el stream pide resincronizar
+  useEffect(() => {
+    return ordenCompraService.suscribirCambios(
+      (evento) => setStats(prev => ({ ...prev, ...variacionOrdenes(prev, evento) })),
+      async () => {
+        try {
+          const resumen = await ordenCompraService.getResumen();
+          setStats(prev => ({ ...prev, ...conteosOrdenes(resumen) }));
+        } catch (error) {
+          console.error('Error updating order counts:', error);
+        }
+      }
+    );
+  }, []);
+
   useEffect(() => {
     if (!autoRefresh) return;
     
@@ -1,4 +1,4 @@
-import React, { useState, useEffect, useCallback } from 'react';
+import React, { useState, useEffect, useCallback, useRef } from 'react';
 import {
   Box,
   Typography,
@@ -35,13 +35,23 @@ import {
   Clear,
   ShoppingCart as ShoppingCartIcon,
 } from '@mui/icons-material';
-import { OrdenCompra, DetalleOrden, Proveedor, Producto } from '../types';
+import { OrdenCompra, OrdenCompraResumen, DetalleOrden, Proveedor, Producto } from '../types';
 import { ordenCompraService, proveedorService, productoService, inventarioService } from '../services';
 
+// Espera tras el primer evento de una ráfaga antes de pedir las órdenes que cambiaron
+const ESPERA_RAFAGA_MS = 300;
+// Por encima de esta cantidad de órdenes cambiadas se recarga la primera página en lugar de pedirlas una a una
+const MAXIMO_ORDENES_POR_RAFAGA = 20;
+
 const OrdenesCompraPage: React.FC = () => {
-  const [ordenes, setOrdenes] = useState<OrdenCompra[]>([]);
-  const [ordenesFiltradas, setOrdenesFiltradas] = useState<OrdenCompra[]>([]);
+  const [ordenes, setOrdenes] = useState<OrdenCompraResumen[]>([]);
+  const [ordenesFiltradas, setOrdenesFiltradas] = useState<OrdenCompraResumen[]>([]);
+  // Cursor de la página siguiente del listado (undefined cuando ya no hay más)
+  const [siguiente, setSiguiente] = useState<number | undefined>(undefined);
+  const [cargandoMas, setCargandoMas] = useState(false);
   const [proveedores, setProveedores] = useState<Proveedor[]>([]);
+  // Lectura de los proveedores vigentes desde callbacks que no se recrean (carga y suscripción)
+  const proveedoresRef = useRef<Proveedor[]>([]);
   const [productos, setProductos] = useState<Producto[]>([]);
   const [loading, setLoading] = useState(true);
   const [openDialog, setOpenDialog] = useState(false);
@@ -75,58 +85,60 @@ const OrdenesCompraPage: React.FC = () => {
     severity: 'success',
   });
 
-  // Optimizar carga de órdenes con useCallback
+  // Agregar el nombre y RUC del proveedor a una orden del listado
+  const conProveedor = useCallback(<T extends OrdenCompraResumen>(orden: T): T => {
+    const proveedor = proveedoresRef.current.find(p => p.id === orden.proveedorId);
+    return {
+      ...orden,
+      proveedor: proveedor ? {
+        nombre: proveedor.nombre,
+        nitRuc: proveedor.nitRuc
+      } : undefined
+    };
+  }, []);
+
+  // Cargar la primera página del listado (vista resumen); las siguientes se piden con "Cargar más"
   const loadOrdenes = useCallback(async () => {
     try {
-      console.log('Cargando órdenes desde el backend...');
-      const data = await ordenCompraService.getAll();
-      console.log('Datos recibidos del backend:', data); // Debug
-      
-      // Validar que data sea un array
-      if (!Array.isArray(data)) {
-        console.error('Los datos recibidos no son un array:', data);
-        setOrdenes([]);
-        setOrdenesFiltradas([]);
-        showSnackbar('Error: formato de datos inválido del servidor', 'error');
-        return;
-      }
-      
-      console.log('Procesando', data.length, 'órdenes recibidas');
-      
-      // Validar que todas las órdenes tengan un id
-      const ordenesValidas = data.filter(orden => orden.id != null);
-      if (ordenesValidas.length !== data.length) {
-        console.warn(`Se filtraron ${data.length - ordenesValidas.length} órdenes sin ID`);
-      }
-      
-      // Mapear proveedores a las órdenes
-      const ordenesConProveedor = ordenesValidas.map(orden => {
-        const proveedor = proveedores.find(p => p.id === orden.proveedorId);
-        return {
-          ...orden,
-          proveedor: proveedor ? {
-            nombre: proveedor.nombre,
-            nitRuc: proveedor.nitRuc
-          } : undefined
-        };
-      });
-      
-      // Forzar actualización del estado con nuevas referencias
-      setOrdenes([...ordenesConProveedor]);
-      setOrdenesFiltradas([...ordenesConProveedor]);
+      const pagina = await ordenCompraService.getPagina();
+      const ordenesConProveedor = pagina.ordenes.filter(orden => orden.id != null).map(conProveedor);
+      setOrdenes(ordenesConProveedor);
+      setOrdenesFiltradas(ordenesConProveedor);
+      setSiguiente(pagina.siguiente);
     } catch (error) {
       console.error('Error loading ordenes:', error);
       setOrdenes([]);
       setOrdenesFiltradas([]);
+      setSiguiente(undefined);
       showSnackbar('Error al cargar órdenes', 'error');
     } finally {
       setLoading(false);
     }
-  }, []); // Sin dependencias para poder recargar cuando sea necesario
+  }, [conProveedor]);
+
+  const cargarMas = async () => {
+    if (siguiente === undefined) {
+      return;
+    }
+    setCargandoMas(true);
+    try {
+      const pagina = await ordenCompraService.getPagina(siguiente);
+      const nuevas = pagina.ordenes.filter(orden => orden.id != null).map(conProveedor);
+      // Una orden recibida antes por el stream de cambios puede volver a llegar en la página
+      setOrdenes(prev => [...prev, ...nuevas.filter(orden => !prev.some(o => o.id === orden.id))]);
+      setSiguiente(pagina.siguiente);
+    } catch (error) {
+      console.error('Error loading ordenes:', error);
+      showSnackbar('Error al cargar más órdenes', 'error');
+    } finally {
+      setCargandoMas(false);
+    }
+  };
 
   const loadProveedores = useCallback(async () => {
     try {
       const data = await proveedorService.getAll();
+      proveedoresRef.current = data;
       setProveedores(data);
     } catch (error) {
       console.error('Error loading proveedores:', error);
@@ -155,6 +167,65 @@ const OrdenesCompraPage: React.FC = () => {
     cargarDatos();
   }, []); // Sin dependencias para evitar recargas innecesarias
 
+  // Aplicar los cambios publicados por el servidor en lugar de recargar el listado completo.
+  // La suscripción se abre una sola vez: recrearla perdería el Last-Event-ID de la reconexión.
+  // Los cambios de estado y las eliminaciones se aplican con los datos del evento; las órdenes
+  // creadas o editadas se piden juntas al terminar una ráfaga de eventos
+  useEffect(() => {
+    const porObtener = new Set<number>();
+    let temporizador: ReturnType<typeof setTimeout> | undefined;
+
+    const obtenerCambiadas = async () => {
+      temporizador = undefined;
+      const ids = Array.from(porObtener);
+      porObtener.clear();
+      // Una ráfaga grande (p. ej. una creación en lote) se resuelve recargando la primera página
+      if (ids.length > MAXIMO_ORDENES_POR_RAFAGA) {
+        await loadOrdenes();
+        return;
+      }
+      const resultados = await Promise.allSettled(ids.map(id => ordenCompraService.getById(id)));
+      const recibidas: OrdenCompra[] = [];
+      resultados.forEach(resultado => {
+        if (resultado.status === 'fulfilled') {
+          recibidas.push(conProveedor(resultado.value));
+        } else {
+          console.error('Error al aplicar cambio de orden:', resultado.reason);
+        }
+      });
+      setOrdenes(prev => [
+        ...prev.map(o => recibidas.find(r => r.id === o.id) ?? o),
+        ...recibidas.filter(r => !prev.some(o => o.id === r.id)),
+      ]);
+    };
+
+    const cancelar = ordenCompraService.suscribirCambios(
+      (evento) => {
+        if (evento.tipo === 'ELIMINADA') {
+          porObtener.delete(evento.ordenId);
+          setOrdenes(prev => prev.filter(o => o.id !== evento.ordenId));
+          return;
+        }
+        if (evento.tipo === 'ESTADO_CAMBIADO' && evento.estado) {
+          const estado = evento.estado;
+          setOrdenes(prev => prev.map(o => o.id === evento.ordenId ? { ...o, estado } : o));
+          return;
+        }
+        porObtener.add(evento.ordenId);
+        if (temporizador === undefined) {
+          temporizador = setTimeout(obtenerCambiadas, ESPERA_RAFAGA_MS);
+        }
+      },
+      () => loadOrdenes()
+    );
+    return () => {
+      cancelar();
+      if (temporizador !== undefined) {
+        clearTimeout(temporizador);
+      }
+    };
+  }, [loadOrdenes, conProveedor]);
+
   // Filtrar órdenes cuando cambien los criterios
   useEffect(() => {
     let filtered = [...ordenes];
@@ -260,8 +331,17 @@ const OrdenesCompraPage: React.FC = () => {
     return `FAC-${año}${mes}${dia}-${hora}${minuto}${segundo}${milisegundo}`;
   };
 
-  const handleOpenDialog = (orden?: OrdenCompra) => {
-    if (orden) {
+  const handleOpenDialog = async (resumen?: OrdenCompraResumen) => {
+    if (resumen) {
+      // El listado sólo trae el resumen: la orden completa, con sus detalles, se pide al abrirla
+      let orden: OrdenCompra;
+      try {
+        orden = await ordenCompraService.getById(resumen.id!);
+      } catch (error) {
+        console.error('Error loading orden:', error);
+        showSnackbar('Error al cargar la orden', 'error');
+        return;
+      }
       setEditingOrden(orden);
       // Convertir fechas ISO a formato yyyy-MM-dd para el input
       setFormData({
@@ -676,7 +756,7 @@ const OrdenesCompraPage: React.FC = () => {
         </Box>
         <Box sx={{ mt: 1 }}>
           <Typography variant="body2" color="text.secondary">
-            Mostrando {ordenesFiltradas.length} de {ordenes.length} órdenes
+            Mostrando {ordenesFiltradas.length} de {ordenes.length} órdenes cargadas
             {filtroEstado !== 'TODOS' && ` - Filtradas por: ${filtroEstado}`}
           </Typography>
         </Box>
@@ -770,6 +850,14 @@ const OrdenesCompraPage: React.FC = () => {
             </Table>
           </TableContainer>
         )}
+
+        {siguiente !== undefined && (
+          <Box sx={{ display: 'flex', justifyContent: 'center', mt: 2 }}>
+            <Button variant="outlined" onClick={cargarMas} disabled={cargandoMas}>
+              {cargandoMas ? 'Cargando...' : 'Cargar más'}
+            </Button>
+          </Box>
+        )}
       </Paper>
 
       <Dialog open={openDialog} onClose={handleCloseDialog} maxWidth="lg" fullWidth>
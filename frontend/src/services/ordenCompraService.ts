@@ -1,15 +1,27 @@
 import axios from 'axios';
-import { OrdenCompra, DetalleOrden, EstadoOrden } from '../types';
+import { OrdenCompra, OrdenCompraResumen, PaginaOrdenes, DetalleOrden, EstadoOrden, EventoOrden, ResumenOrdenes } from '../types';
 
 const API_BASE_URL = `${process.env.REACT_APP_ORDENES_API_URL || 'http://localhost:8081/api'}/ordenes-compra`;
 
+// Órdenes por página en los listados
+const TAMANO_PAGINA = 100;
+
+// Los listados se piden en vista resumen y de a una página: el detalle completo de una orden
+// se obtiene con getById al abrirla, y la página siguiente con el cursor de X-Next-After
+const obtenerPagina = async (url: string, after: number, params: Record<string, string> = {}): Promise<PaginaOrdenes> => {
+  const response = await axios.get<OrdenCompraResumen[]>(url, {
+    params: { ...params, after, limit: TAMANO_PAGINA, vista: 'resumen' }
+  });
+  const siguiente = response.headers['x-next-after'];
+  return { ordenes: response.data, siguiente: siguiente != null ? Number(siguiente) : undefined };
+};
+
 export const ordenCompraService = {
   // === SERVICIOS DE ÓRDENES DE COMPRA ===
 
-  // Obtener todas las órdenes
-  getAll: async (): Promise<OrdenCompra[]> => {
-    const response = await axios.get(`${API_BASE_URL}`);
-    return response.data;
+  // Obtener una página de órdenes a partir del cursor (0 para la primera)
+  getPagina: async (after: number = 0): Promise<PaginaOrdenes> => {
+    return obtenerPagina(`${API_BASE_URL}`, after);
   },
 
   // Obtener orden por ID
@@ -36,23 +48,18 @@ export const ordenCompraService = {
   },
 
   // Buscar órdenes por estado
-  findByEstado: async (estado: EstadoOrden): Promise<OrdenCompra[]> => {
-    const response = await axios.get(`${API_BASE_URL}/estado/${estado}`);
-    return response.data;
+  findByEstado: async (estado: EstadoOrden, after: number = 0): Promise<PaginaOrdenes> => {
+    return obtenerPagina(`${API_BASE_URL}/estado/${estado}`, after);
   },
 
   // Buscar órdenes por proveedor
-  findByProveedor: async (proveedorId: number): Promise<OrdenCompra[]> => {
-    const response = await axios.get(`${API_BASE_URL}/proveedor/${proveedorId}`);
-    return response.data;
+  findByProveedor: async (proveedorId: number, after: number = 0): Promise<PaginaOrdenes> => {
+    return obtenerPagina(`${API_BASE_URL}/proveedor/${proveedorId}`, after);
   },
 
   // Buscar órdenes por rango de fechas
-  findByRangoFechas: async (fechaInicio: string, fechaFin: string): Promise<OrdenCompra[]> => {
-    const response = await axios.get(`${API_BASE_URL}/rango-fechas`, {
-      params: { fechaInicio, fechaFin }
-    });
-    return response.data;
+  findByRangoFechas: async (fechaInicio: string, fechaFin: string, after: number = 0): Promise<PaginaOrdenes> => {
+    return obtenerPagina(`${API_BASE_URL}/rango-fechas`, after, { fechaInicio, fechaFin });
   },
 
   // Buscar órdenes por número de factura
@@ -72,27 +79,23 @@ export const ordenCompraService = {
   },
 
   // Obtener órdenes pendientes
-  getPendientes: async (): Promise<OrdenCompra[]> => {
-    const response = await axios.get(`${API_BASE_URL}/pendientes`);
-    return response.data;
+  getPendientes: async (after: number = 0): Promise<PaginaOrdenes> => {
+    return obtenerPagina(`${API_BASE_URL}/pendientes`, after);
   },
 
   // Obtener órdenes en proceso
-  getEnProceso: async (): Promise<OrdenCompra[]> => {
-    const response = await axios.get(`${API_BASE_URL}/en-proceso`);
-    return response.data;
+  getEnProceso: async (after: number = 0): Promise<PaginaOrdenes> => {
+    return obtenerPagina(`${API_BASE_URL}/en-proceso`, after);
   },
 
   // Obtener órdenes completadas
-  getCompletadas: async (): Promise<OrdenCompra[]> => {
-    const response = await axios.get(`${API_BASE_URL}/completadas`);
-    return response.data;
+  getCompletadas: async (after: number = 0): Promise<PaginaOrdenes> => {
+    return obtenerPagina(`${API_BASE_URL}/completadas`, after);
   },
 
   // Obtener órdenes canceladas
-  getCanceladas: async (): Promise<OrdenCompra[]> => {
-    const response = await axios.get(`${API_BASE_URL}/canceladas`);
-    return response.data;
+  getCanceladas: async (after: number = 0): Promise<PaginaOrdenes> => {
+    return obtenerPagina(`${API_BASE_URL}/canceladas`, after);
   },
 
   // === SERVICIOS DE DETALLES DE ORDEN ===
@@ -114,6 +117,23 @@ export const ordenCompraService = {
     await axios.delete(`${API_BASE_URL}/${ordenId}/detalles/${detalleId}`);
   },
 
+  // Reemplazar el conjunto completo de detalles de una orden en una sola solicitud
+  reemplazarDetalles: async (ordenId: number, detalles: Partial<DetalleOrden>[]): Promise<OrdenCompra> => {
+    const response = await axios.put(`${API_BASE_URL}/${ordenId}/detalles`, detalles);
+    return response.data;
+  },
+
+  // === SERVICIOS DE EVENTOS ===
+
+  // Suscribirse a los cambios de órdenes; EventSource reconecta solo y reanuda con Last-Event-ID.
+  // onResincronizar se invoca cuando ya no es posible reanudar y hay que recargar el listado
+  suscribirCambios: (onEvento: (evento: EventoOrden) => void, onResincronizar: () => void): (() => void) => {
+    const fuente = new EventSource(`${API_BASE_URL}/stream`);
+    fuente.onmessage = (mensaje) => onEvento(JSON.parse(mensaje.data));
+    fuente.addEventListener('resincronizar', () => onResincronizar());
+    return () => fuente.close();
+  },
+
   // === SERVICIOS DE ESTADÍSTICAS ===
 
   // Contar órdenes por estado
@@ -139,7 +159,7 @@ export const ordenCompraService = {
   },
 
   // Obtener resumen de órdenes
-  getResumen: async (): Promise<any> => {
+  getResumen: async (): Promise<ResumenOrdenes> => {
     const response = await axios.get(`${API_BASE_URL}/resumen`);
     return response.data;
   },
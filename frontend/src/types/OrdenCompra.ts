@@ -13,6 +13,7 @@ export interface DetalleOrden {
 export interface OrdenCompra {
   id?: number;
   proveedorId: number;
+  bodegaId?: number;
   numeroFactura: string;
   fechaEmision: string;
   fechaEntrega?: string;
@@ -31,3 +32,33 @@ export interface OrdenCompra {
     nitRuc: string;
   };
 }
+
+// Fila de los listados en vista resumen (?vista=resumen): sólo las columnas de la tabla
+export type OrdenCompraResumen = Pick<OrdenCompra,
+  'id' | 'proveedorId' | 'numeroFactura' | 'fechaEmision' | 'total' | 'estado' | 'proveedor'>;
+
+// Página de un listado por cursor; siguiente es el cursor de la cabecera X-Next-After si hay más
+export interface PaginaOrdenes {
+  ordenes: OrdenCompraResumen[];
+  siguiente?: number;
+}
+
+// Conteos por estado y total del mes servidos por /ordenes-compra/resumen
+export interface ResumenOrdenes {
+  pendientes: number;
+  enProceso: number;
+  completadas: number;
+  canceladas: number;
+  totalMes: number;
+  actualizado: string;
+}
+
+// Cambio publicado por el servidor en /ordenes-compra/stream
+export interface EventoOrden {
+  id: number;
+  tipo: 'CREADA' | 'ACTUALIZADA' | 'ESTADO_CAMBIADO' | 'ELIMINADA';
+  ordenId: number;
+  estadoAnterior?: EstadoOrden;
+  estado?: EstadoOrden;
+  fecha: string;
+}
@@ -0,0 +1,45 @@
+package com.espe.inventario.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+// Los registros de inventario anteriores al kardex no tienen movimientos: se les crea un movimiento
+// de apertura con su cantidad actual para que el stock histórico parta de un saldo conocido
+@Component
+public class AperturaKardex implements InitializingBean {
+
+    private static final LocalDateTime INICIO_KARDEX = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public AperturaKardex(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        // La dependencia con EntityManagerFactory garantiza que el esquema ya fue actualizado
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        // El movimiento de apertura no puede quedar antes del último saldo: generarSaldos sólo avanza desde
+        // ese corte, el stock histórico sólo repite deltas posteriores a él y compactar borraría lo anterior
+        LocalDateTime ultimoCorte = jdbcTemplate.queryForObject(
+            "SELECT MAX(fecha_corte) FROM saldo_inventario", LocalDateTime.class);
+        jdbcTemplate.update(
+            "INSERT INTO movimiento_inventario " +
+            "(producto_id, bodega_id, tipo, cantidad, cantidad_resultante, clave_idempotencia, fecha) " +
+            "SELECT i.producto_id, i.bodega_id, 'ALTA', i.cantidad, i.cantidad, NULL, " +
+            "GREATEST(COALESCE(i.ultima_actualizacion, NOW()), ?) " +
+            "FROM inventario i " +
+            "WHERE NOT EXISTS (SELECT 1 FROM movimiento_inventario m " +
+            "WHERE m.producto_id = i.producto_id AND m.bodega_id = i.bodega_id) " +
+            "AND NOT EXISTS (SELECT 1 FROM saldo_inventario s " +
+            "WHERE s.producto_id = i.producto_id AND s.bodega_id = i.bodega_id)",
+            ultimoCorte != null ? ultimoCorte : INICIO_KARDEX
+        );
+    }
+}
@@ -0,0 +1,52 @@
+package com.espe.inventario.config;
+
+import com.espe.comun.idempotencia.FiltroIdempotenciaBase;
+import com.espe.comun.idempotencia.RespuestaIdempotenteRepository;
+import com.espe.inventario.exceptions.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.regex.Pattern;
+
+// Reproduce la respuesta almacenada cuando un ajuste de stock (agregar o reducir) se
+// reintenta con la misma cabecera Idempotency-Key, sin volver a aplicarlo
+@Component
+public class FiltroIdempotencia extends FiltroIdempotenciaBase {
+
+    private static final Pattern RUTA_AJUSTE_STOCK =
+        Pattern.compile("/api/inventario/producto/[^/]+/bodega/[^/]+/(agregar|reducir)-stock");
+
+    @Autowired
+    public FiltroIdempotencia(RespuestaIdempotenteRepository respuestaIdempotenteRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${spring.application.name}") String nombreServicio,
+                              @Value("${inventario.idempotencia.retencion-horas:24}") long retencionHoras,
+                              @Value("${inventario.idempotencia.cache.tamano-maximo:10000}") int tamanoMaximo,
+                              @Value("${inventario.idempotencia.arrendamiento-segundos:60}") long arrendamientoSegundos) {
+        super(respuestaIdempotenteRepository, objectMapper, nombreServicio, Duration.ofHours(retencionHoras), tamanoMaximo,
+            Duration.ofSeconds(arrendamientoSegundos));
+    }
+
+    @Override
+    protected boolean aplicaA(HttpServletRequest request, String ruta) {
+        return "PATCH".equals(request.getMethod()) && RUTA_AJUSTE_STOCK.matcher(ruta).matches();
+    }
+
+    @Override
+    protected Object cuerpoError(HttpStatus estado, String mensaje) {
+        return new ErrorResponse(Instant.now().toString(), estado.value(), mensaje, null);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${inventario.idempotencia.purga-ms:3600000}")
+    public void purgarVencidas() {
+        super.purgarVencidas();
+    }
+}
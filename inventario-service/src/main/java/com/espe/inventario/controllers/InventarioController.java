@@ -1,24 +1,37 @@
 package com.espe.inventario.controllers;
 
+import com.espe.inventario.dto.ModoLote;
+import com.espe.inventario.dto.MovimientoStock;
+import com.espe.inventario.dto.ResultadoMovimiento;
+import com.espe.inventario.dto.StockHistorico;
 import com.espe.inventario.models.Inventario;
+import com.espe.inventario.models.MovimientoInventario;
 import com.espe.inventario.services.InventarioService;
+import com.espe.inventario.services.KardexService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/inventario")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = "X-Next-After")
 public class InventarioController {
     
+    private static final String CABECERA_SIGUIENTE_CURSOR = "X-Next-After";
+    
     @Autowired
     private InventarioService inventarioService;
     
+    @Autowired
+    private KardexService kardexService;
+    
     // Endpoints de Inventario
     @GetMapping
     public ResponseEntity<List<Inventario>> getAllInventarios() {
@@ -81,6 +94,32 @@ public class InventarioController {
         return ResponseEntity.notFound().build();
     }
     
+    // Stock a una fecha pasada (p. ej. cierre de mes), de una bodega o de todas
+    @GetMapping("/as-of")
+    public ResponseEntity<List<StockHistorico>> getStockAl(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fecha,
+            @RequestParam(required = false) Long bodegaId) {
+        return ResponseEntity.ok(kardexService.obtenerStockAl(fecha, bodegaId));
+    }
+    
+    // Movimientos de un producto en una bodega, por cursor: el siguiente after llega en X-Next-After
+    @GetMapping("/producto/{productoId}/bodega/{bodegaId}/kardex")
+    public ResponseEntity<List<MovimientoInventario>> getKardex(
+            @PathVariable Long productoId,
+            @PathVariable Long bodegaId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "" + KardexService.LIMITE_POR_DEFECTO) int limit) {
+        List<MovimientoInventario> movimientos = kardexService.obtenerKardex(productoId, bodegaId, desde, hasta, after, limit);
+        if (movimientos.size() < Math.max(1, Math.min(limit, KardexService.LIMITE_MAXIMO))) {
+            return ResponseEntity.ok(movimientos);
+        }
+        return ResponseEntity.ok()
+            .header(CABECERA_SIGUIENTE_CURSOR, String.valueOf(movimientos.get(movimientos.size() - 1).getId()))
+            .body(movimientos);
+    }
+    
     @PatchMapping("/producto/{productoId}/bodega/{bodegaId}/actualizar-stock")
     public ResponseEntity<Inventario> actualizarStock(
             @PathVariable Long productoId, 
@@ -121,6 +160,20 @@ public class InventarioController {
         }
     }
     
+    @PostMapping("/movimientos/lote")
+    public ResponseEntity<List<ResultadoMovimiento>> aplicarMovimientos(
+            @RequestBody List<@Valid MovimientoStock> movimientos,
+            @RequestParam(defaultValue = "mejor-esfuerzo") String modo) {
+        ModoLote modoLote = ModoLote.desde(modo);
+        List<ResultadoMovimiento> resultados = inventarioService.aplicarMovimientos(movimientos, modoLote);
+        boolean revertido = modoLote == ModoLote.TODO_O_NADA && resultados.stream()
+            .anyMatch(resultado -> resultado.estado() == ResultadoMovimiento.Estado.RECHAZADO);
+        if (revertido) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(resultados);
+        }
+        return ResponseEntity.ok(resultados);
+    }
+    
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteInventario(@PathVariable Long id) {
         Optional<Inventario> inventario = inventarioService.findInventarioById(id);
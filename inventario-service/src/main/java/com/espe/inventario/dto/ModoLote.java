@@ -0,0 +1,19 @@
+package com.espe.inventario.dto;
+
+import java.util.Locale;
+
+// Modo de aplicación de un lote de movimientos: ?modo=mejor-esfuerzo|todo-o-nada
+public enum ModoLote {
+    // Aplica las líneas válidas y rechaza el resto
+    MEJOR_ESFUERZO,
+    // Si alguna línea es rechazada no se aplica ninguna
+    TODO_O_NADA;
+
+    public static ModoLote desde(String valor) {
+        try {
+            return valueOf(valor.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Modo no válido: " + valor + " (use mejor-esfuerzo o todo-o-nada)");
+        }
+    }
+}
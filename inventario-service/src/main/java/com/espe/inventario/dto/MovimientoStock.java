@@ -0,0 +1,17 @@
+package com.espe.inventario.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+// Movimiento de stock con cantidad con signo: positiva para ingresos, negativa para egresos
+public record MovimientoStock(
+    @Size(max = 100, message = "La clave de idempotencia no puede exceder 100 caracteres")
+    String claveIdempotencia,
+    @NotNull(message = "El ID del producto es obligatorio")
+    Long productoId,
+    @NotNull(message = "El ID de la bodega es obligatorio")
+    Long bodegaId,
+    @NotNull(message = "La cantidad es obligatoria")
+    Integer cantidad
+) {
+}
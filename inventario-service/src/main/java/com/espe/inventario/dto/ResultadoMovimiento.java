@@ -0,0 +1,38 @@
+package com.espe.inventario.dto;
+
+public record ResultadoMovimiento(
+    String claveIdempotencia,
+    Long productoId,
+    Long bodegaId,
+    Estado estado,
+    Integer cantidadResultante,
+    String mensaje
+) {
+    public enum Estado {
+        APLICADO,
+        DUPLICADO,
+        RECHAZADO,
+        // Línea válida que no se aplicó porque otra del lote todo-o-nada fue rechazada
+        REVERTIDO
+    }
+
+    public static ResultadoMovimiento aplicado(MovimientoStock movimiento, Integer cantidadResultante) {
+        return new ResultadoMovimiento(movimiento.claveIdempotencia(), movimiento.productoId(),
+            movimiento.bodegaId(), Estado.APLICADO, cantidadResultante, null);
+    }
+
+    public static ResultadoMovimiento duplicado(MovimientoStock movimiento) {
+        return new ResultadoMovimiento(movimiento.claveIdempotencia(), movimiento.productoId(),
+            movimiento.bodegaId(), Estado.DUPLICADO, null, "Movimiento ya procesado");
+    }
+
+    public static ResultadoMovimiento rechazado(MovimientoStock movimiento, String mensaje) {
+        return new ResultadoMovimiento(movimiento.claveIdempotencia(), movimiento.productoId(),
+            movimiento.bodegaId(), Estado.RECHAZADO, null, mensaje);
+    }
+
+    public static ResultadoMovimiento revertido(MovimientoStock movimiento) {
+        return new ResultadoMovimiento(movimiento.claveIdempotencia(), movimiento.productoId(),
+            movimiento.bodegaId(), Estado.REVERTIDO, null, "Lote revertido: otra línea fue rechazada");
+    }
+}
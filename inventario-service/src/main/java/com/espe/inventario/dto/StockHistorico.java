@@ -0,0 +1,9 @@
+package com.espe.inventario.dto;
+
+// Cantidad de un producto en una bodega a una fecha pasada
+public record StockHistorico(
+    Long productoId,
+    Long bodegaId,
+    Integer cantidad
+) {
+}
@@ -5,6 +5,10 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Column;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.JoinColumn;
 import jakarta.validation.constraints.NotNull;
@@ -12,10 +16,18 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Positive;
 import java.time.LocalDateTime;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
+@Table(name = "inventario", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_inventario_producto_bodega", columnNames = {"producto_id", "bodega_id"})
+}, indexes = {
+    @Index(name = "idx_inventario_es_critico", columnList = "es_critico, bodega_id")
+})
 public class Inventario {
     
+    public static final int CANTIDAD_MINIMA_POR_DEFECTO = 10;
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -41,6 +53,19 @@ public class Inventario {
     @Column(name = "ultima_actualizacion")
     private LocalDateTime ultimaActualizacion;
     
+    // cantidad <= cantidadMinima guardado como columna indexable. Los UPDATE directos de stock lo
+    // recalculan en la misma sentencia; las escrituras por entidad, en los callbacks de JPA
+    @Column(name = "es_critico")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Boolean esCritico;
+    
+    // Crece con cada escritura de la fila, también en los UPDATE directos de stock, que la incrementan
+    // con la fila bloqueada: ordena los cambios confirmados de una misma fila
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint not null default 0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+    
     @ManyToOne
     @JoinColumn(name = "bodega_id", insertable = false, updatable = false)
     @JsonIgnoreProperties({"inventarios"})
@@ -49,7 +74,7 @@ public class Inventario {
     // Constructores
     public Inventario() {
         this.ultimaActualizacion = LocalDateTime.now();
-        this.cantidadMinima = 10; // Valor por defecto
+        this.cantidadMinima = CANTIDAD_MINIMA_POR_DEFECTO;
     }
     
     // Getters y Setters
@@ -101,6 +126,22 @@ public class Inventario {
         this.ultimaActualizacion = ultimaActualizacion;
     }
     
+    public Boolean getEsCritico() {
+        return esCritico;
+    }
+    
+    public void setEsCritico(Boolean esCritico) {
+        this.esCritico = esCritico;
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
     public Bodega getBodega() {
         return bodega;
     }
@@ -109,9 +150,15 @@ public class Inventario {
         this.bodega = bodega;
     }
     
+    @jakarta.persistence.PrePersist
+    public void prePersist() {
+        this.esCritico = esStockCritico();
+    }
+    
     @jakarta.persistence.PreUpdate
     public void preUpdate() {
         this.ultimaActualizacion = LocalDateTime.now();
+        this.esCritico = esStockCritico();
     }
     
     // Métodos de negocio
@@ -123,18 +170,4 @@ public class Inventario {
         this.cantidad = nuevaCantidad;
         this.ultimaActualizacion = LocalDateTime.now();
     }
-    
-    public void agregarStock(Integer cantidadAgregar) {
-        this.cantidad += cantidadAgregar;
-        this.ultimaActualizacion = LocalDateTime.now();
-    }
-    
-    public void reducirStock(Integer cantidadReducir) {
-        if (this.cantidad >= cantidadReducir) {
-            this.cantidad -= cantidadReducir;
-            this.ultimaActualizacion = LocalDateTime.now();
-        } else {
-            throw new RuntimeException("Stock insuficiente");
-        }
-    }
 }
@@ -0,0 +1,140 @@
+package com.espe.inventario.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+
+// Kardex: una fila por cada cambio de stock, nunca se modifica. Las filas antiguas sólo se eliminan
+// cuando ya quedaron resumidas en SaldoInventario
+@Entity
+@Table(name = "movimiento_inventario", indexes = {
+    @Index(name = "idx_movimiento_inventario_fila_fecha", columnList = "producto_id, bodega_id, fecha, id"),
+    @Index(name = "idx_movimiento_inventario_fecha", columnList = "fecha"),
+    @Index(name = "idx_movimiento_inventario_bodega_fecha", columnList = "bodega_id, fecha")
+})
+public class MovimientoInventario {
+    
+    public enum Tipo {
+        ALTA,
+        INGRESO,
+        EGRESO,
+        AJUSTE,
+        BAJA
+    }
+    
+    // IDENTITY a propósito: el id se asigna al insertar, con la fila de inventario ya bloqueada, así que
+    // dentro de cada producto y bodega el orden de ids es el orden en que se aplicaron los movimientos
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "producto_id", nullable = false)
+    private Long productoId;
+    
+    @Column(name = "bodega_id", nullable = false)
+    private Long bodegaId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Tipo tipo;
+    
+    // Con signo: positiva para ingresos, negativa para egresos
+    @Column(nullable = false)
+    private Integer cantidad;
+    
+    @Column(name = "cantidad_resultante", nullable = false)
+    private Integer cantidadResultante;
+    
+    @Column(name = "clave_idempotencia", length = 100)
+    private String claveIdempotencia;
+    
+    @Column(nullable = false)
+    private LocalDateTime fecha;
+    
+    // Constructores
+    public MovimientoInventario() {
+    }
+    
+    public MovimientoInventario(Long productoId, Long bodegaId, Tipo tipo, Integer cantidad,
+                                Integer cantidadResultante, String claveIdempotencia) {
+        this.productoId = productoId;
+        this.bodegaId = bodegaId;
+        this.tipo = tipo;
+        this.cantidad = cantidad;
+        this.cantidadResultante = cantidadResultante;
+        this.claveIdempotencia = claveIdempotencia;
+        this.fecha = LocalDateTime.now();
+    }
+    
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getProductoId() {
+        return productoId;
+    }
+    
+    public void setProductoId(Long productoId) {
+        this.productoId = productoId;
+    }
+    
+    public Long getBodegaId() {
+        return bodegaId;
+    }
+    
+    public void setBodegaId(Long bodegaId) {
+        this.bodegaId = bodegaId;
+    }
+    
+    public Tipo getTipo() {
+        return tipo;
+    }
+    
+    public void setTipo(Tipo tipo) {
+        this.tipo = tipo;
+    }
+    
+    public Integer getCantidad() {
+        return cantidad;
+    }
+    
+    public void setCantidad(Integer cantidad) {
+        this.cantidad = cantidad;
+    }
+    
+    public Integer getCantidadResultante() {
+        return cantidadResultante;
+    }
+    
+    public void setCantidadResultante(Integer cantidadResultante) {
+        this.cantidadResultante = cantidadResultante;
+    }
+    
+    public String getClaveIdempotencia() {
+        return claveIdempotencia;
+    }
+    
+    public void setClaveIdempotencia(String claveIdempotencia) {
+        this.claveIdempotencia = claveIdempotencia;
+    }
+    
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+    
+    public void setFecha(LocalDateTime fecha) {
+        this.fecha = fecha;
+    }
+}
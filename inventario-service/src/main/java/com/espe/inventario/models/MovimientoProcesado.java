@@ -0,0 +1,70 @@
+package com.espe.inventario.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import java.time.LocalDateTime;
+import org.springframework.data.domain.Persistable;
+
+// Registro de claves de idempotencia de movimientos ya aplicados
+@Entity
+@Table(name = "movimientos_procesados")
+public class MovimientoProcesado implements Persistable<String> {
+    
+    @Id
+    @Column(name = "clave_idempotencia", length = 100)
+    private String claveIdempotencia;
+    
+    @Column(name = "fecha_procesado", nullable = false)
+    private LocalDateTime fechaProcesado;
+    
+    // La clave es asignada, así que se evita el SELECT previo de merge al guardar
+    @Transient
+    private boolean nuevo = true;
+    
+    // Constructores
+    public MovimientoProcesado() {
+    }
+    
+    public MovimientoProcesado(String claveIdempotencia) {
+        this.claveIdempotencia = claveIdempotencia;
+        this.fechaProcesado = LocalDateTime.now();
+    }
+    
+    // Getters y Setters
+    public String getClaveIdempotencia() {
+        return claveIdempotencia;
+    }
+    
+    public void setClaveIdempotencia(String claveIdempotencia) {
+        this.claveIdempotencia = claveIdempotencia;
+    }
+    
+    public LocalDateTime getFechaProcesado() {
+        return fechaProcesado;
+    }
+    
+    public void setFechaProcesado(LocalDateTime fechaProcesado) {
+        this.fechaProcesado = fechaProcesado;
+    }
+    
+    @Override
+    public String getId() {
+        return claveIdempotencia;
+    }
+    
+    @Override
+    public boolean isNew() {
+        return nuevo;
+    }
+    
+    @PostLoad
+    @PostPersist
+    void marcarPersistido() {
+        this.nuevo = false;
+    }
+}
@@ -0,0 +1,129 @@
+package com.espe.inventario.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+
+// Saldo diario de un producto en una bodega: la cantidad al cierre del día y lo que se movió en él.
+// Sólo existe para los días con movimientos
+@Entity
+@Table(name = "saldo_inventario", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_saldo_inventario_fila_corte", columnNames = {"producto_id", "bodega_id", "fecha_corte"})
+}, indexes = {
+    @Index(name = "idx_saldo_inventario_bodega_corte", columnList = "bodega_id, fecha_corte"),
+    @Index(name = "idx_saldo_inventario_bodega_producto_corte", columnList = "bodega_id, producto_id, fecha_corte")
+})
+public class SaldoInventario {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "producto_id", nullable = false)
+    private Long productoId;
+    
+    @Column(name = "bodega_id", nullable = false)
+    private Long bodegaId;
+    
+    // Fin (exclusivo) del día resumido
+    @Column(name = "fecha_corte", nullable = false)
+    private LocalDateTime fechaCorte;
+    
+    @Column(nullable = false)
+    private Integer cantidad;
+    
+    @Column(nullable = false)
+    private Long entradas;
+    
+    @Column(nullable = false)
+    private Long salidas;
+    
+    @Column(nullable = false)
+    private Long movimientos;
+    
+    // Constructores
+    public SaldoInventario() {
+    }
+    
+    public SaldoInventario(Long productoId, Long bodegaId, LocalDateTime fechaCorte, Integer cantidad,
+                           Long entradas, Long salidas, Long movimientos) {
+        this.productoId = productoId;
+        this.bodegaId = bodegaId;
+        this.fechaCorte = fechaCorte;
+        this.cantidad = cantidad;
+        this.entradas = entradas;
+        this.salidas = salidas;
+        this.movimientos = movimientos;
+    }
+    
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getProductoId() {
+        return productoId;
+    }
+    
+    public void setProductoId(Long productoId) {
+        this.productoId = productoId;
+    }
+    
+    public Long getBodegaId() {
+        return bodegaId;
+    }
+    
+    public void setBodegaId(Long bodegaId) {
+        this.bodegaId = bodegaId;
+    }
+    
+    public LocalDateTime getFechaCorte() {
+        return fechaCorte;
+    }
+    
+    public void setFechaCorte(LocalDateTime fechaCorte) {
+        this.fechaCorte = fechaCorte;
+    }
+    
+    public Integer getCantidad() {
+        return cantidad;
+    }
+    
+    public void setCantidad(Integer cantidad) {
+        this.cantidad = cantidad;
+    }
+    
+    public Long getEntradas() {
+        return entradas;
+    }
+    
+    public void setEntradas(Long entradas) {
+        this.entradas = entradas;
+    }
+    
+    public Long getSalidas() {
+        return salidas;
+    }
+    
+    public void setSalidas(Long salidas) {
+        this.salidas = salidas;
+    }
+    
+    public Long getMovimientos() {
+        return movimientos;
+    }
+    
+    public void setMovimientos(Long movimientos) {
+        this.movimientos = movimientos;
+    }
+}
@@ -18,4 +18,7 @@ public interface BodegaRepository extends JpaRepository<Bodega, Long> {
     List<Bodega> findByNombreContainingAndEstado(@Param("nombre") String nombre, @Param("estado") String estado);
     
     boolean existsByNombre(String nombre);
+    
+    @Query("SELECT b.id FROM Bodega b ORDER BY b.id")
+    List<Long> findAllIds();
 }
@@ -1,11 +1,17 @@
 package com.espe.inventario.repositories;
 
 import com.espe.inventario.models.Inventario;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +20,10 @@ public interface InventarioRepository extends JpaRepository<Inventario, Long> {
     
     Optional<Inventario> findByProductoIdAndBodegaId(Long productoId, Long bodegaId);
     
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Inventario i WHERE i.productoId = :productoId AND i.bodegaId = :bodegaId")
+    Optional<Inventario> findParaActualizar(@Param("productoId") Long productoId, @Param("bodegaId") Long bodegaId);
+    
     List<Inventario> findByBodegaId(Long bodegaId);
     
     List<Inventario> findByProductoId(Long productoId);
@@ -29,6 +39,36 @@ public interface InventarioRepository extends JpaRepository<Inventario, Long> {
     
     boolean existsByProductoIdAndBodegaId(Long productoId, Long bodegaId);
     
+    // Carga del índice en memoria de stock crítico, servida por idx_inventario_es_critico
+    List<Inventario> findByEsCriticoTrue();
+    
+    // Completa es_critico en las filas anteriores a la columna
+    @Transactional
+    @Modifying
+    @Query("UPDATE Inventario i SET i.esCritico = CASE WHEN i.cantidad <= i.cantidadMinima THEN true ELSE false END " +
+           "WHERE i.esCritico IS NULL")
+    int completarEsCritico();
+    
+    // Estado de las filas como escalares: no devuelve las entidades ya cargadas en la sesión con valores viejos
+    @Query("SELECT i.productoId, i.bodegaId, i.cantidad, i.id, i.cantidadMinima, i.ultimaActualizacion, i.version " +
+           "FROM Inventario i " +
+           "WHERE i.productoId IN :productoIds AND i.bodegaId IN :bodegaIds")
+    List<Object[]> findCantidades(@Param("productoIds") Collection<Long> productoIds,
+                                  @Param("bodegaIds") Collection<Long> bodegaIds);
+    
+    // Suma el delta en una sola sentencia condicional: el motor serializa las escrituras sobre la fila
+    // y la condición impide dejar stock negativo. Devuelve 0 si la fila no existe o el stock no alcanza
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    // es_critico va primero: MySQL evalúa las asignaciones en orden y debe ver la cantidad anterior
+    @Query("UPDATE Inventario i SET " +
+           "i.esCritico = CASE WHEN i.cantidad + :delta <= i.cantidadMinima THEN true ELSE false END, " +
+           "i.cantidad = i.cantidad + :delta, i.ultimaActualizacion = :fecha, i.version = i.version + 1 " +
+           "WHERE i.productoId = :productoId AND i.bodegaId = :bodegaId AND i.cantidad + :delta >= 0")
+    int aplicarDelta(@Param("productoId") Long productoId,
+                     @Param("bodegaId") Long bodegaId,
+                     @Param("delta") int delta,
+                     @Param("fecha") LocalDateTime fecha);
+    
     // Query simplificada para obtener inventarios básicos
     @Query("SELECT i FROM Inventario i")
     List<Inventario> findAllInventariosBasicos();
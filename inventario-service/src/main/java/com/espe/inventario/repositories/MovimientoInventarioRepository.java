@@ -0,0 +1,51 @@
+package com.espe.inventario.repositories;
+
+import com.espe.inventario.models.MovimientoInventario;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MovimientoInventarioRepository extends JpaRepository<MovimientoInventario, Long> {
+    
+    // Página del kardex: recorre el índice (producto, bodega, fecha, id) desde el cursor (fechaCursor, after).
+    // La comparación es por la tupla completa: el id no crece con la fecha (la apertura se fecha hacia atrás)
+    @Query("SELECT m FROM MovimientoInventario m WHERE m.productoId = :productoId AND m.bodegaId = :bodegaId " +
+           "AND m.fecha >= :desde AND m.fecha <= :hasta " +
+           "AND (m.fecha > :fechaCursor OR (m.fecha = :fechaCursor AND m.id > :after)) ORDER BY m.fecha, m.id")
+    List<MovimientoInventario> findKardex(@Param("productoId") Long productoId,
+                                          @Param("bodegaId") Long bodegaId,
+                                          @Param("desde") LocalDateTime desde,
+                                          @Param("hasta") LocalDateTime hasta,
+                                          @Param("fechaCursor") LocalDateTime fechaCursor,
+                                          @Param("after") Long after,
+                                          Limit limit);
+    
+    // Delta neto por producto de la bodega entre dos instantes (ambos incluidos)
+    @Query("SELECT m.productoId, SUM(m.cantidad) FROM MovimientoInventario m WHERE m.bodegaId = :bodegaId " +
+           "AND m.fecha >= :desde AND m.fecha <= :hasta GROUP BY m.productoId")
+    List<Object[]> sumarDeltasPorProducto(@Param("bodegaId") Long bodegaId,
+                                          @Param("desde") LocalDateTime desde,
+                                          @Param("hasta") LocalDateTime hasta);
+    
+    @Query("SELECT MIN(m.fecha) FROM MovimientoInventario m")
+    LocalDateTime findMinFecha();
+    
+    // Por producto y bodega: id del último movimiento, entradas, salidas y número de movimientos
+    @Query("SELECT m.productoId, m.bodegaId, MAX(m.id), " +
+           "SUM(CASE WHEN m.cantidad > 0 THEN m.cantidad ELSE 0 END), " +
+           "SUM(CASE WHEN m.cantidad < 0 THEN -m.cantidad ELSE 0 END), COUNT(m) " +
+           "FROM MovimientoInventario m WHERE m.fecha >= :desde AND m.fecha < :hasta " +
+           "GROUP BY m.productoId, m.bodegaId")
+    List<Object[]> resumirPorFila(@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta);
+    
+    @Modifying
+    @Query(value = "DELETE FROM movimiento_inventario WHERE fecha < :limite LIMIT :lote", nativeQuery = true)
+    int deleteAnterioresA(@Param("limite") LocalDateTime limite, @Param("lote") int lote);
+}
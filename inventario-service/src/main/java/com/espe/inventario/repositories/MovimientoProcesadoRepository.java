@@ -0,0 +1,9 @@
+package com.espe.inventario.repositories;
+
+import com.espe.inventario.models.MovimientoProcesado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MovimientoProcesadoRepository extends JpaRepository<MovimientoProcesado, String> {
+}
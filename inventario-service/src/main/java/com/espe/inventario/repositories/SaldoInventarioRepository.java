@@ -0,0 +1,30 @@
+package com.espe.inventario.repositories;
+
+import com.espe.inventario.models.SaldoInventario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SaldoInventarioRepository extends JpaRepository<SaldoInventario, Long> {
+    
+    @Query("SELECT MAX(s.fechaCorte) FROM SaldoInventario s")
+    LocalDateTime findMaxFechaCorte();
+    
+    @Query("SELECT MAX(s.fechaCorte) FROM SaldoInventario s WHERE s.fechaCorte <= :fecha")
+    LocalDateTime findMaxFechaCorteHasta(@Param("fecha") LocalDateTime fecha);
+    
+    // Producto y cantidad del último saldo de cada producto de la bodega hasta el corte indicado. La tabla
+    // derivada obtiene la fecha del último saldo por producto en un solo recorrido del índice
+    // (bodega_id, producto_id, fecha_corte) y el join trae esa fila, sin una subconsulta por fila
+    @Query(value = "SELECT s.producto_id, s.cantidad FROM saldo_inventario s " +
+                   "JOIN (SELECT producto_id, MAX(fecha_corte) AS fecha_corte FROM saldo_inventario " +
+                   "WHERE bodega_id = :bodegaId AND fecha_corte <= :corte GROUP BY producto_id) u " +
+                   "ON u.producto_id = s.producto_id AND u.fecha_corte = s.fecha_corte " +
+                   "WHERE s.bodega_id = :bodegaId", nativeQuery = true)
+    List<Object[]> findSaldosAlCorte(@Param("bodegaId") Long bodegaId, @Param("corte") LocalDateTime corte);
+}
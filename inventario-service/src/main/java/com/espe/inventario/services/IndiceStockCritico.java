@@ -0,0 +1,99 @@
+package com.espe.inventario.services;
+
+import com.espe.inventario.models.Inventario;
+import com.espe.inventario.repositories.InventarioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Registros de inventario en stock crítico (cantidad <= cantidadMinima) mantenidos en memoria. Se
+// actualizan tras cada commit que cambia stock o mínimo; mientras no se haya cargado, las consultas
+// van a la base de datos
+@Component
+public class IndiceStockCritico {
+
+    private static final Comparator<Inventario> POR_ID = Comparator.comparing(Inventario::getId);
+
+    // Un registro eliminado no vuelve: ninguna versión supera a la de su baja
+    private static final long VERSION_ELIMINADO = Long.MAX_VALUE;
+
+    // Último estado conocido de cada fila tocada, crítica o no, por id de inventario. Los callbacks de
+    // commit llegan sin orden: sólo se aplica un estado con versión mayor que la guardada
+    private final Map<Long, Entrada> filas = new ConcurrentHashMap<>();
+
+    private final InventarioRepository inventarioRepository;
+
+    private volatile boolean cargado;
+
+    @Autowired
+    public IndiceStockCritico(InventarioRepository inventarioRepository) {
+        this.inventarioRepository = inventarioRepository;
+    }
+
+    public boolean estaCargado() {
+        return cargado;
+    }
+
+    public List<Inventario> criticos() {
+        return filas.values().stream()
+            .map(Entrada::critico)
+            .filter(Objects::nonNull)
+            .sorted(POR_ID)
+            .toList();
+    }
+
+    public List<Inventario> criticosDeBodega(Long bodegaId) {
+        return filas.values().stream()
+            .map(Entrada::critico)
+            .filter(critico -> critico != null && critico.getBodegaId().equals(bodegaId))
+            .sorted(POR_ID)
+            .toList();
+    }
+
+    // Debe llamarse con el estado ya confirmado de la fila, incluida su versión
+    public void actualizar(Inventario inventario) {
+        Entrada nueva = new Entrada(inventario.getVersion(), inventario.esStockCritico() ? copia(inventario) : null);
+        filas.merge(inventario.getId(), nueva, Entrada::masReciente);
+    }
+
+    public void quitar(Long inventarioId) {
+        filas.put(inventarioId, new Entrada(VERSION_ELIMINADO, null));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reconstruir() {
+        inventarioRepository.completarEsCritico();
+        // Un cambio confirmado durante la carga tiene versión mayor que la leída y se conserva
+        for (Inventario inventario : inventarioRepository.findByEsCriticoTrue()) {
+            filas.merge(inventario.getId(), new Entrada(inventario.getVersion(), copia(inventario)), Entrada::masReciente);
+        }
+        cargado = true;
+    }
+
+    private Inventario copia(Inventario inventario) {
+        Inventario copia = new Inventario();
+        copia.setId(inventario.getId());
+        copia.setProductoId(inventario.getProductoId());
+        copia.setBodegaId(inventario.getBodegaId());
+        copia.setCantidad(inventario.getCantidad());
+        copia.setCantidadMinima(inventario.getCantidadMinima());
+        copia.setUltimaActualizacion(inventario.getUltimaActualizacion());
+        copia.setEsCritico(true);
+        copia.setVersion(inventario.getVersion());
+        return copia;
+    }
+
+    // critico es null cuando la fila no está en stock crítico
+    private record Entrada(long version, Inventario critico) {
+        static Entrada masReciente(Entrada actual, Entrada nueva) {
+            return nueva.version() > actual.version() ? nueva : actual;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.espe.inventario.services;
 
+import com.espe.inventario.dto.ModoLote;
+import com.espe.inventario.dto.MovimientoStock;
+import com.espe.inventario.dto.ResultadoMovimiento;
 import com.espe.inventario.models.Inventario;
 import com.espe.inventario.models.Bodega;
 import java.util.List;
@@ -34,6 +37,8 @@ public interface InventarioService {
     
     Inventario reducirStock(Long productoId, Long bodegaId, Integer cantidad);
     
+    List<ResultadoMovimiento> aplicarMovimientos(List<MovimientoStock> movimientos, ModoLote modo);
+    
     // Métodos para Bodega
     List<Bodega> findAllBodegas();
     
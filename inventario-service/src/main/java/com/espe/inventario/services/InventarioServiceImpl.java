@@ -1,17 +1,36 @@
 package com.espe.inventario.services;
 
+import com.espe.inventario.dto.ModoLote;
+import com.espe.inventario.dto.MovimientoStock;
+import com.espe.inventario.dto.ResultadoMovimiento;
 import com.espe.inventario.models.Inventario;
 import com.espe.inventario.models.Bodega;
+import com.espe.inventario.models.MovimientoInventario;
+import com.espe.inventario.models.MovimientoProcesado;
 import com.espe.inventario.repositories.InventarioRepository;
 import com.espe.inventario.repositories.BodegaRepository;
+import com.espe.inventario.repositories.MovimientoProcesadoRepository;
+import com.espe.inventario.utils.Transacciones;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -23,6 +42,32 @@ public class InventarioServiceImpl implements InventarioService {
     @Autowired
     private BodegaRepository bodegaRepository;
     
+    @Autowired
+    private MovimientoProcesadoRepository movimientoProcesadoRepository;
+    
+    @Autowired
+    private KardexService kardexService;
+    
+    @Autowired
+    private IndiceStockCritico indiceStockCritico;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    // Mismo UPDATE condicional que InventarioRepository.aplicarDelta, enviado en lotes JDBC
+    private static final String SQL_APLICAR_DELTA =
+        "UPDATE inventario SET es_critico = (cantidad + ? <= cantidad_minima), " +
+        "cantidad = cantidad + ?, ultima_actualizacion = ?, version = version + 1 " +
+        "WHERE producto_id = ? AND bodega_id = ? AND cantidad + ? >= 0";
+    
+    // La clave única (producto_id, bodega_id) hace que dos lotes que reciben el mismo producto nuevo
+    // a la vez creen una sola fila: el segundo INSERT no hace nada
+    private static final String SQL_CREAR_INVENTARIO =
+        "INSERT INTO inventario (producto_id, bodega_id, cantidad, cantidad_minima, ultima_actualizacion, es_critico, version) " +
+        "VALUES (?, ?, 0, ?, ?, ?, 0) ON DUPLICATE KEY UPDATE id = id";
+    
+    private static final int TAMANO_LOTE_JDBC = 100;
+    
     // Métodos de Inventario
     @Override
     @Transactional(readOnly = true)
@@ -58,15 +103,22 @@ public class InventarioServiceImpl implements InventarioService {
         return inventarioRepository.findByProductoId(productoId);
     }
     
+    // Sin transacción propia: con el índice cargado no se abre conexión a la base
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public List<Inventario> findStockCritico() {
+        if (indiceStockCritico.estaCargado()) {
+            return indiceStockCritico.criticos();
+        }
         return inventarioRepository.findStockCritico();
     }
     
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public List<Inventario> findStockCriticoByBodega(Long bodegaId) {
+        if (indiceStockCritico.estaCargado()) {
+            return indiceStockCritico.criticosDeBodega(bodegaId);
+        }
         return inventarioRepository.findStockCriticoByBodega(bodegaId);
     }
     
@@ -81,7 +133,10 @@ public class InventarioServiceImpl implements InventarioService {
         }
         
         inventario.setUltimaActualizacion(LocalDateTime.now());
-        return inventarioRepository.save(inventario);
+        Inventario guardado = inventarioRepository.save(inventario);
+        registrarMovimiento(guardado, MovimientoInventario.Tipo.ALTA, guardado.getCantidad());
+        Transacciones.alConfirmar(() -> indiceStockCritico.actualizar(guardado));
+        return guardado;
     }
     
     @Override
@@ -89,52 +144,281 @@ public class InventarioServiceImpl implements InventarioService {
         Optional<Inventario> inventarioExistente = inventarioRepository.findById(id);
         if (inventarioExistente.isPresent()) {
             Inventario inventarioToUpdate = inventarioExistente.get();
+            Long productoAnterior = inventarioToUpdate.getProductoId();
+            Long bodegaAnterior = inventarioToUpdate.getBodegaId();
+            Integer cantidadAnterior = inventarioToUpdate.getCantidad();
             inventarioToUpdate.setProductoId(inventario.getProductoId());
             inventarioToUpdate.setBodegaId(inventario.getBodegaId());
             inventarioToUpdate.setCantidad(inventario.getCantidad());
             inventarioToUpdate.setCantidadMinima(inventario.getCantidadMinima());
             inventarioToUpdate.setUltimaActualizacion(LocalDateTime.now());
-            return inventarioRepository.save(inventarioToUpdate);
+            Inventario actualizado = inventarioRepository.save(inventarioToUpdate);
+            if (!productoAnterior.equals(actualizado.getProductoId()) || !bodegaAnterior.equals(actualizado.getBodegaId())) {
+                // El registro pasó a otro producto o bodega: el stock sale de uno y entra en el otro
+                kardexService.registrar(new MovimientoInventario(productoAnterior, bodegaAnterior,
+                    MovimientoInventario.Tipo.BAJA, -cantidadAnterior, 0, null));
+                registrarMovimiento(actualizado, MovimientoInventario.Tipo.ALTA, actualizado.getCantidad());
+            } else if (!cantidadAnterior.equals(actualizado.getCantidad())) {
+                registrarMovimiento(actualizado, MovimientoInventario.Tipo.AJUSTE, actualizado.getCantidad() - cantidadAnterior);
+            }
+            Transacciones.alConfirmar(() -> indiceStockCritico.actualizar(actualizado));
+            return actualizado;
         }
         return null;
     }
     
     @Override
     public void deleteInventarioById(Long id) {
+        inventarioRepository.findById(id).ifPresent(inventario ->
+            kardexService.registrar(new MovimientoInventario(inventario.getProductoId(), inventario.getBodegaId(),
+                MovimientoInventario.Tipo.BAJA, -inventario.getCantidad(), 0, null)));
         inventarioRepository.deleteById(id);
+        Transacciones.alConfirmar(() -> indiceStockCritico.quitar(id));
     }
     
     @Override
     public Inventario actualizarStock(Long productoId, Long bodegaId, Integer nuevaCantidad) {
-        Optional<Inventario> inventarioOpt = inventarioRepository.findByProductoIdAndBodegaId(productoId, bodegaId);
+        // Bloqueo de la fila para que el ajuste registrado en el kardex parta de la cantidad real
+        Optional<Inventario> inventarioOpt = inventarioRepository.findParaActualizar(productoId, bodegaId);
         if (inventarioOpt.isPresent()) {
             Inventario inventario = inventarioOpt.get();
+            int ajuste = nuevaCantidad - inventario.getCantidad();
             inventario.actualizarCantidad(nuevaCantidad);
-            return inventarioRepository.save(inventario);
+            Inventario actualizado = inventarioRepository.save(inventario);
+            if (ajuste != 0) {
+                registrarMovimiento(actualizado, MovimientoInventario.Tipo.AJUSTE, ajuste);
+            }
+            Transacciones.alConfirmar(() -> indiceStockCritico.actualizar(actualizado));
+            return actualizado;
         }
         return null;
     }
     
     @Override
     public Inventario agregarStock(Long productoId, Long bodegaId, Integer cantidad) {
-        Optional<Inventario> inventarioOpt = inventarioRepository.findByProductoIdAndBodegaId(productoId, bodegaId);
-        if (inventarioOpt.isPresent()) {
-            Inventario inventario = inventarioOpt.get();
-            inventario.agregarStock(cantidad);
-            return inventarioRepository.save(inventario);
-        }
-        return null;
+        return aplicarDelta(productoId, bodegaId, cantidad);
     }
     
     @Override
     public Inventario reducirStock(Long productoId, Long bodegaId, Integer cantidad) {
-        Optional<Inventario> inventarioOpt = inventarioRepository.findByProductoIdAndBodegaId(productoId, bodegaId);
-        if (inventarioOpt.isPresent()) {
-            Inventario inventario = inventarioOpt.get();
-            inventario.reducirStock(cantidad);
-            return inventarioRepository.save(inventario);
+        return aplicarDelta(productoId, bodegaId, -cantidad);
+    }
+    
+    // Aplica el delta con un UPDATE condicional y relee la fila, que queda bloqueada por esta transacción
+    // hasta el commit, de modo que la cantidad devuelta es exactamente la que dejó este movimiento
+    private Inventario aplicarDelta(Long productoId, Long bodegaId, int delta) {
+        if (inventarioRepository.aplicarDelta(productoId, bodegaId, delta, LocalDateTime.now()) == 0) {
+            if (!inventarioRepository.existsByProductoIdAndBodegaId(productoId, bodegaId)) {
+                return null;
+            }
+            throw new RuntimeException("Stock insuficiente");
+        }
+        Inventario inventario = inventarioRepository.findByProductoIdAndBodegaId(productoId, bodegaId).orElse(null);
+        if (inventario != null) {
+            registrarMovimiento(inventario, tipoDelta(delta), delta);
+            Transacciones.alConfirmar(() -> indiceStockCritico.actualizar(inventario));
+        }
+        return inventario;
+    }
+    
+    private void registrarMovimiento(Inventario inventario, MovimientoInventario.Tipo tipo, int cantidad) {
+        kardexService.registrar(new MovimientoInventario(inventario.getProductoId(), inventario.getBodegaId(),
+            tipo, cantidad, inventario.getCantidad(), null));
+    }
+    
+    private MovimientoInventario.Tipo tipoDelta(int delta) {
+        return delta > 0 ? MovimientoInventario.Tipo.INGRESO : MovimientoInventario.Tipo.EGRESO;
+    }
+    
+    @Override
+    public List<ResultadoMovimiento> aplicarMovimientos(List<MovimientoStock> movimientos, ModoLote modo) {
+        // Claves ya procesadas en una sola consulta
+        Set<String> clavesProcesadas = new HashSet<>();
+        List<String> claves = movimientos.stream()
+            .map(MovimientoStock::claveIdempotencia)
+            .filter(Objects::nonNull)
+            .toList();
+        movimientoProcesadoRepository.findAllById(claves)
+            .forEach(procesado -> clavesProcesadas.add(procesado.getClaveIdempotencia()));
+        
+        ResultadoMovimiento[] resultados = new ResultadoMovimiento[movimientos.size()];
+        List<Integer> pendientes = new ArrayList<>();
+        for (int i = 0; i < movimientos.size(); i++) {
+            MovimientoStock movimiento = movimientos.get(i);
+            String clave = movimiento.claveIdempotencia();
+            if (clave != null && !clavesProcesadas.add(clave)) {
+                resultados[i] = ResultadoMovimiento.duplicado(movimiento);
+            } else if (movimiento.cantidad() == 0) {
+                resultados[i] = ResultadoMovimiento.rechazado(movimiento, "La cantidad no puede ser cero");
+            } else {
+                pendientes.add(i);
+            }
+        }
+        
+        // Siempre el mismo orden de bloqueo de filas entre lotes concurrentes: (bodega, producto) y, dentro
+        // de la misma fila, el orden de la solicitud
+        pendientes.sort(Comparator.<Integer, Long>comparing(i -> movimientos.get(i).bodegaId())
+            .thenComparing(i -> movimientos.get(i).productoId())
+            .thenComparing(Comparator.naturalOrder()));
+        
+        crearInventariosFaltantes(movimientos, pendientes, resultados);
+        List<Integer> aplicables = pendientes.stream().filter(i -> resultados[i] == null).toList();
+        
+        LocalDateTime ahora = LocalDateTime.now();
+        int[][] afectadas = jdbcTemplate.batchUpdate(SQL_APLICAR_DELTA, aplicables, TAMANO_LOTE_JDBC, (ps, i) -> {
+            MovimientoStock movimiento = movimientos.get(i);
+            ps.setInt(1, movimiento.cantidad());
+            ps.setInt(2, movimiento.cantidad());
+            ps.setObject(3, ahora);
+            ps.setLong(4, movimiento.productoId());
+            ps.setLong(5, movimiento.bodegaId());
+            ps.setInt(6, movimiento.cantidad());
+        });
+        int posicion = 0;
+        for (int[] bloque : afectadas) {
+            for (int filas : bloque) {
+                int i = aplicables.get(posicion++);
+                if (filas == 0) {
+                    resultados[i] = ResultadoMovimiento.rechazado(movimientos.get(i), "Stock insuficiente");
+                }
+            }
+        }
+        
+        boolean hayRechazos = Arrays.stream(resultados)
+            .anyMatch(resultado -> resultado != null && resultado.estado() == ResultadoMovimiento.Estado.RECHAZADO);
+        if (modo == ModoLote.TODO_O_NADA && hayRechazos) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            for (int i : aplicables) {
+                if (resultados[i] == null) {
+                    resultados[i] = ResultadoMovimiento.revertido(movimientos.get(i));
+                }
+            }
+            return Arrays.asList(resultados);
+        }
+        
+        Collection<Inventario> filasAfectadas = registrarCantidadesResultantes(movimientos, aplicables, resultados);
+        Transacciones.alConfirmar(() -> filasAfectadas.forEach(indiceStockCritico::actualizar));
+        // Kardex en el mismo orden en que se aplicaron los deltas
+        List<MovimientoInventario> kardex = new ArrayList<>(aplicables.size());
+        for (int i : aplicables) {
+            if (resultados[i].estado() == ResultadoMovimiento.Estado.APLICADO) {
+                MovimientoStock movimiento = movimientos.get(i);
+                kardex.add(new MovimientoInventario(movimiento.productoId(), movimiento.bodegaId(),
+                    tipoDelta(movimiento.cantidad()), movimiento.cantidad(),
+                    resultados[i].cantidadResultante(), movimiento.claveIdempotencia()));
+            }
+        }
+        kardexService.registrarLote(kardex);
+        List<MovimientoProcesado> nuevosProcesados = aplicables.stream()
+            .filter(i -> resultados[i].estado() == ResultadoMovimiento.Estado.APLICADO)
+            .map(movimientos::get)
+            .map(MovimientoStock::claveIdempotencia)
+            .filter(Objects::nonNull)
+            .map(MovimientoProcesado::new)
+            .toList();
+        movimientoProcesadoRepository.saveAll(nuevosProcesados);
+        return Arrays.asList(resultados);
+    }
+    
+    // Un ingreso de un producto nuevo en la bodega crea su registro de inventario en cero antes de aplicar
+    // los deltas; las filas sin ingresos o de bodegas inexistentes se rechazan sin tocar la base
+    private void crearInventariosFaltantes(List<MovimientoStock> movimientos, List<Integer> pendientes,
+                                           ResultadoMovimiento[] resultados) {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+        Set<FilaInventario> existentes = filas(movimientos, pendientes).keySet();
+        
+        Map<FilaInventario, List<Integer>> faltantes = new LinkedHashMap<>();
+        for (int i : pendientes) {
+            FilaInventario fila = FilaInventario.de(movimientos.get(i));
+            if (!existentes.contains(fila)) {
+                faltantes.computeIfAbsent(fila, f -> new ArrayList<>()).add(i);
+            }
+        }
+        if (faltantes.isEmpty()) {
+            return;
+        }
+        
+        Set<Long> bodegasExistentes = new HashSet<>();
+        bodegaRepository.findAllById(faltantes.keySet().stream().map(FilaInventario::bodegaId).distinct().toList())
+            .forEach(bodega -> bodegasExistentes.add(bodega.getId()));
+        List<FilaInventario> nuevas = new ArrayList<>();
+        faltantes.forEach((fila, lineas) -> {
+            boolean conIngreso = lineas.stream().anyMatch(i -> movimientos.get(i).cantidad() > 0);
+            String rechazo = !conIngreso ? "No existe inventario para este producto en esta bodega"
+                : !bodegasExistentes.contains(fila.bodegaId()) ? "Bodega no encontrada"
+                : null;
+            if (rechazo != null) {
+                lineas.forEach(i -> resultados[i] = ResultadoMovimiento.rechazado(movimientos.get(i), rechazo));
+                return;
+            }
+            nuevas.add(fila);
+        });
+        LocalDateTime ahora = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(SQL_CREAR_INVENTARIO, nuevas, TAMANO_LOTE_JDBC, (ps, fila) -> {
+            ps.setLong(1, fila.productoId());
+            ps.setLong(2, fila.bodegaId());
+            ps.setInt(3, Inventario.CANTIDAD_MINIMA_POR_DEFECTO);
+            ps.setObject(4, ahora);
+            // Cantidad 0 <= mínimo: la fila nace en stock crítico
+            ps.setBoolean(5, true);
+        });
+    }
+    
+    // Las filas siguen bloqueadas por esta transacción: la cantidad final menos los deltas posteriores
+    // de la misma fila da la cantidad que dejó cada línea. Devuelve el estado final de las filas
+    private Collection<Inventario> registrarCantidadesResultantes(List<MovimientoStock> movimientos, List<Integer> aplicables,
+                                                                  ResultadoMovimiento[] resultados) {
+        Map<FilaInventario, Inventario> filas = filas(movimientos, aplicables);
+        Map<FilaInventario, Integer> restante = new HashMap<>();
+        filas.forEach((fila, inventario) -> restante.put(fila, inventario.getCantidad()));
+        for (int posicion = aplicables.size() - 1; posicion >= 0; posicion--) {
+            int i = aplicables.get(posicion);
+            if (resultados[i] != null) {
+                continue;
+            }
+            MovimientoStock movimiento = movimientos.get(i);
+            FilaInventario fila = FilaInventario.de(movimiento);
+            Integer cantidad = restante.get(fila);
+            resultados[i] = ResultadoMovimiento.aplicado(movimiento, cantidad);
+            if (cantidad != null) {
+                restante.put(fila, cantidad - movimiento.cantidad());
+            }
+        }
+        return filas.values();
+    }
+    
+    // Estado actual de las filas tocadas por las líneas, como instancias no administradas
+    private Map<FilaInventario, Inventario> filas(List<MovimientoStock> movimientos, List<Integer> lineas) {
+        Map<FilaInventario, Inventario> filas = new HashMap<>();
+        if (lineas.isEmpty()) {
+            return filas;
+        }
+        Set<Long> productoIds = new HashSet<>();
+        Set<Long> bodegaIds = new HashSet<>();
+        for (int i : lineas) {
+            productoIds.add(movimientos.get(i).productoId());
+            bodegaIds.add(movimientos.get(i).bodegaId());
+        }
+        for (Object[] fila : inventarioRepository.findCantidades(productoIds, bodegaIds)) {
+            Inventario inventario = new Inventario();
+            inventario.setProductoId((Long) fila[0]);
+            inventario.setBodegaId((Long) fila[1]);
+            inventario.setCantidad((Integer) fila[2]);
+            inventario.setId((Long) fila[3]);
+            inventario.setCantidadMinima((Integer) fila[4]);
+            inventario.setUltimaActualizacion((LocalDateTime) fila[5]);
+            inventario.setVersion((Long) fila[6]);
+            filas.put(new FilaInventario(inventario.getBodegaId(), inventario.getProductoId()), inventario);
+        }
+        return filas;
+    }
+    
+    private record FilaInventario(Long bodegaId, Long productoId) {
+        static FilaInventario de(MovimientoStock movimiento) {
+            return new FilaInventario(movimiento.bodegaId(), movimiento.productoId());
         }
-        return null;
     }
     
     // Métodos de Bodega
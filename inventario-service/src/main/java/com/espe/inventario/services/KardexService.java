@@ -0,0 +1,30 @@
+package com.espe.inventario.services;
+
+import com.espe.inventario.dto.StockHistorico;
+import com.espe.inventario.models.MovimientoInventario;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface KardexService {
+    
+    // Paginación por cursor del kardex
+    int LIMITE_POR_DEFECTO = 100;
+    int LIMITE_MAXIMO = 1000;
+    
+    // Se unen a la transacción del cambio de stock que registran
+    void registrar(MovimientoInventario movimiento);
+    
+    void registrarLote(List<MovimientoInventario> movimientos);
+    
+    List<MovimientoInventario> obtenerKardex(Long productoId, Long bodegaId, LocalDateTime desde,
+                                             LocalDateTime hasta, Long after, int limit);
+    
+    // Stock de cada producto al instante indicado, en una bodega o en todas si bodegaId es null
+    List<StockHistorico> obtenerStockAl(LocalDateTime fecha, Long bodegaId);
+    
+    // Resume en saldos diarios los días cerrados aún sin saldo; devuelve los saldos creados
+    int generarSaldos();
+    
+    // Elimina los movimientos más antiguos que la retención ya cubiertos por saldos; devuelve los eliminados
+    int compactar();
+}
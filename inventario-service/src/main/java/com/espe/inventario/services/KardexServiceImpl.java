@@ -0,0 +1,238 @@
+package com.espe.inventario.services;
+
+import com.espe.inventario.dto.StockHistorico;
+import com.espe.inventario.models.MovimientoInventario;
+import com.espe.inventario.models.SaldoInventario;
+import com.espe.inventario.repositories.BodegaRepository;
+import com.espe.inventario.repositories.MovimientoInventarioRepository;
+import com.espe.inventario.repositories.SaldoInventarioRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Transactional
+public class KardexServiceImpl implements KardexService, InitializingBean, DisposableBean {
+    
+    private static final String SQL_INSERTAR_MOVIMIENTO =
+        "INSERT INTO movimiento_inventario " +
+        "(producto_id, bodega_id, tipo, cantidad, cantidad_resultante, clave_idempotencia, fecha) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final int TAMANO_LOTE_JDBC = 100;
+    
+    // Límite inferior cuando el kardex se consulta sin fecha de inicio
+    private static final LocalDateTime INICIO_KARDEX = LocalDateTime.of(1970, 1, 1, 0, 0);
+    
+    @Autowired
+    private MovimientoInventarioRepository movimientoInventarioRepository;
+    
+    @Autowired
+    private SaldoInventarioRepository saldoInventarioRepository;
+    
+    @Autowired
+    private BodegaRepository bodegaRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${inventario.kardex.retencion-dias:365}")
+    private int retencionDias;
+    
+    @Value("${inventario.kardex.lote-purga:5000}")
+    private int lotePurga;
+    
+    // Cada tarea ocupa una conexión mientras consulta su bodega: no debe superar el pool de Hikari
+    @Value("${inventario.as-of.paralelismo:4}")
+    private int paralelismo;
+    
+    private ForkJoinPool poolStockHistorico;
+    
+    // Transacción propia para cada día de saldos y cada lote de purga del cierre diario
+    private TransactionTemplate transaccionPorLote;
+    
+    @Override
+    public void afterPropertiesSet() {
+        poolStockHistorico = new ForkJoinPool(Math.max(1, paralelismo));
+        transaccionPorLote = new TransactionTemplate(transactionManager);
+    }
+    
+    @Override
+    public void destroy() {
+        poolStockHistorico.shutdownNow();
+    }
+    
+    @Override
+    public void registrar(MovimientoInventario movimiento) {
+        movimientoInventarioRepository.save(movimiento);
+    }
+    
+    @Override
+    public void registrarLote(List<MovimientoInventario> movimientos) {
+        if (movimientos.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(SQL_INSERTAR_MOVIMIENTO, movimientos, TAMANO_LOTE_JDBC, (ps, movimiento) -> {
+            ps.setLong(1, movimiento.getProductoId());
+            ps.setLong(2, movimiento.getBodegaId());
+            ps.setString(3, movimiento.getTipo().name());
+            ps.setInt(4, movimiento.getCantidad());
+            ps.setInt(5, movimiento.getCantidadResultante());
+            ps.setString(6, movimiento.getClaveIdempotencia());
+            ps.setObject(7, movimiento.getFecha());
+        });
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<MovimientoInventario> obtenerKardex(Long productoId, Long bodegaId, LocalDateTime desde,
+                                                    LocalDateTime hasta, Long after, int limit) {
+        LocalDateTime inicio = desde != null ? desde : INICIO_KARDEX;
+        LocalDateTime fin = hasta != null ? hasta : LocalDateTime.now();
+        long cursor = after != null ? after : 0L;
+        // La página sigue al movimiento del cursor en el orden (fecha, id) y no vuelve a recorrer las anteriores
+        LocalDateTime fechaCursor = inicio;
+        if (cursor > 0) {
+            fechaCursor = movimientoInventarioRepository.findById(cursor)
+                .map(MovimientoInventario::getFecha)
+                .orElse(inicio);
+        }
+        return movimientoInventarioRepository.findKardex(productoId, bodegaId, inicio, fin, fechaCursor, cursor,
+            Limit.of(Math.max(1, Math.min(limit, LIMITE_MAXIMO))));
+    }
+    
+    // Sin transacción en el hilo que espera: cada bodega se consulta en su propio hilo y conexión
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<StockHistorico> obtenerStockAl(LocalDateTime fecha, Long bodegaId) {
+        List<Long> bodegaIds = bodegaId != null ? List.of(bodegaId) : bodegaRepository.findAllIds();
+        // generarSaldos sólo crea saldo para las filas con movimientos en el día: la cantidad de cada fila
+        // al último corte anterior a la fecha es la de su saldo más reciente hasta ese corte, que puede ser
+        // de un día anterior (findSaldosAlCorte lo busca por fila)
+        LocalDateTime corte = saldoInventarioRepository.findMaxFechaCorteHasta(fecha);
+        List<ForkJoinTask<List<StockHistorico>>> tareas = bodegaIds.stream()
+            .map(id -> poolStockHistorico.submit(() -> stockDeBodega(id, fecha, corte)))
+            .toList();
+        List<StockHistorico> stock = new ArrayList<>();
+        for (ForkJoinTask<List<StockHistorico>> tarea : tareas) {
+            stock.addAll(tarea.join());
+        }
+        return stock;
+    }
+    
+    // Saldo más reciente hasta el corte más los deltas entre el corte y la fecha
+    private List<StockHistorico> stockDeBodega(Long bodegaId, LocalDateTime fecha, LocalDateTime corte) {
+        Map<Long, Integer> cantidades = new TreeMap<>();
+        LocalDateTime desde = INICIO_KARDEX;
+        if (corte != null) {
+            for (Object[] fila : saldoInventarioRepository.findSaldosAlCorte(bodegaId, corte)) {
+                cantidades.put(((Number) fila[0]).longValue(), ((Number) fila[1]).intValue());
+            }
+            desde = corte;
+        }
+        for (Object[] fila : movimientoInventarioRepository.sumarDeltasPorProducto(bodegaId, desde, fecha)) {
+            cantidades.merge((Long) fila[0], ((Number) fila[1]).intValue(), Integer::sum);
+        }
+        return cantidades.entrySet().stream()
+            .map(entrada -> new StockHistorico(entrada.getKey(), bodegaId, entrada.getValue()))
+            .toList();
+    }
+    
+    // Sin transacción envolvente: cada día y cada lote confirma por separado y libera sus bloqueos
+    @Scheduled(cron = "${inventario.kardex.cron-saldos:0 30 2 * * *}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void cerrarDias() {
+        generarSaldos();
+        compactar();
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int generarSaldos() {
+        LocalDateTime hoy = LocalDate.now().atStartOfDay();
+        LocalDateTime ultimoCorte = saldoInventarioRepository.findMaxFechaCorte();
+        if (ultimoCorte == null) {
+            LocalDateTime primerMovimiento = movimientoInventarioRepository.findMinFecha();
+            if (primerMovimiento == null) {
+                return 0;
+            }
+            ultimoCorte = primerMovimiento.toLocalDate().atStartOfDay();
+        }
+        
+        int generados = 0;
+        for (LocalDateTime corte = ultimoCorte.plusDays(1); !corte.isAfter(hoy); corte = corte.plusDays(1)) {
+            LocalDateTime cierre = corte;
+            generados += transaccionPorLote.execute(estado -> generarSaldosDelDia(cierre));
+        }
+        return generados;
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int compactar() {
+        LocalDateTime ultimoCorte = saldoInventarioRepository.findMaxFechaCorte();
+        if (ultimoCorte == null) {
+            return 0;
+        }
+        // Sólo se elimina lo que ya está resumido en un saldo
+        LocalDateTime limite = LocalDate.now().minusDays(retencionDias).atStartOfDay();
+        if (ultimoCorte.isBefore(limite)) {
+            limite = ultimoCorte;
+        }
+        LocalDateTime limitePurga = limite;
+        int eliminados = 0;
+        int eliminadosLote;
+        do {
+            eliminadosLote = transaccionPorLote.execute(
+                estado -> movimientoInventarioRepository.deleteAnterioresA(limitePurga, lotePurga));
+            eliminados += eliminadosLote;
+        } while (eliminadosLote == lotePurga);
+        return eliminados;
+    }
+    
+    // Métodos auxiliares
+    
+    // Saldos al cierre del día anterior a corte, para las filas con movimientos ese día
+    private int generarSaldosDelDia(LocalDateTime corte) {
+        List<Object[]> filas = movimientoInventarioRepository.resumirPorFila(corte.minusDays(1), corte);
+        if (filas.isEmpty()) {
+            return 0;
+        }
+        // El último movimiento del día de cada fila trae la cantidad al cierre
+        Map<Long, MovimientoInventario> ultimos = movimientoInventarioRepository
+            .findAllById(filas.stream().map(fila -> (Long) fila[2]).toList())
+            .stream()
+            .collect(Collectors.toMap(MovimientoInventario::getId, Function.identity()));
+        List<SaldoInventario> saldos = new ArrayList<>(filas.size());
+        for (Object[] fila : filas) {
+            saldos.add(new SaldoInventario((Long) fila[0], (Long) fila[1], corte,
+                ultimos.get((Long) fila[2]).getCantidadResultante(),
+                ((Number) fila[3]).longValue(), ((Number) fila[4]).longValue(), ((Number) fila[5]).longValue()));
+        }
+        saldoInventarioRepository.saveAll(saldos);
+        return saldos.size();
+    }
+}
@@ -0,0 +1,27 @@
+package com.espe.inventario.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Difiere las actualizaciones del estado en memoria (índices, resúmenes, eventos) hasta que
+// la transacción en curso se confirma; sin transacción activa se aplican de inmediato
+// Cada servicio tiene su propia copia: comun-idempotencia agrupa sólo el filtro de idempotencia
+// y lo que este usa, y no reúne utilidades generales de los servicios
+public final class Transacciones {
+
+    private Transacciones() {
+    }
+
+    public static void alConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+}
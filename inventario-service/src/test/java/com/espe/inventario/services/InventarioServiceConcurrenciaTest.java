@@ -0,0 +1,172 @@
+package com.espe.inventario.services;
+
+import com.espe.inventario.dto.ModoLote;
+import com.espe.inventario.dto.MovimientoStock;
+import com.espe.inventario.dto.ResultadoMovimiento;
+import com.espe.inventario.models.Bodega;
+import com.espe.inventario.models.Inventario;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Varios hilos modifican el mismo producto y bodega: la cantidad final debe ser exactamente la suma
+// de los deltas que el servicio informó como aplicados.
+// Corre sobre H2 en modo MySQL, que no ejecuta SKIP LOCKED ni ON DUPLICATE KEY ni reproduce los
+// bloqueos de fila de InnoDB: solo valida la contabilidad del servicio, no el comportamiento del
+// motor bajo contención. Por su duración queda fuera de `mvn test`; se ejecuta con `mvn test -Pstress`
+@SpringBootTest
+@ActiveProfiles("test")
+@Tag("stress")
+class InventarioServiceConcurrenciaTest {
+
+    private static final Logger log = LoggerFactory.getLogger(InventarioServiceConcurrenciaTest.class);
+
+    private static final int HILOS = 8;
+    private static final int OPERACIONES_POR_HILO = 200;
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    private Long bodegaId;
+
+    @BeforeEach
+    void crearBodega() {
+        Bodega bodega = new Bodega();
+        bodega.setNombre("Bodega concurrencia " + System.nanoTime());
+        bodega.setDireccion("Av. de prueba");
+        bodega.setCapacidad(1000000);
+        bodegaId = inventarioService.saveBodega(bodega).getId();
+    }
+
+    @Test
+    void agregarYReducirStockConcurrentesNoPierdenActualizaciones() throws Exception {
+        Long productoId = crearInventario(1L);
+        AtomicLong aplicado = new AtomicLong();
+        AtomicLong rechazos = new AtomicLong();
+
+        long duracionNanos = ejecutarEnParalelo(() -> {
+            ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+            for (int i = 0; i < OPERACIONES_POR_HILO; i++) {
+                int cantidad = aleatorio.nextInt(1, 6);
+                if (aleatorio.nextBoolean()) {
+                    inventarioService.agregarStock(productoId, bodegaId, cantidad);
+                    aplicado.addAndGet(cantidad);
+                } else {
+                    try {
+                        inventarioService.reducirStock(productoId, bodegaId, cantidad);
+                        aplicado.addAndGet(-cantidad);
+                    } catch (RuntimeException e) {
+                        // Stock insuficiente: el UPDATE condicional no tocó la fila
+                        rechazos.incrementAndGet();
+                    }
+                }
+            }
+            return null;
+        });
+
+        Inventario inventario = inventarioService.findInventarioByProductoAndBodega(productoId, bodegaId).orElseThrow();
+        assertEquals(aplicado.get(), inventario.getCantidad().longValue());
+        assertTrue(inventario.getCantidad() >= 0);
+        informar("agregar/reducir-stock", HILOS * OPERACIONES_POR_HILO, duracionNanos, rechazos.get());
+    }
+
+    @Test
+    void lotesConcurrentesSobreFilasCompartidasNoPierdenActualizaciones() throws Exception {
+        int filas = 4;
+        List<Long> productoIds = new ArrayList<>();
+        for (int i = 0; i < filas; i++) {
+            productoIds.add(crearInventario(100L + i));
+        }
+        AtomicLongArray aplicado = new AtomicLongArray(filas);
+        AtomicLong rechazos = new AtomicLong();
+        int lotesPorHilo = OPERACIONES_POR_HILO / 10;
+
+        long duracionNanos = ejecutarEnParalelo(() -> {
+            ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+            for (int lote = 0; lote < lotesPorHilo; lote++) {
+                // Las filas llegan en distinto orden en cada lote: el servicio debe ordenarlas para no bloquearse
+                List<Integer> orden = new ArrayList<>();
+                for (int i = 0; i < filas; i++) {
+                    orden.add(i);
+                }
+                Collections.shuffle(orden, aleatorio);
+                List<MovimientoStock> movimientos = new ArrayList<>();
+                for (int fila : orden) {
+                    int cantidad = aleatorio.nextInt(1, 6) * (aleatorio.nextBoolean() ? 1 : -1);
+                    movimientos.add(new MovimientoStock(null, productoIds.get(fila), bodegaId, cantidad));
+                }
+                List<ResultadoMovimiento> resultados =
+                    inventarioService.aplicarMovimientos(movimientos, ModoLote.MEJOR_ESFUERZO);
+                for (int i = 0; i < resultados.size(); i++) {
+                    if (resultados.get(i).estado() == ResultadoMovimiento.Estado.APLICADO) {
+                        aplicado.addAndGet(orden.get(i), movimientos.get(i).cantidad());
+                    } else {
+                        rechazos.incrementAndGet();
+                    }
+                }
+            }
+            return null;
+        });
+
+        for (int i = 0; i < filas; i++) {
+            Inventario inventario = inventarioService.findInventarioByProductoAndBodega(productoIds.get(i), bodegaId)
+                .orElseThrow();
+            assertEquals(aplicado.get(i), inventario.getCantidad().longValue());
+        }
+        informar("movimientos/lote (" + filas + " filas por lote)", HILOS * lotesPorHilo * filas, duracionNanos,
+            rechazos.get());
+    }
+
+    private Long crearInventario(Long productoId) {
+        Inventario inventario = new Inventario();
+        inventario.setProductoId(productoId);
+        inventario.setBodegaId(bodegaId);
+        inventario.setCantidad(0);
+        inventario.setCantidadMinima(0);
+        return inventarioService.saveInventario(inventario).getProductoId();
+    }
+
+    // Ejecuta la tarea en todos los hilos a la vez y devuelve la duración total
+    private long ejecutarEnParalelo(Callable<Void> tarea) throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        try {
+            long inicio = System.nanoTime();
+            List<Future<Void>> futuros = new ArrayList<>();
+            for (int i = 0; i < HILOS; i++) {
+                futuros.add(hilos.submit(tarea));
+            }
+            for (Future<Void> futuro : futuros) {
+                futuro.get();
+            }
+            return System.nanoTime() - inicio;
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    private void informar(String operacion, long operaciones, long duracionNanos, long rechazos) {
+        double segundos = duracionNanos / 1_000_000_000.0;
+        log.info("{}: {} operaciones en {} s, {} ops/s sobre filas calientes, {} rechazadas",
+            operacion, operaciones, String.format("%.2f", segundos),
+            String.format("%.0f", operaciones / segundos), rechazos);
+    }
+}
@@ -32,6 +32,12 @@ public class ProductoController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    @GetMapping("/lote")
+    public ResponseEntity<List<Producto>> getProductosByIds(@RequestParam List<Long> ids) {
+        List<Producto> productos = productoService.findAllById(ids);
+        return ResponseEntity.ok(productos);
+    }
+    
     @GetMapping("/sku/{sku}")
     public ResponseEntity<Producto> getProductoBySku(@PathVariable String sku) {
         Optional<Producto> producto = productoService.findBySku(sku);
@@ -10,6 +10,8 @@ public interface ProductoService {
     
     Optional<Producto> findById(Long id);
     
+    List<Producto> findAllById(List<Long> ids);
+    
     Optional<Producto> findBySku(String sku);
     
     List<Producto> findByCategoria(String categoria);
@@ -29,6 +29,12 @@ public class ProductoServiceImpl implements ProductoService {
         return productoRepository.findById(id);
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public List<Producto> findAllById(List<Long> ids) {
+        return productoRepository.findAllById(ids);
+    }
+    
     @Override
     @Transactional(readOnly = true)
     public Optional<Producto> findBySku(String sku) {
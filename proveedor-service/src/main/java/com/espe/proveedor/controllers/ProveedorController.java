@@ -32,6 +32,12 @@ public class ProveedorController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    @GetMapping("/lote")
+    public ResponseEntity<List<Proveedor>> getProveedoresByIds(@RequestParam List<Long> ids) {
+        List<Proveedor> proveedores = proveedorService.findAllById(ids);
+        return ResponseEntity.ok(proveedores);
+    }
+    
     @GetMapping("/nit/{nitRuc}")
     public ResponseEntity<Proveedor> getProveedorByNitRuc(@PathVariable String nitRuc) {
         Optional<Proveedor> proveedor = proveedorService.findByNitRuc(nitRuc);
@@ -10,6 +10,8 @@ public interface ProveedorService {
     
     Optional<Proveedor> findById(Long id);
     
+    List<Proveedor> findAllById(List<Long> ids);
+    
     Optional<Proveedor> findByNitRuc(String nitRuc);
     
     List<Proveedor> findByEstado(String estado);
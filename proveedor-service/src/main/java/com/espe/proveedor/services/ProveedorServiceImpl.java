@@ -29,6 +29,12 @@ public class ProveedorServiceImpl implements ProveedorService {
         return proveedorRepository.findById(id);
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public List<Proveedor> findAllById(List<Long> ids) {
+        return proveedorRepository.findAllById(ids);
+    }
+    
     @Override
     @Transactional(readOnly = true)
     public Optional<Proveedor> findByNitRuc(String nitRuc) {